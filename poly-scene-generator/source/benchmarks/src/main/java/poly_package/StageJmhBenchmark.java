@@ -0,0 +1,161 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JMH benchmark of each stage of generating a scene, measured separately (StageBenchmark in the core prints a quick table of the same
+//  stages without JMH).  Before each invocation, the untimed setup makes a Model for the next of a fixed list of seeds and runs the
+//  stages before the one being measured, so only that stage is timed and every run sees the same scenes.  The timing of a stage
+//  much shorter than a millisecond (eg planes) includes some of JMH's own per-invocation overhead.
+// Build with "mvn package", then run eg
+//  java -jar source/benchmarks/target/benchmarks.jar StageJmhBenchmark -prof gc -p planes=10,25 -p stage=polygons
+//  -prof gc adds the bytes allocated per invocation (gc.alloc.rate.norm) and the GC count and time for each stage.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StageJmhBenchmark
+{
+	static final int SEED_COUNT = 10;	// Seeds StageBenchmark.FIRST_SEED to FIRST_SEED + SEED_COUNT - 1 are used in turn
+
+	@Param({"10", "25", "50", "100", "200"})
+	int planes;
+
+	@Param({"0.2", "0.5", "1.0"})
+	double p;
+
+	// One of StageBenchmark.STAGES; "choose" is left out by default, since it only draws a random number per polyhedron
+	@Param({"planes", "lines", "points", "sort_points", "polygons", "polyhedra", "conglomerates", "output"})
+	String stage;
+
+	int stage_index;
+	File output_file;
+	int next_seed = 0;
+
+	// The scene the next invocation works on, with the stages before the measured one done
+	Model model;
+	List<Polyhedron> chosen_polyhedra;
+
+	@Setup(Level.Trial)
+	public void create_output_file() throws IOException
+	{
+		stage_index = Arrays.asList(StageBenchmark.STAGES).indexOf(stage);
+		if (stage_index < 0)
+		{
+			throw new IllegalArgumentException("Unknown stage " + stage + "; the stages are " + Arrays.toString(StageBenchmark.STAGES));
+		}
+		output_file = File.createTempFile("stage-jmh-benchmark", ".obj");
+		output_file.deleteOnExit();
+	}
+
+	// A seed whose scene fails before the measured stage (see Model.start_scene()) is skipped.  One which fails in the measured stage
+	//  is timed up to the failure, which happens at the same point on every run.
+	@Setup(Level.Invocation)
+	public void prepare_scene()
+	{
+		for (int tries = 0; tries < SEED_COUNT; tries++)
+		{
+			model = new Model(StageBenchmark.FIRST_SEED + next_seed);
+			next_seed = (next_seed + 1) % SEED_COUNT;
+			model.number_of_planes = planes;
+			model.poly_probability = p;
+			try
+			{
+				for (int earlier = 0; earlier < stage_index; earlier++)
+				{
+					run_stage(earlier);
+				}
+				return;
+			}
+			catch (RuntimeException ex)
+			{
+				continue;
+			}
+		}
+		throw new IllegalStateException("Every seed fails before the " + stage + " stage with " + planes + " planes");
+	}
+
+	@Benchmark
+	public Object measure_stage()
+	{
+		try
+		{
+			return run_stage(stage_index);
+		}
+		catch (RuntimeException ex)
+		{
+			return ex;
+		}
+	}
+
+	// Runs one stage of the model, returning something it made so that JMH doesn't treat the work as dead.
+	Object run_stage(int index)
+	{
+		switch (StageBenchmark.STAGES[index])
+		{
+			case "planes":
+				model.create_planes();
+				break;
+			case "lines":
+				model.create_lines();
+				break;
+			case "points":
+				model.create_points();
+				break;
+			case "sort_points":
+				model.sort_line_points();
+				break;
+			case "polygons":
+				model.create_polygons();
+				break;
+			case "polyhedra":
+				model.create_polyhedra();
+				break;
+			case "choose":
+				chosen_polyhedra = model.choose_polyhedra();
+				return chosen_polyhedra;
+			case "conglomerates":
+				model.create_conglomerates(chosen_polyhedra);
+				return model.get_conglomerates();
+			case "output":
+				model.output_to_file(output_file.getPath());
+				break;
+		}
+		return model;
+	}
+}
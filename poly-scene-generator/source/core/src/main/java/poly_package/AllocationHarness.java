@@ -0,0 +1,415 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// This class measures the memory each stage of create_scene() allocates, for a fixed set of seeds, and compares it with a baseline
+//  saved by an earlier run so that a change which makes a stage allocate more is noticed.  The bytes come from the JVM's per-thread
+//  allocation counter (see SceneMetrics), which Model reads around every stage.
+// Since the seeds are fixed, each scene is the same on every run and allocates almost exactly the same amount; the small differences
+//  come from what the JIT has compiled (it can remove some allocations altogether), which is why the seeds are run once untimed
+//  first.  A stage is only flagged if it grows by more than the tolerance and by more than MIN_GROWTH bytes, so that tiny stages
+//  don't raise false alarms.
+public class AllocationHarness
+{
+	static final long FIRST_SEED = 4900;
+	static final long MIN_GROWTH = 64 * 1024;
+
+	int[] plane_counts = {10, 25, 50};
+	double[] probabilities = {0.5};
+	int seed_count = 10;
+	int warmup_runs = 1;
+	double tolerance = 0.1;				// Allowed growth, as a fraction of the baseline
+	File output_file;
+
+	// Bytes allocated by each stage of each scene, by key (see key()), in the order they ran
+	Map<String, Long> results = new LinkedHashMap<String, Long>();
+	int failures = 0;
+
+	public AllocationHarness(File output_file)
+	{
+		this.output_file = output_file;
+	}
+
+	// Generates and writes every scene in the seed set, recording the bytes each stage allocated.
+	public void run()
+	{
+		for (int run = 0; run < warmup_runs; run++)
+		{
+			run_all(false);
+		}
+		results.clear();
+		failures = 0;
+		run_all(true);
+	}
+
+	void run_all(boolean record)
+	{
+		for (int number_of_planes: plane_counts)
+		{
+			for (double poly_probability: probabilities)
+			{
+				for (int i = 0; i < seed_count; i++)
+				{
+					run_scene(number_of_planes, poly_probability, FIRST_SEED + i, record);
+				}
+			}
+		}
+	}
+
+	// A scene which fails (see Model.start_scene()) fails the same way for the same seed every time, so the stages it finished are
+	//  still recorded.
+	void run_scene(int number_of_planes, double poly_probability, long seed, boolean record)
+	{
+		Model model = new Model(seed);
+		try
+		{
+			model.create_scene(number_of_planes, poly_probability, output_file.getPath());
+		}
+		catch (RuntimeException ex)
+		{
+			if (record)
+			{
+				failures++;
+			}
+		}
+
+		if (record)
+		{
+			for (Map.Entry<String, Long> stage: model.get_metrics().get_stage_bytes().entrySet())
+			{
+				results.put(key(number_of_planes, poly_probability, seed, stage.getKey()), stage.getValue());
+			}
+		}
+	}
+
+	static String key(int number_of_planes, double poly_probability, long seed, String stage)
+	{
+		return String.format(Locale.ROOT, "%d %.2f %d %s", number_of_planes, poly_probability, seed, stage);
+	}
+
+	// Writes the results as a baseline: one line per stage of each scene, with the planes, probability, seed, stage and bytes.
+	public void write_baseline(String filename)
+	{
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(filename, "UTF-8");
+			writer.println("# planes probability seed stage bytes");
+			for (Map.Entry<String, Long> result: results.entrySet())
+			{
+				writer.println(result.getKey() + " " + result.getValue());
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+
+	public static Map<String, Long> read_baseline(String filename) throws IOException
+	{
+		Map<String, Long> baseline = new LinkedHashMap<String, Long>();
+		BufferedReader reader = new BufferedReader(new FileReader(filename));
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+				int last_space = line.lastIndexOf(' ');
+				baseline.put(line.substring(0, last_space), Long.parseLong(line.substring(last_space + 1)));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return baseline;
+	}
+
+	// Prints the bytes each stage allocated per scene, averaged over the seeds, next to the baseline, then each stage of each scene
+	//  which has grown past the tolerance.  Returns the number of regressions.
+	public int compare(Map<String, Long> baseline)
+	{
+		System.out.println("planes     p  stage             baseline KB     current KB   change");
+		for (int number_of_planes: plane_counts)
+		{
+			for (double poly_probability: probabilities)
+			{
+				for (String stage: stage_names())
+				{
+					long baseline_total = 0, current_total = 0;
+					int scenes = 0;
+					for (int i = 0; i < seed_count; i++)
+					{
+						String key = key(number_of_planes, poly_probability, FIRST_SEED + i, stage);
+						if (baseline.containsKey(key) && results.containsKey(key))
+						{
+							baseline_total += baseline.get(key);
+							current_total += results.get(key);
+							scenes++;
+						}
+					}
+					if (scenes == 0)
+					{
+						continue;
+					}
+					System.out.println(String.format(Locale.ROOT, "%6d %5.2f  %-14s %14.1f %14.1f %+7.1f%%", number_of_planes,
+														poly_probability, stage, baseline_total / 1024.0 / scenes,
+														current_total / 1024.0 / scenes, percent_change(baseline_total, current_total)));
+				}
+			}
+		}
+
+		int regressions = 0;
+		for (Map.Entry<String, Long> result: results.entrySet())
+		{
+			Long before = baseline.get(result.getKey());
+			if (before == null)
+			{
+				continue;
+			}
+			long after = result.getValue();
+			if (after > before * (1 + tolerance) && after - before > MIN_GROWTH)
+			{
+				System.out.println(String.format(Locale.ROOT, "REGRESSION %s: %.1f KB -> %.1f KB (%+.1f%%)", result.getKey(),
+													before / 1024.0, after / 1024.0, percent_change(before, after)));
+				regressions++;
+			}
+		}
+		// A stage which used to finish and now doesn't means the scene has changed, so the comparison isn't meaningful for it
+		for (String key: baseline.keySet())
+		{
+			if (!results.containsKey(key) && in_seed_set(key))
+			{
+				System.out.println("MISSING " + key + ": the stage finished in the baseline but not now");
+			}
+		}
+		return regressions;
+	}
+
+	// Returns the stage names which appear in the results, in the order they ran.
+	List<String> stage_names()
+	{
+		List<String> stages = new ArrayList<String>();
+		for (String key: results.keySet())
+		{
+			String stage = key.substring(key.lastIndexOf(' ') + 1);
+			if (!stages.contains(stage))
+			{
+				stages.add(stage);
+			}
+		}
+		return stages;
+	}
+
+	// Tells whether a baseline key belongs to a scene this run generated, so a baseline with more seeds or plane counts can be used.
+	boolean in_seed_set(String key)
+	{
+		String[] fields = key.split(" ");
+		long seed = Long.parseLong(fields[2]);
+		if (seed < FIRST_SEED || seed >= FIRST_SEED + seed_count)
+		{
+			return false;
+		}
+		for (int number_of_planes: plane_counts)
+		{
+			for (double poly_probability: probabilities)
+			{
+				if (key(number_of_planes, poly_probability, seed, fields[3]).equals(key))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	static double percent_change(long before, long after)
+	{
+		return (before == 0) ? 0 : 100.0 * (after - before) / before;
+	}
+
+	// Writes the bytes of every stage of every scene as CSV.
+	public void write_csv(String filename)
+	{
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(filename, "UTF-8");
+			writer.println("planes,probability,seed,stage,bytes");
+			for (Map.Entry<String, Long> result: results.entrySet())
+			{
+				writer.println(result.getKey().replace(' ', ',') + "," + result.getValue());
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+
+	static int[] parse_ints(String list)
+	{
+		String[] fields = list.split(",");
+		int[] values = new int[fields.length];
+		for (int i = 0; i < fields.length; i++)
+		{
+			values[i] = Integer.parseInt(fields[i].trim());
+		}
+		return values;
+	}
+
+	static double[] parse_doubles(String list)
+	{
+		String[] fields = list.split(",");
+		double[] values = new double[fields.length];
+		for (int i = 0; i < fields.length; i++)
+		{
+			values[i] = Double.parseDouble(fields[i].trim());
+		}
+		return values;
+	}
+
+	// Usage: AllocationHarness baseline_file [--record] [--seeds count] [--planes list] [--probabilities list] [--tolerance percent]
+	//  [--warmup runs] [--csv file]
+	// Without --record, or if the baseline file doesn't exist yet, the results are compared with the baseline and the exit status is
+	//  1 if any stage has regressed.  With --record (or no baseline) they are saved as the new baseline.
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: AllocationHarness baseline_file [--record] [--seeds count] [--planes list] "
+								+ "[--probabilities list] [--tolerance percent] [--warmup runs] [--csv file]");
+			return;
+		}
+		if (!SceneMetrics.enable_allocation_counter())
+		{
+			System.out.println("ERROR: this JVM can't measure allocation per thread");
+			return;
+		}
+
+		String baseline_file = args[0];
+		boolean record = false;
+		String csv_file = null;
+		File output_file;
+		try
+		{
+			output_file = File.createTempFile("allocation-harness", ".obj");
+			output_file.deleteOnExit();
+			new File(Model.labels_filename(output_file.getPath())).deleteOnExit();
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+			return;
+		}
+		AllocationHarness harness = new AllocationHarness(output_file);
+
+		for (int i = 1; i < args.length; i++)
+		{
+			if (args[i].equals("--record"))
+			{
+				record = true;
+			}
+			else if (args[i].equals("--seeds") && i + 1 < args.length)
+			{
+				harness.seed_count = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("--planes") && i + 1 < args.length)
+			{
+				harness.plane_counts = parse_ints(args[++i]);
+			}
+			else if (args[i].equals("--probabilities") && i + 1 < args.length)
+			{
+				harness.probabilities = parse_doubles(args[++i]);
+			}
+			else if (args[i].equals("--tolerance") && i + 1 < args.length)
+			{
+				harness.tolerance = Double.parseDouble(args[++i]) / 100;
+			}
+			else if (args[i].equals("--warmup") && i + 1 < args.length)
+			{
+				harness.warmup_runs = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("--csv") && i + 1 < args.length)
+			{
+				csv_file = args[++i];
+			}
+			else
+			{
+				System.out.println("ERROR: unknown option " + args[i]);
+				return;
+			}
+		}
+
+		harness.run();
+		if (harness.failures > 0)
+		{
+			System.out.println("Failed scenes: " + harness.failures + "; only the stages they finished are counted");
+		}
+		if (csv_file != null)
+		{
+			harness.write_csv(csv_file);
+		}
+
+		if (record || !new File(baseline_file).exists())
+		{
+			harness.write_baseline(baseline_file);
+			System.out.println("Baseline written to " + baseline_file + " (" + harness.results.size() + " stages)");
+			return;
+		}
+
+		int regressions;
+		try
+		{
+			regressions = harness.compare(read_baseline(baseline_file));
+		}
+		catch (Exception ex)
+		{
+			System.out.println("ERROR reading baseline " + baseline_file + ": " + ex);
+			System.exit(2);
+			return;
+		}
+		System.out.println(regressions + " regression(s) at " + Math.round(harness.tolerance * 100) + "% tolerance");
+		System.exit((regressions > 0) ? 1 : 0);
+	}
+}
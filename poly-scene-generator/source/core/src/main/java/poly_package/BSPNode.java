@@ -0,0 +1,134 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// This class is a node of a binary space partitioning tree built from the scene's own planes, used by HiddenLineEngine to find the
+//  faces which could hide an edge.
+// Each face (from the conglomerates' draw lists) is a cell of the plane arrangement, so it lies entirely on one side of every plane
+//  other than its own.  This means that using the faces' planes as splitting planes never splits a face, and every face ends up at
+//  the node for its own plane.  Similarly every edge is a segment between consecutive points on a line, so it never crosses a plane.
+public class BSPNode
+{
+	Plane plane;
+	List<Polygon> faces = new ArrayList<Polygon>();		// The faces lying in this node's plane
+	BSPNode front;										// Faces on the side of the plane the normal points to
+	BSPNode back;										// Faces on the other side
+
+	static final double EPSILON = 1e-9;
+
+	// Builds a tree containing the given faces, or returns null if there are none.  The splitting plane at each node is the plane of the
+	//  first remaining face.
+	public static BSPNode build(List<Polygon> faces)
+	{
+		if (faces.size() == 0)
+		{
+			return null;
+		}
+
+		BSPNode node = new BSPNode();
+		node.plane = faces.get(0).plane;
+
+		List<Polygon> front_faces = new ArrayList<Polygon>();
+		List<Polygon> back_faces = new ArrayList<Polygon>();
+
+		for (Polygon face: faces)
+		{
+			if (face.plane == node.plane)
+			{
+				node.faces.add(face);
+				continue;
+			}
+
+			// The face doesn't cross the plane, so the average of its points is enough to tell which side it's on
+			double x = 0, y = 0, z = 0;
+			for (Point current_point: face.points)
+			{
+				x += current_point.x_point;
+				y += current_point.y_point;
+				z += current_point.z_point;
+			}
+			int count = face.points.size();
+
+			if (node.side_of(x / count, y / count, z / count) > 0)
+			{
+				front_faces.add(face);
+			}
+			else
+			{
+				back_faces.add(face);
+			}
+		}
+
+		node.front = build(front_faces);
+		node.back = build(back_faces);
+		return node;
+	}
+
+	// Returns 1 if the point is on the front side of this node's plane, -1 if it's on the back side and 0 if it's in the plane.
+	public int side_of(double x, double y, double z)
+	{
+		double distance = plane.normal_x * x + plane.normal_y * y + plane.normal_z * z - plane.plane_constant;
+
+		if (distance > EPSILON)
+		{
+			return 1;
+		}
+		else if (distance < -EPSILON)
+		{
+			return -1;
+		}
+		return 0;
+	}
+
+	// Adds to 'occluders' every face which lies between the eye and the edge with the given midpoint, ie every face whose plane
+	//  separates them.  Only these faces can hide any part of the edge.
+	// If the eye and the edge are on the same side of a plane, the line of sight between them stays on that side, so nothing in the
+	//  plane or behind it can be in the way and only one subtree needs to be searched.  The same is true if the edge is in the plane.
+	public void find_occluders(double eye_x, double eye_y, double eye_z, double mid_x, double mid_y, double mid_z,
+									List<Polygon> occluders)
+	{
+		int eye_side = side_of(eye_x, eye_y, eye_z);
+		int edge_side = side_of(mid_x, mid_y, mid_z);
+
+		if (edge_side == 0 || eye_side == 0 || eye_side == edge_side)
+		{
+			// Search only the side containing the eye (or the edge, if the eye is in the plane)
+			int near_side = (eye_side != 0) ? eye_side : edge_side;
+			BSPNode near_node = (near_side > 0) ? front : back;
+			if (near_side != 0 && near_node != null)
+			{
+				near_node.find_occluders(eye_x, eye_y, eye_z, mid_x, mid_y, mid_z, occluders);
+			}
+			return;
+		}
+
+		// The plane separates the eye and the edge, so the faces in it are between them, and faces on either side could be too
+		occluders.addAll(faces);
+		if (front != null)
+		{
+			front.find_occluders(eye_x, eye_y, eye_z, mid_x, mid_y, mid_z, occluders);
+		}
+		if (back != null)
+		{
+			back.find_occluders(eye_x, eye_y, eye_z, mid_x, mid_y, mid_z, occluders);
+		}
+	}
+}
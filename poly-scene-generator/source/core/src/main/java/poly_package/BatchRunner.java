@@ -0,0 +1,210 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// This class generates a batch of scenes on several threads at once, each from its own seed, and saves each to its own file.  Each
+//  thread has its own Model, so the scenes don't share anything but the output directory.  With --trace, the stages of every scene
+//  are recorded by Tracer and written as a timeline showing what each thread was doing and when.  With --cache, scenes already in the
+//  SceneCache are copied from it rather than generated, so running a batch again only generates the scenes it hasn't made before.
+public class BatchRunner
+{
+	int number_of_planes;
+	double poly_probability;
+	String prefix;
+	String metrics_filename;
+	SceneCache cache = null;
+
+	AtomicInteger finished = new AtomicInteger();
+	AtomicInteger failed = new AtomicInteger();
+	AtomicInteger cached = new AtomicInteger();		// Scenes copied from the cache, or known from it to fail
+
+	public BatchRunner(int number_of_planes, double poly_probability, String prefix, String metrics_filename)
+	{
+		this.number_of_planes = number_of_planes;
+		this.poly_probability = poly_probability;
+		this.prefix = prefix;
+		this.metrics_filename = metrics_filename;
+	}
+
+	// Generates scenes first_seed to first_seed + count - 1 on 'threads' threads, and returns once all of them are finished.
+	public void run(long first_seed, int count, int threads) throws InterruptedException
+	{
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < count; i++)
+		{
+			final long seed = first_seed + i;
+			workers.execute(new Runnable()
+			{
+				public void run()
+				{
+					run_scene(seed);
+				}
+			});
+		}
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	// Generates and writes one scene, as prefix-seed.obj.
+	void run_scene(long seed)
+	{
+		String output_filename = prefix + "-" + seed + ".obj";
+		if (cache != null)
+		{
+			if (cache.is_failure(seed, number_of_planes, poly_probability, "obj"))
+			{
+				failed.incrementAndGet();
+				cached.incrementAndGet();
+				return;
+			}
+			if (cache.fetch(seed, number_of_planes, poly_probability, output_filename))
+			{
+				finished.incrementAndGet();
+				cached.incrementAndGet();
+				return;
+			}
+		}
+
+		Model model = new Model(seed);
+		Tracer.begin("scene", "scene", seed);
+		try
+		{
+			model.create_scene(number_of_planes, poly_probability, output_filename);
+			finished.incrementAndGet();
+			if (cache != null)
+			{
+				cache.store(seed, number_of_planes, poly_probability, output_filename);
+			}
+		}
+		catch (RuntimeException ex)
+		{
+			System.out.println("ERROR in BatchRunner -> scene " + seed + "; " + ex);
+			failed.incrementAndGet();
+			if (cache != null)
+			{
+				cache.store_failure(seed, number_of_planes, poly_probability, "obj");
+			}
+		}
+		finally
+		{
+			Tracer.end("scene", "scene", seed);
+		}
+
+		if (metrics_filename != null)
+		{
+			synchronized (this)
+			{
+				model.get_metrics().append_to_file(metrics_filename);
+			}
+		}
+	}
+
+	// Usage: BatchRunner planes probability count threads prefix [--first-seed seed] [--metrics file] [--trace file]
+	//  [--cache directory] [--cache-size megabytes]
+	public static void main(String[] args)
+	{
+		if (args.length < 5)
+		{
+			System.out.println("Usage: BatchRunner planes probability count threads prefix [--first-seed seed] [--metrics file] "
+								+ "[--trace file] [--cache directory] [--cache-size megabytes]");
+			return;
+		}
+
+		long first_seed = 0;
+		String metrics_filename = null;
+		String trace_filename = null;
+		String cache_directory = null;
+		long cache_megabytes = SceneCache.DEFAULT_MAX_BYTES / (1024 * 1024);
+		for (int i = 5; i < args.length; i++)
+		{
+			if (args[i].equals("--first-seed") && i + 1 < args.length)
+			{
+				first_seed = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("--metrics") && i + 1 < args.length)
+			{
+				metrics_filename = args[++i];
+			}
+			else if (args[i].equals("--trace") && i + 1 < args.length)
+			{
+				trace_filename = args[++i];
+			}
+			else if (args[i].equals("--cache") && i + 1 < args.length)
+			{
+				cache_directory = args[++i];
+			}
+			else if (args[i].equals("--cache-size") && i + 1 < args.length)
+			{
+				cache_megabytes = Long.parseLong(args[++i]);
+			}
+			else
+			{
+				System.out.println("Usage: BatchRunner planes probability count threads prefix [--first-seed seed] [--metrics file] "
+									+ "[--trace file] [--cache directory] [--cache-size megabytes]");
+				return;
+			}
+		}
+
+		if (trace_filename != null)
+		{
+			Tracer.enable();
+		}
+		if (metrics_filename != null)
+		{
+			SceneMetrics.enable_allocation_counter();
+		}
+		BatchRunner batch = new BatchRunner(Integer.parseInt(args[0]), Double.parseDouble(args[1]), args[4], metrics_filename);
+		if (cache_directory != null)
+		{
+			try
+			{
+				batch.cache = new SceneCache(Paths.get(cache_directory), cache_megabytes * 1024 * 1024);
+			}
+			catch (IOException ex)
+			{
+				System.out.println("ERROR opening the scene cache; " + ex);
+				return;
+			}
+		}
+		long start_time = System.nanoTime();
+		try
+		{
+			batch.run(first_seed, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		}
+		catch (InterruptedException ex)
+		{
+			System.out.println("ERROR in BatchRunner; interrupted");
+			return;
+		}
+		System.out.println(batch.finished.get() + " scenes written, " + batch.failed.get() + " failed, in "
+							+ (System.nanoTime() - start_time) / 1000000 + " ms" + ((batch.cache != null) ? " (" + batch.cached.get()
+							+ " from the cache)" : ""));
+
+		if (trace_filename != null)
+		{
+			Tracer.write_chrome_trace(trace_filename);
+		}
+	}
+}
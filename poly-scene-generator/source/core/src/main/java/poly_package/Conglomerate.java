@@ -18,6 +18,8 @@
 package poly_package;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 // This class represents a contiguous mass of visible polyhedra, and merges shared edges to prevent extraneous lines from being drawn.
@@ -32,6 +34,7 @@ public class Conglomerate
 	List<Polygon> merge_list = new ArrayList<Polygon>();				// Redundant polygons which will not be drawn
 	List<Polygon> outline_draw_list = new ArrayList<Polygon>();			// Polygon outlines to actually be drawn
 	List<Polygon> draw_list = new ArrayList<Polygon>();			// Polygons to actually be drawn - can't be concave so can't just use above
+	List<LabelledEdge> labelled_edges = new ArrayList<LabelledEdge>();	// Each outline edge once, with its convex/concave label
 
 	int name;
 	
@@ -39,7 +42,8 @@ public class Conglomerate
 	{
 		name = conglomerate_name;
 		collected_polyhedra.add(initial_polyhedron);
-		explore_list = initial_polyhedron.polygons;
+		// A copy, since explore() adds the neighbouring polyhedra's polygons to it and VisibilityVariants uses the polyhedron again
+		explore_list = new ArrayList<Polygon>(initial_polyhedron.polygons);
 	}
 	
 	// polyhedra is the list of polyhedra which are to be drawn and have not yet been placed in a conglomerate
@@ -128,6 +132,9 @@ public class Conglomerate
 	// merge() returns the name of the next Polygon that will be created.
 	public int merge(int polygon_name)
 	{
+		// Records one parent of each polygon created here, for orient_merged_polygons()
+		HashMap<Polygon, Polygon> merged_from = new HashMap<Polygon, Polygon>();
+
 		for (Polygon merging_polygon: merge_list)
 		{
 			Point current_point, next_point;
@@ -160,8 +167,7 @@ public class Conglomerate
 				}
 				else
 				{
-					System.out.println("ERROR: Conglomerate.merge() both planes of line of merging polygon are the same.");
-					System.exit(-1);
+					throw new IllegalStateException("Conglomerate.merge(): both planes of line of merging polygon are the same");
 				}
 				
 				// For each of the merging polyhedra, find the polygon in that plane, and trace it down to its current children 
@@ -191,6 +197,7 @@ public class Conglomerate
 				Polygon new_polygon = new Polygon(common_plane, new_points);
 				new_polygon.set_name(polygon_name);
 				polygon_name++;
+				merged_from.put(new_polygon, first_merger);
 				
 				// Remove the parents from the outline_draw_list and add the child - we can do this because it's okay if the outlines 
 				//  are concave.
@@ -203,9 +210,40 @@ public class Conglomerate
 			}
 		}
 		
+		orient_merged_polygons(merged_from);
 		return polygon_name;
 	}
 	
+	// combine_polygons() doesn't always keep the counterclockwise order of the parents, which the .obj faces and the edge labels 
+	//  depend on.  Once merging is done, compare each merged outline with an original polygon it was made from (whose order was set by 
+	//  Polyhedron.make_polygon_points_ccw()) and reverse it if they disagree.  This can't be done during merging because 
+	//  combine_polygons() relies on the order it produced.
+	private void orient_merged_polygons(HashMap<Polygon, Polygon> merged_from)
+	{
+		double[] original_normal = new double[3];
+		double[] merged_normal = new double[3];
+
+		for (Polygon gon: outline_draw_list)
+		{
+			Polygon original = merged_from.get(gon);
+			if (original == null)
+			{
+				continue;
+			}
+			while (merged_from.containsKey(original))
+			{
+				original = merged_from.get(original);
+			}
+
+			original.calculate_newell_normal(original_normal);
+			gon.calculate_newell_normal(merged_normal);
+			if (VectorMath.dot(original_normal, merged_normal) < 0)
+			{
+				gon.reverse_points();
+			}
+		}
+	}
+	
 	// This function combines the two lists of points into a new list with no duplicates.
 	// The duplicated points are assumed to be in a sequence, and only the endpoints of this sequence will be included in the new list.
 	// current_point and next_point are points which exist and are adjacent to each other in both lists.
@@ -340,6 +378,131 @@ public class Conglomerate
 		return result_list;
 	}
 	
+	// Labels every edge of the outline polygons as convex, concave, or boundary.  This must be called after merge().
+	// Each edge appears in two outline polygons, once in each direction since both are counterclockwise viewed from outside.  The
+	//  label comes from the dihedral angle between the two faces: walking around the edge from the first face through the outside
+	//  of the conglomerate, the second face is reached after more than half a turn if the edge is convex and less if it's concave.
+	// Where more than two faces meet at an edge (polyhedra touching only along that edge), each face is paired with the first face
+	//  reached by that walk, since that's the face actually adjacent to it through the outside.
+	public void label_edges()
+	{
+		// Group the edges by the two points they join, regardless of direction
+		HashMap<Long, List<LabelledEdge>> edges_by_points = new HashMap<Long, List<LabelledEdge>>();
+		List<LabelledEdge> all_edges = new ArrayList<LabelledEdge>();
+
+		for (Polygon gon: outline_draw_list)
+		{
+			for (int i = 0; i < gon.get_num_points(); i++)
+			{
+				LabelledEdge edge = new LabelledEdge();
+				edge.first_point = gon.get_point(i);
+				edge.second_point = gon.get_point(gon.get_next(i, 1));
+				edge.first_polygon = gon;
+				edge.first_index = i;
+				all_edges.add(edge);
+
+				Long key = edge_key(edge.first_point, edge.second_point);
+				List<LabelledEdge> matches = edges_by_points.get(key);
+				if (matches == null)
+				{
+					matches = new ArrayList<LabelledEdge>();
+					edges_by_points.put(key, matches);
+				}
+				matches.add(edge);
+			}
+		}
+
+		HashSet<LabelledEdge> paired = new HashSet<LabelledEdge>();
+		double[] first_normal = new double[3];
+		double[] second_normal = new double[3];
+		double[] inward = new double[3];
+		double[] candidate_inward = new double[3];
+
+		for (LabelledEdge edge: all_edges)
+		{
+			if (paired.contains(edge))
+			{
+				continue;
+			}
+			paired.add(edge);
+			labelled_edges.add(edge);
+
+			// Unit vector along the edge, and the direction from the edge into the first face (normal cross edge, since the face is
+			//  counterclockwise around its outward normal)
+			double edge_x = edge.second_point.x_point - edge.first_point.x_point;
+			double edge_y = edge.second_point.y_point - edge.first_point.y_point;
+			double edge_z = edge.second_point.z_point - edge.first_point.z_point;
+			double edge_length = VectorMath.length(edge_x, edge_y, edge_z);
+			edge_x /= edge_length;
+			edge_y /= edge_length;
+			edge_z /= edge_length;
+
+			edge.first_polygon.calculate_outward_normal(first_normal);
+			VectorMath.cross(first_normal[0], first_normal[1], first_normal[2], edge_x, edge_y, edge_z, inward);
+
+			LabelledEdge partner = null;
+			double partner_angle = 0;
+
+			for (LabelledEdge candidate: edges_by_points.get(edge_key(edge.first_point, edge.second_point)))
+			{
+				// The matching face traverses the edge in the opposite direction
+				if (paired.contains(candidate) || candidate.first_point != edge.second_point)
+				{
+					continue;
+				}
+
+				// Direction from the edge into the candidate face; its edge direction is the reverse of ours
+				candidate.first_polygon.calculate_outward_normal(second_normal);
+				VectorMath.cross(edge_x, edge_y, edge_z, second_normal[0], second_normal[1], second_normal[2], candidate_inward);
+
+				// Angle from the first face to the candidate, turning through the outside (towards the first face's normal)
+				double angle = Math.atan2(VectorMath.dot(candidate_inward, first_normal), VectorMath.dot(candidate_inward, inward));
+				if (angle < 0)
+				{
+					angle += 2 * Math.PI;
+				}
+
+				if (partner == null || angle < partner_angle)
+				{
+					partner = candidate;
+					partner_angle = angle;
+				}
+			}
+
+			if (partner == null)
+			{
+				edge.label = LabelledEdge.BOUNDARY;
+				continue;
+			}
+
+			paired.add(partner);
+			edge.second_polygon = partner.first_polygon;
+
+			// The outside covers more than half a turn around a convex edge
+			if (partner_angle > Math.PI)
+			{
+				edge.label = LabelledEdge.CONVEX;
+			}
+			else
+			{
+				edge.label = LabelledEdge.CONCAVE;
+			}
+		}
+	}
+
+	// Returns a key identifying the edge between two points, which is the same in either direction
+	private Long edge_key(Point first_point, Point second_point)
+	{
+		long low = Math.min(first_point.name, second_point.name);
+		long high = Math.max(first_point.name, second_point.name);
+		return (low << 32) | high;
+	}
+
+	public List<LabelledEdge> get_labelled_edges()
+	{
+		return labelled_edges;
+	}
+
 	public List<Polygon> get_outline_draw_list()
 	{
 		return outline_draw_list;
@@ -0,0 +1,34 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+// DrawingSegment is one visible piece of an edge in a LineDrawing, in normalized screen coordinates (-1 to 1, y up).
+// An occluding edge is directed so that the face doing the occluding is on the right of the segment, as in Huffman-Clowes labelling.
+public class DrawingSegment
+{
+	static final String OCCLUDING = "occluding";
+
+	// The segment ends at a vertex of the scene, or at a T-junction where the edge passes behind a face
+	static final String VERTEX = "vertex";
+	static final String T_JUNCTION = "t-junction";
+
+	double start_x, start_y, end_x, end_y;
+	String label;				// LabelledEdge.CONVEX, CONCAVE or BOUNDARY, or OCCLUDING
+	String start_type, end_type;
+	int start_point, end_point;	// Names of the scene points at the ends of the whole edge, in the same direction as the segment
+}
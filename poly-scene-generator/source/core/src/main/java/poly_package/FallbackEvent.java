@@ -0,0 +1,51 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A Java Flight Recorder event recorded when part of the program has to take a slower or less exact path, such as View drawing in
+//  immediate mode because there are no vertex buffer objects, or Triangulator falling back to a fan.
+@Name("poly_package.Fallback")
+@Label("Fallback")
+@Category({"Polyhedral Scene Generator"})
+@Description("A slower or less exact path was taken")
+public class FallbackEvent extends Event
+{
+	@Label("Component")
+	String component;
+
+	@Label("Reason")
+	String reason;
+
+	// Records the event if it's enabled.  Fallbacks are rare, so building the reason each time costs nothing worth avoiding.
+	public static void emit(String component, String reason)
+	{
+		FallbackEvent event = new FallbackEvent();
+		if (event.isEnabled())
+		{
+			event.component = component;
+			event.reason = reason;
+			event.commit();
+		}
+	}
+}
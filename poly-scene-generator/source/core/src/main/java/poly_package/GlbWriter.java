@@ -0,0 +1,254 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+// This class writes the visible polygons of a scene as a binary glTF 2.0 (.glb) file, which Unity can import directly.
+// Each conglomerate is a separate mesh node with two primitives: the front faces, and the same faces with reversed winding and negated
+//  normals so that the back of each face is drawn too.  Doing this here means Unity doesn't need to duplicate the faces at runtime (as
+//  DoubleFaces.cs does).  Faces are flat shaded, so each face has its own copies of its vertices.
+public class GlbWriter
+{
+	static final int GLB_MAGIC = 0x46546C67;			// "glTF"
+	static final int JSON_CHUNK = 0x4E4F534A;			// "JSON"
+	static final int BIN_CHUNK = 0x004E4942;			// "BIN"
+	static final int FLOAT = 5126;						// Accessor component types
+	static final int UNSIGNED_INT = 5125;
+	static final int ARRAY_BUFFER = 34962;				// Buffer view targets
+	static final int ELEMENT_ARRAY_BUFFER = 34963;
+
+	List<Conglomerate> conglomerates;
+	ByteBuffer binary;
+	StringBuilder buffer_views = new StringBuilder();
+	StringBuilder accessors = new StringBuilder();
+	StringBuilder meshes = new StringBuilder();
+	StringBuilder nodes = new StringBuilder();
+	int buffer_view_count = 0;
+	int accessor_count = 0;
+
+	public GlbWriter(List<Conglomerate> conglomerates)
+	{
+		this.conglomerates = conglomerates;
+	}
+
+	// Writes the scene to a file.
+	public void write(String filename) throws IOException
+	{
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(filename));
+		try
+		{
+			write(output);
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	// Writes the scene to a stream.
+	public void write(OutputStream output) throws IOException
+	{
+		// Work out the size of the binary data first, so it can go in one buffer
+		int binary_size = 0;
+		for (Conglomerate conglo: conglomerates)
+		{
+			int vertex_count = 0;
+			int triangle_count = 0;
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				vertex_count += gon.get_num_points();
+				triangle_count += gon.get_triangles().length / 3;
+			}
+			// Positions, front normals and back normals, then front and back indices
+			binary_size += vertex_count * 12 * 3 + triangle_count * 12 * 2;
+		}
+		binary = ByteBuffer.allocate(binary_size).order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int i = 0; i < conglomerates.size(); i++)
+		{
+			add_conglomerate(i, conglomerates.get(i));
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\"asset\":{\"version\":\"2.0\",\"generator\":\"poly_scene_generator\"},");
+		json.append("\"scene\":0,\"scenes\":[{\"nodes\":[");
+		for (int i = 0; i < conglomerates.size(); i++)
+		{
+			json.append((i > 0) ? "," : "").append(i);
+		}
+		json.append("]}]");
+		if (conglomerates.size() > 0)
+		{
+			json.append(",\"nodes\":[").append(nodes).append("]");
+			json.append(",\"meshes\":[").append(meshes).append("]");
+		}
+		if (binary_size > 0)
+		{
+			json.append(",\"buffers\":[{\"byteLength\":").append(binary_size).append("}]");
+			json.append(",\"bufferViews\":[").append(buffer_views).append("]");
+			json.append(",\"accessors\":[").append(accessors).append("]");
+		}
+		json.append("}");
+
+		// Chunks must be a multiple of 4 bytes long; JSON is padded with spaces (binary data is already a multiple of 4)
+		byte[] json_bytes = json.toString().getBytes("UTF-8");
+		int json_length = (json_bytes.length + 3) / 4 * 4;
+		int total_length = 12 + 8 + json_length + ((binary_size > 0) ? 8 + binary_size : 0);
+
+		ByteBuffer header = ByteBuffer.allocate(12 + 8).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(GLB_MAGIC);
+		header.putInt(2);
+		header.putInt(total_length);
+		header.putInt(json_length);
+		header.putInt(JSON_CHUNK);
+		output.write(header.array());
+		output.write(json_bytes);
+		for (int i = json_bytes.length; i < json_length; i++)
+		{
+			output.write(' ');
+		}
+
+		if (binary_size > 0)
+		{
+			ByteBuffer chunk_header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			chunk_header.putInt(binary_size);
+			chunk_header.putInt(BIN_CHUNK);
+			output.write(chunk_header.array());
+			output.write(binary.array());
+		}
+		output.flush();
+	}
+
+	// Adds the buffers, accessors, mesh and node for one conglomerate.
+	private void add_conglomerate(int index, Conglomerate conglo)
+	{
+		List<Polygon> faces = conglo.get_outline_draw_list();
+		int vertex_count = 0;
+		int triangle_count = 0;
+		for (Polygon gon: faces)
+		{
+			vertex_count += gon.get_num_points();
+			triangle_count += gon.get_triangles().length / 3;
+		}
+
+		// Positions, with their bounds (required by glTF)
+		float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+		float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+		int positions_offset = binary.position();
+		for (Polygon gon: faces)
+		{
+			for (Point current_point: gon.get_points())
+			{
+				float[] position = {(float)current_point.x_point, (float)current_point.y_point, (float)current_point.z_point};
+				for (int axis = 0; axis < 3; axis++)
+				{
+					binary.putFloat(position[axis]);
+					min[axis] = Math.min(min[axis], position[axis]);
+					max[axis] = Math.max(max[axis], position[axis]);
+				}
+			}
+		}
+		int positions = add_accessor(positions_offset, vertex_count, "VEC3", FLOAT, ARRAY_BUFFER, min, max);
+
+		// Outward normals for the front faces, and the reverse for the back faces
+		double[] normal = new double[3];
+		int front_normals = put_normals(faces, normal, 1, vertex_count);
+		int back_normals = put_normals(faces, normal, -1, vertex_count);
+
+		// The faces are the merged outlines, split up by Triangulator; the back faces go the other way around
+		int front_indices = put_indices(faces, false, triangle_count);
+		int back_indices = put_indices(faces, true, triangle_count);
+
+		if (index > 0)
+		{
+			meshes.append(",");
+			nodes.append(",");
+		}
+		meshes.append("{\"name\":\"conglomerate").append(conglo.name).append("\",\"primitives\":[");
+		meshes.append("{\"attributes\":{\"POSITION\":").append(positions).append(",\"NORMAL\":").append(front_normals);
+		meshes.append("},\"indices\":").append(front_indices).append("},");
+		meshes.append("{\"attributes\":{\"POSITION\":").append(positions).append(",\"NORMAL\":").append(back_normals);
+		meshes.append("},\"indices\":").append(back_indices).append("}]}");
+		nodes.append("{\"name\":\"conglomerate").append(conglo.name).append("\",\"mesh\":").append(index).append("}");
+	}
+
+	private int put_normals(List<Polygon> faces, double[] normal, int direction, int vertex_count)
+	{
+		int offset = binary.position();
+		for (Polygon gon: faces)
+		{
+			gon.calculate_outward_normal(normal);
+			for (int i = 0; i < gon.get_num_points(); i++)
+			{
+				binary.putFloat((float)(direction * normal[0]));
+				binary.putFloat((float)(direction * normal[1]));
+				binary.putFloat((float)(direction * normal[2]));
+			}
+		}
+		return add_accessor(offset, vertex_count, "VEC3", FLOAT, ARRAY_BUFFER, null, null);
+	}
+
+	private int put_indices(List<Polygon> faces, boolean reverse, int triangle_count)
+	{
+		int offset = binary.position();
+		int first_vertex = 0;
+		for (Polygon gon: faces)
+		{
+			int[] gon_triangles = gon.get_triangles();
+			for (int i = 0; i < gon_triangles.length; i += 3)
+			{
+				binary.putInt(first_vertex + gon_triangles[i]);
+				binary.putInt(first_vertex + gon_triangles[reverse ? i + 2 : i + 1]);
+				binary.putInt(first_vertex + gon_triangles[reverse ? i + 1 : i + 2]);
+			}
+			first_vertex += gon.get_num_points();
+		}
+		return add_accessor(offset, triangle_count * 3, "SCALAR", UNSIGNED_INT, ELEMENT_ARRAY_BUFFER, null, null);
+	}
+
+	// Adds a buffer view covering the data written since 'offset' and an accessor for it, and returns the accessor's index.
+	private int add_accessor(int offset, int count, String type, int component_type, int target, float[] min, float[] max)
+	{
+		if (buffer_view_count > 0)
+		{
+			buffer_views.append(",");
+			accessors.append(",");
+		}
+		buffer_views.append("{\"buffer\":0,\"byteOffset\":").append(offset).append(",\"byteLength\":")
+					.append(binary.position() - offset).append(",\"target\":").append(target).append("}");
+
+		accessors.append("{\"bufferView\":").append(buffer_view_count).append(",\"componentType\":").append(component_type)
+					.append(",\"count\":").append(count).append(",\"type\":\"").append(type).append("\"");
+		if (min != null)
+		{
+			accessors.append(",\"min\":[").append(min[0]).append(",").append(min[1]).append(",").append(min[2]).append("]");
+			accessors.append(",\"max\":[").append(max[0]).append(",").append(max[1]).append(",").append(max[2]).append("]");
+		}
+		accessors.append("}");
+
+		buffer_view_count++;
+		return accessor_count++;
+	}
+}
@@ -0,0 +1,464 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// This class produces labelled line drawings of a finished scene: the edges a camera actually sees, labelled convex, concave or
+//  occluding, and split where they pass behind a face (T-junctions).  It needs no graphics hardware, and isn't modified after it's
+//  constructed, so any number of threads can draw views of the same scene at once.
+// The edges are those of the conglomerates' outline polygons, with the labels from Conglomerate.label_edges().  The faces which can
+//  hide them are the convex polygons of the draw lists, arranged in a BSPNode tree built from the scene's planes.
+public class HiddenLineEngine
+{
+	static final double FIELD_OF_VIEW = 50.0;		// In degrees, in the y direction; the same perspective as View.reshape()
+	static final double EPSILON = 1e-9;
+
+	BSPNode root;
+
+	// Every point of the scene used by an edge or a face; a point's index in this list is used to look up its projection
+	List<Point> points = new ArrayList<Point>();
+	HashMap<Point, Integer> point_indices = new HashMap<Point, Integer>();
+	HashMap<Polygon, int[]> face_points = new HashMap<Polygon, int[]>();	// The point indices of each face which can hide edges
+
+	List<LabelledEdge> edges = new ArrayList<LabelledEdge>();
+	HashMap<Polygon, double[]> outward_normals = new HashMap<Polygon, double[]>();	// For the outline polygons on either side of each edge
+
+	public HiddenLineEngine(List<Conglomerate> conglomerates)
+	{
+		List<Polygon> faces = new ArrayList<Polygon>();
+
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_draw_list())
+			{
+				faces.add(gon);
+				int[] indices = new int[gon.get_num_points()];
+				for (int i = 0; i < indices.length; i++)
+				{
+					indices[i] = index_of(gon.get_point(i));
+				}
+				face_points.put(gon, indices);
+			}
+
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				double[] normal = new double[3];
+				gon.calculate_outward_normal(normal);
+				outward_normals.put(gon, normal);
+			}
+
+			for (LabelledEdge edge: conglo.get_labelled_edges())
+			{
+				index_of(edge.first_point);
+				index_of(edge.second_point);
+				edges.add(edge);
+			}
+		}
+
+		root = BSPNode.build(faces);
+	}
+
+	// Returns the index of a point in 'points', adding it if it isn't there yet.
+	private int index_of(Point the_point)
+	{
+		Integer index = point_indices.get(the_point);
+		if (index == null)
+		{
+			index = points.size();
+			points.add(the_point);
+			point_indices.put(the_point, index);
+		}
+		return index;
+	}
+
+	// Draws the scene as seen by a camera whose position is given by the quaternion (as in View), with the given aspect ratio
+	//  (width / height).
+	public LineDrawing draw(Quaternion camera, double aspect)
+	{
+		LineDrawing drawing = new LineDrawing();
+		double[][] matrix = camera.get_rotation_matrix();
+
+		// The matrix maps the model into camera coordinates, where the eye is at the origin.  Its inverse (the transposed rotation,
+		//  applied to the negated translation) gives the eye's position in the model.
+		double eye_x = -(matrix[0][0] * matrix[0][3] + matrix[1][0] * matrix[1][3] + matrix[2][0] * matrix[2][3]);
+		double eye_y = -(matrix[0][1] * matrix[0][3] + matrix[1][1] * matrix[1][3] + matrix[2][1] * matrix[2][3]);
+		double eye_z = -(matrix[0][2] * matrix[0][3] + matrix[1][2] * matrix[1][3] + matrix[2][2] * matrix[2][3]);
+
+		// Project every point onto the screen once.  The whole scene is within the unit sphere, well in front of the camera.
+		double focal_length = 1 / Math.tan(Math.toRadians(FIELD_OF_VIEW) / 2);
+		double[] screen_x = new double[points.size()];
+		double[] screen_y = new double[points.size()];
+		for (int i = 0; i < points.size(); i++)
+		{
+			Point current = points.get(i);
+			double view_x = matrix[0][0] * current.x_point + matrix[0][1] * current.y_point + matrix[0][2] * current.z_point + matrix[0][3];
+			double view_y = matrix[1][0] * current.x_point + matrix[1][1] * current.y_point + matrix[1][2] * current.z_point + matrix[1][3];
+			double view_z = matrix[2][0] * current.x_point + matrix[2][1] * current.y_point + matrix[2][2] * current.z_point + matrix[2][3];
+			screen_x[i] = focal_length * view_x / -view_z / aspect;
+			screen_y[i] = focal_length * view_y / -view_z;
+		}
+
+		List<Polygon> occluders = new ArrayList<Polygon>();
+		List<double[]> hidden = new ArrayList<double[]>();
+		double[] interval = new double[2];
+
+		for (LabelledEdge edge: edges)
+		{
+			Point first = edge.first_point;
+			Point second = edge.second_point;
+
+			// Work out which of the faces on either side of the edge face the camera
+			double[] first_normal = outward_normals.get(edge.first_polygon);
+			boolean first_visible = faces_eye(first_normal, first, eye_x, eye_y, eye_z);
+			double[] second_normal = null;
+			boolean second_visible = false;
+			if (edge.second_polygon != null)
+			{
+				second_normal = outward_normals.get(edge.second_polygon);
+				second_visible = faces_eye(second_normal, first, eye_x, eye_y, eye_z);
+			}
+
+			String label = edge.label;
+			if (edge.second_polygon != null && !first_visible && !second_visible)
+			{
+				// The edge is on the far side of its conglomerate
+				continue;
+			}
+			else if (edge.second_polygon != null && first_visible != second_visible)
+			{
+				// Where only one face can be seen, a convex edge is the outline of the conglomerate against what's behind it, and a
+				//  concave edge is hidden by the conglomerate itself.
+				if (!label.equals(LabelledEdge.CONVEX))
+				{
+					continue;
+				}
+				label = DrawingSegment.OCCLUDING;
+			}
+
+			// Collect the parts of the edge hidden by faces between it and the eye
+			int first_index = point_indices.get(first);
+			int second_index = point_indices.get(second);
+			occluders.clear();
+			hidden.clear();
+			if (root != null)
+			{
+				root.find_occluders(eye_x, eye_y, eye_z, (first.x_point + second.x_point) / 2, (first.y_point + second.y_point) / 2,
+									(first.z_point + second.z_point) / 2, occluders);
+			}
+			for (Polygon face: occluders)
+			{
+				if (clip_to_face(face_points.get(face), screen_x, screen_y, first_index, second_index, interval))
+				{
+					hidden.add(new double[] {interval[0], interval[1]});
+				}
+			}
+
+			// For an occluding edge, the segments are directed so that the face doing the occluding is on the right
+			boolean reverse = false;
+			if (label.equals(DrawingSegment.OCCLUDING))
+			{
+				reverse = occluding_face_is_left(edge, first_visible ? first_normal : second_normal, first_visible, matrix,
+													focal_length, aspect, screen_x[first_index], screen_y[first_index],
+													screen_x[second_index], screen_y[second_index]);
+			}
+
+			// The visible parts of the edge are the gaps between the hidden intervals
+			Collections.sort(hidden, new Comparator<double[]>()
+			{
+				public int compare(double[] a, double[] b)
+				{
+					return Double.compare(a[0], b[0]);
+				}
+			});
+
+			double visible_start = 0;
+			for (double[] hidden_interval: hidden)
+			{
+				if (hidden_interval[0] > visible_start + EPSILON)
+				{
+					add_segment(drawing, edge, label, reverse, screen_x, screen_y, first_index, second_index,
+								visible_start, hidden_interval[0]);
+				}
+				visible_start = Math.max(visible_start, hidden_interval[1]);
+			}
+			if (visible_start < 1 - EPSILON)
+			{
+				add_segment(drawing, edge, label, reverse, screen_x, screen_y, first_index, second_index, visible_start, 1);
+			}
+		}
+
+		return drawing;
+	}
+
+	// Draws the views from each of the cameras, using the given number of threads, and returns them in the same order.  If a view
+	//  fails, the rest are cancelled and an IllegalStateException is thrown with the view's exception as its cause.
+	public List<LineDrawing> draw_all(List<Quaternion> cameras, final double aspect, int threads)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<LineDrawing>> futures = new ArrayList<Future<LineDrawing>>();
+		List<LineDrawing> drawings = new ArrayList<LineDrawing>();
+
+		for (final Quaternion camera: cameras)
+		{
+			futures.add(executor.submit(new Callable<LineDrawing>()
+			{
+				public LineDrawing call()
+				{
+					return draw(camera, aspect);
+				}
+			}));
+		}
+
+		try
+		{
+			for (Future<LineDrawing> future: futures)
+			{
+				drawings.add(future.get());
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("HiddenLineEngine.draw_all() was interrupted", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			executor.shutdownNow();		// The other views are no use without this one
+			throw new IllegalStateException("HiddenLineEngine.draw_all() failed", ex.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		return drawings;
+	}
+
+	// Returns true if the eye is on the outside of the face with the given outward normal and point.
+	private boolean faces_eye(double[] normal, Point the_point, double eye_x, double eye_y, double eye_z)
+	{
+		return normal[0] * (eye_x - the_point.x_point) + normal[1] * (eye_y - the_point.y_point)
+				+ normal[2] * (eye_z - the_point.z_point) > 0;
+	}
+
+	// Finds the part of the projected edge from first_index to second_index which falls inside the projection of a convex face.
+	// If there is one, stores its start and end (as fractions of the way along the edge) in 'interval' and returns true.
+	// This clips the edge against each side of the face in turn (Cyrus-Beck).  Points exactly on the face's outline don't count as
+	//  inside, so faces which only touch the edge don't hide it.
+	private boolean clip_to_face(int[] face, double[] screen_x, double[] screen_y, int first_index, int second_index, double[] interval)
+	{
+		double start_x = screen_x[first_index];
+		double start_y = screen_y[first_index];
+		double delta_x = screen_x[second_index] - start_x;
+		double delta_y = screen_y[second_index] - start_y;
+
+		// The projected face may be clockwise or counterclockwise, depending on which side of it the eye is on
+		double area = 0;
+		for (int i = 0; i < face.length; i++)
+		{
+			int next = face[(i + 1) % face.length];
+			area += screen_x[face[i]] * screen_y[next] - screen_x[next] * screen_y[face[i]];
+		}
+		if (Math.abs(area) < EPSILON)
+		{
+			return false;		// The face is seen edge-on
+		}
+		double orientation = (area > 0) ? 1 : -1;
+
+		double t_start = 0;
+		double t_end = 1;
+		for (int i = 0; i < face.length; i++)
+		{
+			int current = face[i];
+			int next = face[(i + 1) % face.length];
+			double side_x = screen_x[next] - screen_x[current];
+			double side_y = screen_y[next] - screen_y[current];
+
+			// How far inside this side the edge is at its start, and how that changes along the edge
+			double inside = orientation * (side_x * (start_y - screen_y[current]) - side_y * (start_x - screen_x[current]));
+			double change = orientation * (side_x * delta_y - side_y * delta_x);
+
+			if (Math.abs(change) < EPSILON)
+			{
+				if (inside <= EPSILON)
+				{
+					return false;
+				}
+				continue;
+			}
+
+			double t = -inside / change;
+			if (change > 0)
+			{
+				t_start = Math.max(t_start, t);
+			}
+			else
+			{
+				t_end = Math.min(t_end, t);
+			}
+
+			if (t_end - t_start <= EPSILON)
+			{
+				return false;
+			}
+		}
+
+		interval[0] = t_start;
+		interval[1] = t_end;
+		return true;
+	}
+
+	// Returns true if the visible face of an occluding edge projects to the left of the edge, when going from its first point to its
+	//  second.  The direction into the face is its outward normal crossed with the edge, taken the way the face goes around it.
+	private boolean occluding_face_is_left(LabelledEdge edge, double[] normal, boolean first_is_visible, double[][] matrix,
+											double focal_length, double aspect, double start_x, double start_y, double end_x, double end_y)
+	{
+		Point first = edge.first_point;
+		Point second = edge.second_point;
+		double direction = first_is_visible ? 1 : -1;
+		double edge_x = direction * (second.x_point - first.x_point);
+		double edge_y = direction * (second.y_point - first.y_point);
+		double edge_z = direction * (second.z_point - first.z_point);
+
+		// A point just inside the face, next to the middle of the edge
+		double step = 1e-3;
+		double x = (first.x_point + second.x_point) / 2 + step * (normal[1] * edge_z - normal[2] * edge_y);
+		double y = (first.y_point + second.y_point) / 2 + step * (normal[2] * edge_x - normal[0] * edge_z);
+		double z = (first.z_point + second.z_point) / 2 + step * (normal[0] * edge_y - normal[1] * edge_x);
+
+		double view_x = matrix[0][0] * x + matrix[0][1] * y + matrix[0][2] * z + matrix[0][3];
+		double view_y = matrix[1][0] * x + matrix[1][1] * y + matrix[1][2] * z + matrix[1][3];
+		double view_z = matrix[2][0] * x + matrix[2][1] * y + matrix[2][2] * z + matrix[2][3];
+		double face_x = focal_length * view_x / -view_z / aspect;
+		double face_y = focal_length * view_y / -view_z;
+
+		return (end_x - start_x) * (face_y - start_y) - (end_y - start_y) * (face_x - start_x) > 0;
+	}
+
+	// Adds the part of an edge between fractions t_start and t_end of the way along it to the drawing.
+	private void add_segment(LineDrawing drawing, LabelledEdge edge, String label, boolean reverse, double[] screen_x,
+								double[] screen_y, int first_index, int second_index, double t_start, double t_end)
+	{
+		DrawingSegment segment = new DrawingSegment();
+		double delta_x = screen_x[second_index] - screen_x[first_index];
+		double delta_y = screen_y[second_index] - screen_y[first_index];
+		double from_x = screen_x[first_index] + t_start * delta_x;
+		double from_y = screen_y[first_index] + t_start * delta_y;
+		double to_x = screen_x[first_index] + t_end * delta_x;
+		double to_y = screen_y[first_index] + t_end * delta_y;
+		String from_type = (t_start <= EPSILON) ? DrawingSegment.VERTEX : DrawingSegment.T_JUNCTION;
+		String to_type = (t_end >= 1 - EPSILON) ? DrawingSegment.VERTEX : DrawingSegment.T_JUNCTION;
+
+		segment.label = label;
+		if (!reverse)
+		{
+			segment.start_x = from_x;
+			segment.start_y = from_y;
+			segment.end_x = to_x;
+			segment.end_y = to_y;
+			segment.start_type = from_type;
+			segment.end_type = to_type;
+			segment.start_point = edge.first_point.name;
+			segment.end_point = edge.second_point.name;
+		}
+		else
+		{
+			segment.start_x = to_x;
+			segment.start_y = to_y;
+			segment.end_x = from_x;
+			segment.end_y = from_y;
+			segment.start_type = to_type;
+			segment.end_type = from_type;
+			segment.start_point = edge.second_point.name;
+			segment.end_point = edge.first_point.name;
+		}
+		drawing.segments.add(segment);
+	}
+
+	// Generates a scene and writes line drawings of it from random viewpoints.
+	// Parameters: number of planes, probability each polyhedron is visible, number of views, output filename prefix, and optionally
+	//  the number of threads.  Files are written as <prefix>.obj and <prefix>-view<n>.json; use a prefix ending in .svg for SVG.
+	public static void main(String[] args)
+	{
+		if (args.length < 4)
+		{
+			System.out.println("Usage: HiddenLineEngine planes probability views prefix[.svg] [threads]");
+			return;
+		}
+
+		int number_of_planes = Integer.parseInt(args[0]);
+		double poly_probability = Double.parseDouble(args[1]);
+		int number_of_views = Integer.parseInt(args[2]);
+		String prefix = args[3];
+		String extension = ".json";
+		if (prefix.endsWith(".svg"))
+		{
+			prefix = prefix.substring(0, prefix.length() - 4);
+			extension = ".svg";
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 4)
+		{
+			threads = Integer.parseInt(args[4]);
+		}
+
+		Model my_model = new Model();
+		my_model.create_scene(number_of_planes, poly_probability, prefix + ".obj");
+
+		HiddenLineEngine engine = new HiddenLineEngine(my_model.get_conglomerates());
+		Random random = new Random();
+		List<Quaternion> cameras = new ArrayList<Quaternion>();
+		for (int i = 0; i < number_of_views; i++)
+		{
+			cameras.add(Quaternion.random_rotation(random));
+		}
+
+		long start_time = System.nanoTime();
+		List<LineDrawing> drawings;
+		try
+		{
+			drawings = engine.draw_all(cameras, 1.0, threads);
+		}
+		catch (IllegalStateException ex)
+		{
+			System.out.println("ERROR: " + ex.getMessage() + ": " + ex.getCause());
+			System.exit(-1);
+			return;
+		}
+		double seconds = (System.nanoTime() - start_time) / 1e9;
+		System.out.println("Drew " + number_of_views + " views in " + seconds + " s (" + (int)(number_of_views * 60 / seconds)
+							+ " views per minute)");
+
+		for (int i = 0; i < drawings.size(); i++)
+		{
+			drawings.get(i).output_to_file(prefix + "-view" + i + extension);
+		}
+	}
+}
@@ -0,0 +1,354 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// HttpSceneServer generates scenes on request over HTTP, so that other tools (eg in Unity or Python) can ask for a scene instead of
+//  reading files written beforehand.  POST /scene with a JSON body such as {"planes": 15, "p": 0.5, "seed": 42, "format": "glb"}, or
+//  GET /scene?planes=15&p=0.5&format=obj, returns the scene as .obj, .glb or the binary SceneMesh format ("mesh"), written straight to
+//  the connection as it's produced.  The seed is optional; the one used is sent back in the X-Scene-Seed header.
+// Generation runs on SceneService's bounded pool.  When its queue is full the request gets 503 with Retry-After, and when it isn't
+//  finished within the timeout it gets 504.  The connections themselves are handled on virtual threads where the JVM has them (Java 21
+//  and later), found by reflection so the program still runs on older JVMs, which use a pool of ordinary threads that grows as needed.
+public class HttpSceneServer
+{
+	static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:\"([^\"]*)\"|([^,}\\s]+))");
+	static final int MAX_BODY_BYTES = 4096;
+
+	SceneService service;
+	HttpServer server;
+	long timeout_ms;
+	int max_planes;
+
+	public HttpSceneServer(String host, int port, SceneService service, long timeout_ms, int max_planes) throws IOException
+	{
+		this.service = service;
+		this.timeout_ms = timeout_ms;
+		this.max_planes = max_planes;
+		server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+		server.setExecutor(connection_executor());
+		server.createContext("/scene", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				handle_scene(exchange);
+			}
+		});
+		server.createContext("/status", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				send_text(exchange, 200, "{\"queued\": " + service.get_queue_length() + ", \"generating\": "
+											+ service.get_active_count() + "}", "application/json");
+			}
+		});
+	}
+
+	// Returns an executor which starts a virtual thread per task if the JVM has them, or else a cached pool of daemon threads.
+	static Executor connection_executor()
+	{
+		try
+		{
+			return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException ex)
+		{
+			return Executors.newCachedThreadPool(new ThreadFactory()
+			{
+				public Thread newThread(Runnable task)
+				{
+					Thread thread = new Thread(task, "HTTP connection");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	public void start()
+	{
+		server.start();
+	}
+
+	public void stop()
+	{
+		server.stop(0);
+		service.shutdown();
+	}
+
+	void handle_scene(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			Map<String, String> parameters;
+			if (exchange.getRequestMethod().equals("POST"))
+			{
+				String body = read_body(exchange.getRequestBody());
+				if (body == null)
+				{
+					send_text(exchange, 413, "The request body is longer than " + MAX_BODY_BYTES + " bytes", "text/plain");
+					return;
+				}
+				parameters = parse_json(body);
+			}
+			else if (exchange.getRequestMethod().equals("GET"))
+			{
+				parameters = parse_query(exchange.getRequestURI().getRawQuery());
+			}
+			else
+			{
+				send_text(exchange, 405, "Use GET or POST", "text/plain");
+				return;
+			}
+
+			int number_of_planes;
+			double poly_probability;
+			Long seed;
+			String format;
+			try
+			{
+				number_of_planes = Integer.parseInt(get(parameters, "planes", "10"));
+				poly_probability = Double.parseDouble(get(parameters, "p", "0.5"));
+				seed = parameters.containsKey("seed") ? Long.valueOf(parameters.get("seed")) : null;
+				format = get(parameters, "format", "obj");
+			}
+			catch (NumberFormatException ex)
+			{
+				send_text(exchange, 400, "Bad parameter: " + ex.getMessage(), "text/plain");
+				return;
+			}
+			if (number_of_planes < 1 || number_of_planes > max_planes || poly_probability < 0 || poly_probability > 1
+					|| !(format.equals("obj") || format.equals("glb") || format.equals("mesh")))
+			{
+				send_text(exchange, 400, "planes must be from 1 to " + max_planes + ", p from 0 to 1, and format obj, glb or mesh",
+							"text/plain");
+				return;
+			}
+
+			Model model;
+			try
+			{
+				model = service.generate(number_of_planes, poly_probability, seed, timeout_ms);
+			}
+			catch (RejectedExecutionException ex)
+			{
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				send_text(exchange, 503, "Too many scenes queued; try again shortly", "text/plain");
+				return;
+			}
+			catch (TimeoutException ex)
+			{
+				send_text(exchange, 504, "The scene wasn't finished within " + timeout_ms + " ms", "text/plain");
+				return;
+			}
+			catch (ExecutionException ex)
+			{
+				send_text(exchange, 500, "Generation failed: " + ex.getCause(), "text/plain");
+				return;
+			}
+			catch (InterruptedException ex)
+			{
+				send_text(exchange, 503, "The server is shutting down", "text/plain");
+				return;
+			}
+
+			send_scene(exchange, model, format);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	// Writes the scene to the connection as it's converted, so it's never held in memory as a whole file.  The mesh format's size
+	//  is known beforehand; the others are sent in chunks.
+	void send_scene(HttpExchange exchange, Model model, String format) throws IOException
+	{
+		exchange.getResponseHeaders().set("X-Scene-Seed", Long.toString(model.seed));
+		exchange.getResponseHeaders().set("X-Scene-Conglomerates", Integer.toString(model.get_conglomerates().size()));
+		if (format.equals("mesh"))
+		{
+			SceneMesh mesh = new SceneMesh(model.get_conglomerates());
+			exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+			exchange.sendResponseHeaders(200, mesh.get_binary_size());
+			OutputStream output = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+			mesh.write_binary(output);
+			output.flush();
+		}
+		else if (format.equals("glb"))
+		{
+			exchange.getResponseHeaders().set("Content-Type", "model/gltf-binary");
+			exchange.sendResponseHeaders(200, 0);
+			OutputStream output = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+			new GlbWriter(model.get_conglomerates()).write(output);
+			output.flush();
+		}
+		else
+		{
+			exchange.getResponseHeaders().set("Content-Type", "model/obj; charset=utf-8");
+			exchange.sendResponseHeaders(200, 0);
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024),
+																			StandardCharsets.UTF_8));
+			Model.write_obj(model.get_conglomerates(), writer);
+			writer.flush();
+		}
+	}
+
+	static void send_text(HttpExchange exchange, int status, String text, String content_type) throws IOException
+	{
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", content_type + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	// Returns the request body as text, or null if it's longer than MAX_BODY_BYTES, which is far more than a request's fields need.
+	static String read_body(InputStream input) throws IOException
+	{
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int count;
+		while ((count = input.read(buffer)) > 0)
+		{
+			body.write(buffer, 0, count);
+			if (body.size() > MAX_BODY_BYTES)
+			{
+				return null;
+			}
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	// Reads the fields of a flat JSON object, which is all a request needs, as strings.
+	static Map<String, String> parse_json(String json)
+	{
+		Map<String, String> fields = new HashMap<String, String>();
+		Matcher matcher = JSON_FIELD.matcher(json);
+		while (matcher.find())
+		{
+			String value = (matcher.group(2) != null) ? matcher.group(2) : matcher.group(3);
+			if (!value.equals("null"))
+			{
+				fields.put(matcher.group(1), value);
+			}
+		}
+		return fields;
+	}
+
+	static Map<String, String> parse_query(String query) throws IOException
+	{
+		Map<String, String> fields = new HashMap<String, String>();
+		if (query == null)
+		{
+			return fields;
+		}
+		for (String field: query.split("&"))
+		{
+			int equals = field.indexOf('=');
+			if (equals > 0)
+			{
+				fields.put(URLDecoder.decode(field.substring(0, equals), "UTF-8"), URLDecoder.decode(field.substring(equals + 1), "UTF-8"));
+			}
+		}
+		return fields;
+	}
+
+	static String get(Map<String, String> parameters, String name, String default_value)
+	{
+		return parameters.containsKey(name) ? parameters.get(name) : default_value;
+	}
+
+	// Usage: HttpSceneServer [--host host] [--port port] [--threads count] [--queue length] [--timeout ms] [--max-planes count]
+	public static void main(String[] args)
+	{
+		String host = "127.0.0.1";
+		int port = 8080;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue_length = 256;
+		long timeout_ms = 10000;
+		int max_planes = 60;
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("--host"))
+			{
+				host = args[i + 1];
+			}
+			else if (args[i].equals("--port"))
+			{
+				port = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--threads"))
+			{
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--queue"))
+			{
+				queue_length = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--timeout"))
+			{
+				timeout_ms = Long.parseLong(args[i + 1]);
+			}
+			else if (args[i].equals("--max-planes"))
+			{
+				max_planes = Integer.parseInt(args[i + 1]);
+			}
+			else
+			{
+				System.out.println("Usage: HttpSceneServer [--host host] [--port port] [--threads count] [--queue length] "
+									+ "[--timeout ms] [--max-planes count]");
+				return;
+			}
+		}
+
+		try
+		{
+			HttpSceneServer server = new HttpSceneServer(host, port, new SceneService(threads, queue_length), timeout_ms, max_planes);
+			server.start();
+			System.out.println("Serving scenes on http://" + host + ":" + port + "/scene with " + threads + " threads");
+		}
+		catch (IOException ex)
+		{
+			System.out.println("ERROR starting HttpSceneServer; " + ex);
+		}
+	}
+}
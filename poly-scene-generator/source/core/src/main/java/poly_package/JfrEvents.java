@@ -0,0 +1,44 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import jdk.jfr.FlightRecorder;
+
+// JfrEvents decides whether the Java Flight Recorder events (SceneEvent and the others) are used.  Loading an event class starts up
+//  JFR, which takes a few hundred milliseconds, so none of them is touched until a recording has been started, either from the
+//  command line with -XX:StartFlightRecording or later with jcmd; scenes started after that are recorded.
+final class JfrEvents
+{
+	private JfrEvents()
+	{
+	}
+
+	static boolean recording()
+	{
+		return FlightRecorder.isInitialized();
+	}
+
+	// Records that 'component' has fallen back to a simpler method, if a recording is running.
+	static void fallback(String component, String reason)
+	{
+		if (recording())
+		{
+			FallbackEvent.emit(component, reason);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+// LabelledEdge holds one edge of a conglomerate's outline polygons and its label.  The edge runs from first_point to
+//  second_point in the (counterclockwise) order of first_polygon; second_polygon is the face on the other side of the edge,
+//  or null if no such face was found.
+public class LabelledEdge
+{
+	static final String CONVEX = "convex";
+	static final String CONCAVE = "concave";
+	static final String BOUNDARY = "boundary";
+
+	Point first_point, second_point;
+	Polygon first_polygon, second_polygon;
+	int first_index;		// The index of first_point within first_polygon
+	String label = BOUNDARY;
+
+	public String get_label()
+	{
+		return label;
+	}
+}
@@ -0,0 +1,95 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+// This class holds the labelled line drawing of a scene from one viewpoint, as produced by HiddenLineEngine, and writes it as JSON
+//  or SVG.
+public class LineDrawing
+{
+	List<DrawingSegment> segments = new ArrayList<DrawingSegment>();
+
+	public List<DrawingSegment> get_segments()
+	{
+		return segments;
+	}
+
+	// Writes the drawing as a JSON object with a list of segments.
+	public void write_json(PrintWriter writer)
+	{
+		writer.println("{\"segments\": [");
+		for (int i = 0; i < segments.size(); i++)
+		{
+			DrawingSegment segment = segments.get(i);
+			writer.print("  {\"x1\": " + segment.start_x + ", \"y1\": " + segment.start_y
+							+ ", \"x2\": " + segment.end_x + ", \"y2\": " + segment.end_y
+							+ ", \"label\": \"" + segment.label + "\", \"start\": \"" + segment.start_type
+							+ "\", \"end\": \"" + segment.end_type
+							+ "\", \"start_point\": " + segment.start_point + ", \"end_point\": " + segment.end_point + "}");
+			writer.println((i < segments.size() - 1) ? "," : "");
+		}
+		writer.println("]}");
+	}
+
+	// Writes the drawing as a square SVG image 'size' pixels wide, with each label drawn in its own colour.
+	public void write_svg(PrintWriter writer, int size)
+	{
+		writer.println("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size + "\">");
+		writer.println("<style>line {stroke-width: 1.5} .convex {stroke: #c00000} .concave {stroke: #008000} "
+						+ ".occluding {stroke: #000000} .boundary {stroke: #808080}</style>");
+		writer.println("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>");
+		for (DrawingSegment segment: segments)
+		{
+			// Screen coordinates have y up, SVG has y down
+			writer.println("<line class=\"" + segment.label + "\" x1=\"" + (segment.start_x + 1) / 2 * size
+							+ "\" y1=\"" + (1 - segment.start_y) / 2 * size + "\" x2=\"" + (segment.end_x + 1) / 2 * size
+							+ "\" y2=\"" + (1 - segment.end_y) / 2 * size + "\"/>");
+		}
+		writer.println("</svg>");
+	}
+
+	// Writes the drawing to a file, as SVG if the filename ends with .svg and JSON otherwise.
+	public void output_to_file(String filename)
+	{
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(filename, "UTF-8");
+			if (filename.endsWith(".svg"))
+			{
+				write_svg(writer, 800);
+			}
+			else
+			{
+				write_json(writer);
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+}
@@ -0,0 +1,253 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class Main 
+{
+	// Start program and handle command line parameters, if any
+	public static void main(String[] args) 
+	{		
+		int number_of_planes;
+		double poly_probability;
+		String output_filename = "";
+		String metrics_filename = null;
+		String seed = null;
+		String cache_directory = null;
+		
+		// "--metrics file" (anywhere on the command line) appends the scene's metrics to a file as a line of JSON; "-" prints them.
+		// "--seed seed" generates the scene with that seed, eg to repeat a scene from its metrics.
+		// "--cache directory" copies a seeded scene from a SceneCache if it's there, and adds the scene to it otherwise.
+		List<String> arguments = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--metrics") && i + 1 < args.length)
+			{
+				metrics_filename = args[i + 1];
+				i++;
+			}
+			else if (args[i].equals("--seed") && i + 1 < args.length)
+			{
+				seed = args[i + 1];
+				i++;
+			}
+			else if (args[i].equals("--cache") && i + 1 < args.length)
+			{
+				cache_directory = args[i + 1];
+				i++;
+			}
+			else
+			{
+				arguments.add(args[i]);
+			}
+		}
+		args = arguments.toArray(new String[arguments.size()]);
+
+		// "browse [directory]" opens the viewer on the .obj files saved in a directory instead of generating a scene
+		if (args.length > 0 && args[0].equals("browse"))
+		{
+			String directory = (args.length > 1) ? args[1] : ".";
+			start_viewer("browse", new Class<?>[] {String.class}, new Object[] {directory});
+			return;
+		}
+
+		// Get number of planes
+		if (args.length > 0 && isPositiveInteger(args[0]))
+		{
+			number_of_planes = Integer.parseInt(args[0]);
+		}
+		else
+		{
+			number_of_planes = 10;			
+		}
+		
+		// Get probability (as a positive real) of a given polygon being drawn
+		if (args.length > 1 && isDouble(args[1]))
+		{
+			poly_probability = Double.parseDouble(args[1]);
+
+			if (poly_probability < 0 || poly_probability > 1)
+			{
+				poly_probability = 0.5;
+			}
+		}
+		else
+		{
+			poly_probability = 0.5;
+		}
+		
+		output_filename = "";
+		if (args.length > 2)
+		{
+			output_filename = args[2];
+
+			int filename_length = output_filename.length();
+    		if (filename_length < 5 || !(output_filename.endsWith(".obj") || output_filename.endsWith(".glb")))
+    		{
+    			output_filename = output_filename.concat(".obj");
+    		}
+		}
+		else
+		{
+			Date date = new Date();
+			SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
+			output_filename = dateFormat.format(date) + ".obj";
+		}
+		
+		// Create Model and View_Controller objects
+		Model my_model = (seed != null) ? new Model(Long.parseLong(seed)) : new Model();
+
+		// MODIFICATION TO THE ORIGINAL CODE
+		// If there are command line args, do not launch the view and instead just call
+		// create scene directly with the parameters from the command line
+		if(args.length > 0){
+
+			SceneCache cache = null;
+			if (cache_directory != null && seed == null)
+			{
+				System.out.println("--cache is ignored without --seed, since a scene is only cached under its seed");
+			}
+			else if (cache_directory != null)
+			{
+				try
+				{
+					cache = new SceneCache(Paths.get(cache_directory), SceneCache.DEFAULT_MAX_BYTES);
+				}
+				catch (IOException ex)
+				{
+					System.out.println("ERROR opening the scene cache; " + ex);
+				}
+			}
+			if (cache != null)
+			{
+				if (cache.is_failure(my_model.seed, number_of_planes, poly_probability, SceneCache.format(output_filename)))
+				{
+					System.out.println("This scene is known from the cache to fail; try another seed");
+					return;
+				}
+				if (cache.fetch(my_model.seed, number_of_planes, poly_probability, output_filename))
+				{
+					return;
+				}
+			}
+
+			if (metrics_filename != null)
+			{
+				SceneMetrics.enable_allocation_counter();
+			}
+			try
+			{
+				my_model.create_scene(number_of_planes, poly_probability, output_filename);
+			}
+			catch (RuntimeException ex)
+			{
+				if (cache != null)
+				{
+					cache.store_failure(my_model.seed, number_of_planes, poly_probability, SceneCache.format(output_filename));
+				}
+				throw ex;
+			}
+			if (cache != null)
+			{
+				cache.store(my_model.seed, number_of_planes, poly_probability, output_filename);
+			}
+			if (metrics_filename != null)
+			{
+				my_model.get_metrics().append_to_file(metrics_filename);
+			}
+		
+		// Otherwise, continue as normal and launch view to confirm parameters
+		} else {
+			start_viewer("start", new Class<?>[] {int.class, double.class, String.class, Model.class},
+							new Object[] {number_of_planes, poly_probability, output_filename, my_model});
+		}
+
+	}
+	
+	// Calls a function of ViewerMain by name, so that the viewer (and AWT, Swing and JOGL with it) is only loaded when it's used, and
+	//  the core classes can be built and run without it.
+	static void start_viewer(String function, Class<?>[] parameter_types, Object[] parameters)
+	{
+		try
+		{
+			Class.forName("poly_package.ViewerMain").getMethod(function, parameter_types).invoke(null, parameters);
+		}
+		catch (ClassNotFoundException | NoClassDefFoundError ex)
+		{
+			System.out.println("ERROR: the viewer isn't available (" + ex + "); give the number of planes, the probability and the "
+								+ "output file on the command line to generate a scene without it");
+		}
+		catch (ReflectiveOperationException ex)
+		{
+			System.out.println("ERROR in Main -> start_viewer; " + ex);
+			ex.printStackTrace();
+		}
+	}
+	
+	// Check whether string is a positive integer
+    public static boolean isPositiveInteger(String candidate) 
+    {
+    	if (candidate.isEmpty())
+    	{
+    		return false;
+    	}
+
+    	try 
+        {
+    		int temp = Integer.parseInt(candidate);
+    		
+    		if (temp > 0)
+    		{
+    			return true;
+    		}
+    		else
+    		{
+    			return false;
+    		}
+        }
+        catch(Exception e)
+        {
+            return false;
+        }
+    }
+    
+	// Check whether string is a double
+    public static boolean isDouble(String candidate) 
+    {
+    	if (candidate.isEmpty())
+    	{
+    		return false;
+    	}
+
+    	try 
+        {
+            Double.parseDouble(candidate);
+            return true;
+        }
+        catch(Exception e)
+        {
+            return false;
+        }
+    }
+}
@@ -17,15 +17,24 @@
 
 package poly_package;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Observable;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import poly_package.PolygonEdge;
 import poly_package.Conglomerate;
+import poly_package.LabelledEdge;
 import poly_package.Line;
 import poly_package.Plane;
 import poly_package.Point;
@@ -33,8 +42,11 @@ import poly_package.Polygon;
 import poly_package.Polyhedron;
 
 // This class maintains all information about the polygonal scene.
-public class Model extends Observable 
+public class Model
 {
+	// Changed whenever a change to the generator changes the scene a seed gives, so that SceneCache doesn't return the old scene
+	static final String GENERATOR_VERSION = "1";
+	
 	// These are the polygons that actually need to be drawn
 	HashSet<Polygon> chosen_polygons = new HashSet<Polygon>();
 	
@@ -48,22 +60,369 @@ public class Model extends Observable
 	int number_of_planes;
 	double poly_probability;
 	String output_filename = "";
+	double[][] plane_values = null;	// The planes to use instead of random ones, if they were given to generate_arrangement()
+	
+	int polygon_name = 0;			// The name for the next polygon; merging creates new polygons after the others are found
+	long stage_start_time;
+	long stage_start_bytes;
+	StageEvent stage_event;			// The Java Flight Recorder event for the current stage
+	long seed;
+	Random random;					// Used for everything random about the scene, so that a seed always gives the same scene
+	SceneMetrics metrics;			// The times and work counts of the scene being generated (or the last one)
+	List<SceneProgress> finished_stages = new ArrayList<SceneProgress>();	// How long each stage took, for View's statistics
+	List<SceneListener> listeners = new CopyOnWriteArrayList<SceneListener>();
+	
+	// Runs start_scene() and start_writing() requests, one at a time for all models.  Its thread is a daemon so it doesn't keep the 
+	//  program running.
+	static ExecutorService generator = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable task)
+		{
+			Thread thread = new Thread(task, "Scene generator");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 
+	// Creates a model with a random seed, which is recorded in the metrics.
 	Model()
 	{
+		this(new Random().nextLong());
+	}
+	
+	// Creates a model whose scenes are the same every time for the same seed and parameters (used by StageBenchmark).
+	Model(long seed)
+	{
+		this.seed = seed;
+		random = new Random(seed);
+		metrics = new SceneMetrics(seed, 0, 0);
+	}
+	
+	public void add_listener(SceneListener listener)
+	{
+		listeners.add(listener);
+	}
+	
+	public void remove_listener(SceneListener listener)
+	{
+		listeners.remove(listener);
 	}
 	
 	// Create the scene from the initial parameters.
+	// Each stage of the generation is announced to the listeners with a SceneProgress when it starts and when it finishes, and each
+	//  conglomerate is passed to them as soon as it has been merged, so that View can display the scene as it's built.  The listeners
+	//  are notified on the thread running this function.
 	public void create_scene(int number_of_planes, double poly_probability, String output_filename)
+	{
+		generate_scene(number_of_planes, poly_probability);
+		write_scene(output_filename);
+		
+		// Notify the view that the results are available.
+		for (SceneListener listener: listeners)
+		{
+			listener.scene_finished(conglomerates);
+		}
+	}
+	
+	// Generates the scene without writing it to a file, so that the caller can decide whether it's wanted first.
+	public void generate_scene(int number_of_planes, double poly_probability)
 	{
 		this.number_of_planes = number_of_planes;
 		this.poly_probability = poly_probability;
+		metrics = new SceneMetrics(seed, number_of_planes, poly_probability);
+		
+		// Recorded for Java Flight Recorder (if it's running; see JfrEvents), along with an event for each stage
+		SceneEvent scene_event = null;
+		if (JfrEvents.recording())
+		{
+			scene_event = new SceneEvent();
+			scene_event.begin();
+		}
+		int trace_depth = Tracer.get_depth();
+		boolean finished = false;
+		try
+		{
+			run_stages();
+			finished = true;
+		}
+		finally
+		{
+			// The spans left open by a stage which threw are closed, so that the next scene on this thread isn't nested in them
+			Tracer.end_to_depth(trace_depth, seed);
+			if (scene_event != null)
+			{
+				scene_event.end();
+				if (scene_event.shouldCommit())
+				{
+					scene_event.seed = seed;
+					scene_event.planes = number_of_planes;
+					scene_event.probability = poly_probability;
+					scene_event.lines = lines.size();
+					scene_event.points = points.size();
+					scene_event.polygons = polygons.size();
+					scene_event.polyhedra = polyhedra.size();
+					scene_event.chosen_polyhedra = metrics.chosen_polyhedra;
+					scene_event.conglomerates = conglomerates.size();
+					scene_event.failed = !finished;
+					scene_event.commit();
+				}
+			}
+		}
+	}
+	
+	// Builds the planes, lines, points, polygons and polyhedra of a scene without choosing which polyhedra are visible, so that 
+	//  VisibilityVariants can make many scenes from the one arrangement.  draw_visibility() then continues with the same random numbers
+	//  choose_polyhedra() would have used.
+	public void generate_arrangement(int number_of_planes)
+	{
+		this.number_of_planes = number_of_planes;
+		build_arrangement();
+	}
+	
+	// Builds the arrangement for planes saved earlier (by SceneDatasetWriter) instead of random ones.  Each row of plane_values is a 
+	//  plane's x, y, z, theta and phi, as create_planes() made them.
+	public void generate_arrangement(double[][] plane_values)
+	{
+		this.plane_values = plane_values;
+		this.number_of_planes = plane_values.length;
+		build_arrangement();
+	}
+	
+	void build_arrangement()
+	{
+		metrics = new SceneMetrics(seed, number_of_planes, 0);
+		int trace_depth = Tracer.get_depth();
+		try
+		{
+			create_arrangement();
+			begin_stage(SceneProgress.POLYHEDRA);
+			create_polyhedra();
+			end_stage(SceneProgress.POLYHEDRA, polyhedra.size());
+		}
+		finally
+		{
+			Tracer.end_to_depth(trace_depth, seed);
+		}
+	}
+	
+	// Returns a uniform random number for each polyhedron, in order.  A polyhedron is visible with probability p if its number is 
+	//  below p, so the first call after generate_arrangement() gives the polyhedra generate_scene() would have chosen for the seed.
+	public double[] draw_visibility()
+	{
+		double[] draws = new double[polyhedra.size()];
+		for (int i = 0; i < draws.length; i++)
+		{
+			draws[i] = random.nextDouble();
+		}
+		return draws;
+	}
+	
+	// Runs the stages of generate_scene().
+	void run_stages()
+	{
+		create_arrangement();
+		
+		// Uses the polygons to create the polyhedra
+		begin_stage(SceneProgress.POLYHEDRA);
+		create_polyhedra();
+		List<Polyhedron> chosen_polyhedra = choose_polyhedra();
+		metrics.chosen_polyhedra = chosen_polyhedra.size();
+		end_stage(SceneProgress.POLYHEDRA, polyhedra.size());
+		
+		begin_stage(SceneProgress.CONGLOMERATES);
+		create_conglomerates(chosen_polyhedra);
+		metrics.conglomerates = conglomerates.size();
+		end_stage(SceneProgress.CONGLOMERATES, conglomerates.size());
+	}
+	
+	// Runs the stages up to the polygons, which are the same whichever polyhedra are chosen.
+	void create_arrangement()
+	{
+		begin_stage(SceneProgress.PLANES);
+		create_planes();
+		end_stage(SceneProgress.PLANES, planes.size());
+		
+		begin_stage(SceneProgress.LINES);
+		create_lines();
+		end_stage(SceneProgress.LINES, lines.size());
+		
+		begin_stage(SceneProgress.POINTS);
+		create_points();
+		sort_line_points();
+		metrics.points = points.size();
+		end_stage(SceneProgress.POINTS, points.size());
+		
+//		display_all();
+		
+		begin_stage(SceneProgress.POLYGONS);
+		create_polygons();
+		end_stage(SceneProgress.POLYGONS, polygons.size());
+		
+//		for (Polygon i: polygons)
+//		{
+//			i.output_polygon();
+//		}
+	}
+	
+	// Writes a generated scene to a file.
+	public void write_scene(String output_filename)
+	{
 		this.output_filename = output_filename;
+		metrics.output_filename = output_filename;
 		
+		begin_stage(SceneProgress.OUTPUT);
+		WriteEvent write_event = null;
+		if (JfrEvents.recording())
+		{
+			write_event = new WriteEvent();
+			write_event.begin();
+		}
+		output_scene();
+		metrics.bytes_written = new File(output_filename).length();
+		if (!output_filename.endsWith(".glb"))
+		{
+			metrics.bytes_written += new File(labels_filename(output_filename)).length();
+		}
+		if (write_event != null)
+		{
+			write_event.end();
+			if (write_event.shouldCommit())
+			{
+				write_event.seed = seed;
+				write_event.planes = number_of_planes;
+				write_event.probability = poly_probability;
+				write_event.filename = output_filename;
+				write_event.format = output_filename.endsWith(".glb") ? "glb" : "obj";
+				write_event.conglomerates = conglomerates.size();
+				write_event.bytes = metrics.bytes_written;
+				write_event.commit();
+			}
+		}
+		end_stage(SceneProgress.OUTPUT, conglomerates.size());
+	}
+	
+	// Runs create_scene() on a background thread, so that the caller (eg the Swing event thread) isn't held up.  If generation 
+	//  fails, the listeners are sent a SceneProgress for the FAILED stage.
+	public Future<?> start_scene(final int number_of_planes, final double poly_probability, final String output_filename)
+	{
+		return generator.submit(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					create_scene(number_of_planes, poly_probability, output_filename);
+				}
+				catch (RuntimeException ex)
+				{
+					System.out.println("ERROR in Model -> create_scene; " + ex);
+					ex.printStackTrace();
+					notify_stage(new SceneProgress(SceneProgress.FAILED, true, 0, 0));
+				}
+			}
+		});
+	}
+	
+	// Runs write_scene() on a background thread.
+	public Future<?> start_writing(final String output_filename)
+	{
+		return generator.submit(new Runnable()
+		{
+			public void run()
+			{
+				write_scene(output_filename);
+			}
+		});
+	}
+	
+	// Records the start time of a stage and tells the listeners it has started.  The count of bytes allocated is read last, so that
+	//  the listeners' work isn't counted as part of the stage.
+	void begin_stage(String stage)
+	{
+		check_cancelled();
+		Tracer.begin(stage, "stage", seed);
+		stage_event = null;
+		if (JfrEvents.recording())
+		{
+			stage_event = new StageEvent();
+			stage_event.begin();
+		}
+		stage_start_time = System.nanoTime();
+		notify_stage(new SceneProgress(stage, false, 0, 0));
+		stage_start_bytes = SceneMetrics.allocated_bytes();
+	}
+	
+	// Stops generation if the thread has been interrupted (eg by SceneService when a request has timed out).  It's checked at the start
+	//  of each stage and once per line, polygon or polyhedron in the longer loops, so that an abandoned scene soon frees its thread.
+	static void check_cancelled()
+	{
+		if (Thread.currentThread().isInterrupted())
+		{
+			throw new CancellationException("Scene generation was cancelled");
+		}
+	}
+	
+	// Tells the listeners that a stage has finished, how many things it created and how long it took.
+	void end_stage(String stage, int count)
+	{
+		if (SceneMetrics.can_measure_allocation())
+		{
+			metrics.stage_bytes.put(stage, SceneMetrics.allocated_bytes() - stage_start_bytes);
+		}
+		SceneProgress progress = new SceneProgress(stage, true, count, System.nanoTime() - stage_start_time);
+		Tracer.end(stage, "stage", seed);
+		metrics.stage_nanoseconds.put(stage, progress.get_nanoseconds());
+		if (stage_event != null)
+		{
+			stage_event.end();
+			if (stage_event.shouldCommit())
+			{
+				stage_event.seed = seed;
+				stage_event.planes = number_of_planes;
+				stage_event.probability = poly_probability;
+				stage_event.stage = stage;
+				stage_event.count = count;
+				stage_event.commit();
+			}
+		}
+		synchronized (finished_stages)
+		{
+			finished_stages.add(progress);
+		}
+		notify_stage(progress);
+	}
+	
+	void notify_stage(SceneProgress progress)
+	{
+		for (SceneListener listener: listeners)
+		{
+			listener.stage_changed(progress);
+		}
+	}
+	
+	// Returns the stages which have finished so far, in order.  It can be called from any thread while the scene is being generated.
+	public List<SceneProgress> get_finished_stages()
+	{
+		synchronized (finished_stages)
+		{
+			return new ArrayList<SceneProgress>(finished_stages);
+		}
+	}
+	
+	// Generates the planes, each through a random point in the unit sphere with a random orientation.
+	void create_planes()
+	{
 		int plane_name = 0;
-		int line_name = 0;
-		int point_name = 0;
-		int polygon_name = 0;
+		
+		if (plane_values != null)
+		{
+			for (double[] values: plane_values)
+			{
+				planes.add(new Plane(plane_name, values[0], values[1], values[2], values[3], values[4]));
+				plane_name++;
+			}
+			return;
+		}
 		
 		// For each plane
 		for (int i = 0; i < number_of_planes; i++)
@@ -74,24 +433,31 @@ public class Model extends Observable
 			do
 			{
 				// Generate a point within the 2x2 cube centered on the origin.
-				x = (Math.random() * 2) - 1;
-				y = (Math.random() * 2) - 1;
-				z = (Math.random() * 2) - 1;
+				x = (random.nextDouble() * 2) - 1;
+				y = (random.nextDouble() * 2) - 1;
+				z = (random.nextDouble() * 2) - 1;
 			}
-			while (Math.sqrt(x*x + y*y + z*z) > 1);  // Make sure the point is within a sphere of radius 1
+			while (VectorMath.length_squared(x, y, z) > 1);  // Make sure the point is within a sphere of radius 1
 			
 			// theta (elevation in y) is acos of a random number between -1 and 1 (it's 0 at the bottom, PI/2 at the middle, and PI at the 
 			//  top), so it's wide at the middle of the sphere and narrow at the top and bottom.
 			// phi (rotation in xz) is just a random number on the circle
-			double p = Math.random();
+			double p = random.nextDouble();
 			double theta = Math.acos(1 - 2 * p);
-			double phi = Math.random() * 2 * Math.PI;
+			double phi = random.nextDouble() * 2 * Math.PI;
 			
 			Plane plane = new Plane(plane_name, x, y, z, theta, phi);
 			plane_name++;
 			planes.add(plane);
 		}
-				
+	}
+	
+	// Finds the line where each pair of planes intersects, keeping the lines which pass through the unit sphere.
+	void create_lines()
+	{
+		int line_name = 0;
+		double[] direction = new double[3];
+		
 		// For each pair of planes, find the line where they intersect
 		for (int i = 0; i <= number_of_planes - 2; i++)
 		{
@@ -100,10 +466,11 @@ public class Model extends Observable
 			{
 				// Use cross-product to find vector component of line of intersection
 				Plane second_plane = planes.get(j);
-				double cross_x = first_plane.normal_y * second_plane.normal_z - first_plane.normal_z * second_plane.normal_y;
-				double cross_y = -(first_plane.normal_x * second_plane.normal_z 
-									- first_plane.normal_z * second_plane.normal_x);
-				double cross_z = first_plane.normal_x * second_plane.normal_y - first_plane.normal_y * second_plane.normal_x;
+				VectorMath.cross(first_plane.normal_x, first_plane.normal_y, first_plane.normal_z, 
+									second_plane.normal_x, second_plane.normal_y, second_plane.normal_z, direction);
+				double cross_x = direction[0];
+				double cross_y = direction[1];
+				double cross_z = direction[2];
 				
 				// Use equations of planes to find point on line; z is 0 and calculate x and y, which works provided line is 
 				//  not parallel to z-axis
@@ -136,35 +503,41 @@ public class Model extends Observable
 				// If u is the negative of the vector from the origin to (x_point, y_point, z_point), and d is the above 
 				//  line, then u + (the projection of u on d) is the intersection of our line and the line through the origin 
 				//  perpendicular to d, and is thus the point on our line closest to the origin.
-				double u_dot_d = (-x_point) * cross_x + (-y_point) * cross_y + (-z_point) * cross_z;
-				double len_d = Math.sqrt(cross_x*cross_x + cross_y*cross_y + cross_z*cross_z);
-				double proj_coeff = u_dot_d / (len_d * len_d);
+				double proj_coeff = VectorMath.projection_factor(-x_point, -y_point, -z_point, cross_x, cross_y, cross_z);
 				double orth_x = x_point + proj_coeff * cross_x;
 				double orth_y = y_point + proj_coeff * cross_y;
 				double orth_z = z_point + proj_coeff * cross_z;
-				double len_orth = Math.sqrt(orth_x*orth_x + orth_y*orth_y + orth_z*orth_z);
 				
-				if (len_orth <= 1)
+				if (VectorMath.length_squared(orth_x, orth_y, orth_z) <= 1)
 				{
 					// Planes intersect within the sphere, so record the line
 					Line line = new Line(line_name, x_point, y_point, z_point, cross_x, cross_y, cross_z, first_plane, second_plane);
 					line_name++;
 					lines.add(line);
+					metrics.lines_kept++;
 
 					first_plane.lines.add(line);
 					second_plane.lines.add(line);
 				}
 				else
 				{
+					metrics.lines_culled++;
 //					System.out.println("Planes " + first_plane.name + " and " + second_plane.name 
 //							+ " are closest to the origin at (" + orth_x + ", " + orth_y + ", " + orth_z + ")");
 				}
 			}
 		}
-
+	}
+	
+	// Finds the points where the lines cross the other planes inside the unit sphere.
+	void create_points()
+	{
+		int point_name = 0;
+		
 		// For each line, find the intersection point of the line and each plane it's not part of
 		for (int i = 0; i <= lines.size() - 1; i++)
 		{
+			check_cancelled();
 			Line current_line = lines.get(i);
 
 			for (int j = 0; j <= number_of_planes - 1; j++)
@@ -209,14 +582,14 @@ public class Model extends Observable
 					double zv = current_line.z_vect;
 					// Start with the scalar equation of the plane, substitute in the parametric equation of the line for the 
 					//  point where the line intersects the plane, and solve for t.
-					double t = (a * (x0 - xp) + b * (y0 - yp) + c * (z0 - zp)) / (a * xv + b * yv + c * zv);
+					double t = VectorMath.dot(a, b, c, x0 - xp, y0 - yp, z0 - zp) / VectorMath.dot(a, b, c, xv, yv, zv);
 					
 					double x_value = xp + t * xv;
 					double y_value = yp + t * yv;
 					double z_value = zp + t * zv;
 					
 					// If the point is outside the sphere, discard it
-					if (Math.sqrt(x_value*x_value + y_value*y_value + z_value*z_value) > 1)
+					if (VectorMath.length_squared(x_value, y_value, z_value) > 1)
 					{
 						continue;
 					}
@@ -247,8 +620,7 @@ public class Model extends Observable
 					
 					if (second_line == null || third_line == null)
 					{
-						System.out.println("ERROR: Matching lines not found");
-						System.exit(-1);
+						throw new IllegalStateException("Model.create_points(): matching lines not found");
 					}
 
 					Point new_point = new Point(point_name, x_value, y_value, z_value, current_line, second_line, third_line,
@@ -263,20 +635,26 @@ public class Model extends Observable
 				}
 			}
 		}
-		
-		// For each line, sort the points
+	}
+	
+	// Sorts the points found by create_points() along each line, so that neighbouring points are the ends of an edge.
+	void sort_line_points()
+	{
 		for (int i = 0; i <= lines.size() - 1; i++)
 		{
 			lines.get(i).sort_points();
 		}
-		
-//		display_all();
-		
+	}
+	
+	// Finds the polygons into which the lines divide each plane.
+	void create_polygons()
+	{
 		// Find all polygons:
 		// Iterate through each line and check whether each of the four components of each segment are marked as used
 		// If not, generate that polygon and mark the segments
 		for (int i = 0; i <= lines.size() - 1; i++)
 		{
+			check_cancelled();
 			Line current_line = lines.get(i);
 			
 			// If there are not at least two points on this line, it has no valid segments
@@ -337,21 +715,17 @@ public class Model extends Observable
 				}
 			}
 		}
-		
-//		for (Polygon i: polygons)
-//		{
-//			i.output_polygon();
-//		}
-		
-		// Uses the polygons to create the polyhedra
-		create_polyhedra();
-
+	}
+	
+	// Chooses at random which polyhedra will be visible, with probability poly_probability each.
+	List<Polyhedron> choose_polyhedra()
+	{
 		List<Polyhedron> chosen_polyhedra = new ArrayList<Polyhedron>();	// The polyhedra which will actually be drawn
 
 		for (Polyhedron i: polyhedra)
 		{
 			// Determine whether the polygons for this polyhedron will actually be drawn
-			if (Math.random() < poly_probability)
+			if (random.nextDouble() < poly_probability)
 			{
 				i.set_is_being_drawn(true);
 				i.make_polygon_points_ccw();
@@ -359,7 +733,13 @@ public class Model extends Observable
 				chosen_polyhedra.add(i);
 			}
 		}
-		
+		return chosen_polyhedra;
+	}
+	
+	// Groups the visible polyhedra into conglomerates, merging the polygons they share.  Each conglomerate is passed to the 
+	//  listeners as soon as it's finished.
+	void create_conglomerates(List<Polyhedron> chosen_polyhedra)
+	{
 		// If two polyhedra share a polygon and are both being drawn, that polygon should not be drawn.  To prevent this, the polyhedra must 
 		//  be merged by merging the polygons which share an edge with the polygon shared by the polyhedra.  This will create a child 
 		//  polyhedron.  It may be necessary to merge child polyhedra, which adds additional complications.
@@ -369,6 +749,7 @@ public class Model extends Observable
 		//  each to a conglomerate.
 		for (Polyhedron current_poly: chosen_polyhedra)
 		{
+			check_cancelled();
 			if (current_poly.get_explored())
 			{
 				continue;
@@ -377,16 +758,71 @@ public class Model extends Observable
 			Conglomerate new_conglomerate = new Conglomerate(conglomerate_name, current_poly);
 			conglomerate_name++;
 			current_poly.mark_explored();
+			Tracer.begin("explore", "conglomerate", seed);
 			new_conglomerate.explore(chosen_polyhedra);
+			Tracer.end("explore", "conglomerate", seed);
+			int first_merged_name = polygon_name;
+			MergeEvent merge_event = null;
+			if (JfrEvents.recording())
+			{
+				merge_event = new MergeEvent();
+				merge_event.begin();
+			}
+			Tracer.begin("merge", "conglomerate", seed);
 			polygon_name = new_conglomerate.merge(polygon_name);
+			Tracer.end("merge", "conglomerate", seed);
+			metrics.merges += polygon_name - first_merged_name;		// merge() names each polygon it creates
+			if (merge_event != null)
+			{
+				merge_event.end();
+				if (merge_event.shouldCommit())
+				{
+					merge_event.seed = seed;
+					merge_event.planes = number_of_planes;
+					merge_event.probability = poly_probability;
+					merge_event.conglomerate = new_conglomerate.name;
+					merge_event.polyhedra = new_conglomerate.collected_polyhedra.size();
+					merge_event.shared_polygons = new_conglomerate.merge_list.size();
+					merge_event.merged_polygons = polygon_name - first_merged_name;
+					merge_event.commit();
+				}
+			}
+			Tracer.begin("label_edges", "conglomerate", seed);
+			new_conglomerate.label_edges();
+			Tracer.end("label_edges", "conglomerate", seed);
 			conglomerates.add(new_conglomerate);
+			
+			for (SceneListener listener: listeners)
+			{
+				listener.conglomerate_finished(new_conglomerate);
+			}
+		}
+	}
+	
+	// Writes the scene to output_filename, as .glb or as .obj with its .labels file.
+	void output_scene()
+	{
+		if (output_filename.endsWith(".glb"))
+		{
+			output_glb_to_file(output_filename);
+		}
+		else
+		{
+			output_to_file(output_filename);
+			output_labels_to_file(labels_filename(output_filename));
 		}
-				
-		output_to_file(output_filename);
-		
-		// Notify the view that the results are available.
-		setChanged();
-		notifyObservers(conglomerates);
+	}
+	
+	public List<Conglomerate> get_conglomerates()
+	{
+		return conglomerates;
+	}
+	
+	// Returns the metrics of the scene being generated, or of the last one.  They are only complete once create_scene() (or 
+	//  generate_scene() and write_scene()) has returned.
+	public SceneMetrics get_metrics()
+	{
+		return metrics;
 	}
 	
 	// Creates polyhedra from the polygons
@@ -397,6 +833,7 @@ public class Model extends Observable
 		// Iterate through all polygons
 		for (Polygon p: polygons)
 		{
+			check_cancelled();
 			// Check each side - i=0 means greaterx, i=1 means lesserx
 			for (int i = 0; i <= 1; i++)
 			{
@@ -551,6 +988,11 @@ public class Model extends Observable
 					polyhedron_name++;
 					polyhedra.add(current_polyhedron);
 					current_polyhedron.set_polygon_references();
+					metrics.polyhedra_found++;
+				}
+				else
+				{
+					metrics.polyhedra_failed++;
 				}
 			}
 		}
@@ -564,13 +1006,10 @@ public class Model extends Observable
 		// The projected point uniquely satisfies the equations of both the line and the plane, so combine the two and solve for t from the
 		//   vector equation of the line.
 		// t = (plane_constant - dot(normal, the_point)) / ||normal||^2
-		double dot_product = the_plane.normal_x * the_point.x_point 
-								+ the_plane.normal_y * the_point.y_point 
-								+ the_plane.normal_z * the_point.z_point;
-		double norm = Math.sqrt(the_plane.normal_x * the_plane.normal_x
-								+ the_plane.normal_y * the_plane.normal_y
-								+ the_plane.normal_z * the_plane.normal_z);
-		double t = (the_plane.plane_constant - dot_product) / (norm * norm);
+		double dot_product = VectorMath.dot(the_plane.normal_x, the_plane.normal_y, the_plane.normal_z, 
+											the_point.x_point, the_point.y_point, the_point.z_point);
+		double t = (the_plane.plane_constant - dot_product) 
+					/ VectorMath.length_squared(the_plane.normal_x, the_plane.normal_y, the_plane.normal_z);
 		
 		double projected_x = the_point.x_point + t * the_plane.normal_x;
 		
@@ -634,8 +1073,7 @@ public class Model extends Observable
 				new_edge.the_line = new_edge.first_point.line3;
 			else
 			{
-				System.out.println("ERROR: points in polygon share no lines");
-				System.exit(-1);
+				throw new IllegalStateException("Model.update_polygon_edges(): points in polygon share no lines");
 			}
 			
 			// If this isn't the initial polygon, check if this edge matches an existing one.  If so, remove it from the list of 
@@ -678,6 +1116,7 @@ public class Model extends Observable
 	{
 		// Create polygon object with plane and points - this will be discarded if the attempt to create a polygon fails.
 		Polygon polygon = new Polygon(the_plane, first_point, second_point);
+		metrics.traces_started++;
 		
 		// Mark first segment
 		current_line.mark_segment(segment_j, the_plane, x_type);
@@ -703,8 +1142,7 @@ public class Model extends Observable
 						
 			if (point_index == -1)
 			{
-				System.out.println("ERROR: Point not found in create_polygon()");
-				System.exit(-1);
+				throw new IllegalStateException("Model.create_polygon(): point not found");
 			}
 
 			// If there's a (point_index - 1) point, project it on the current line to determine whether it's x_greater
@@ -719,10 +1157,8 @@ public class Model extends Observable
 				double u_y = candidate.y_point - previous_point.y_point;
 				double u_z = candidate.z_point - previous_point.z_point;
 				
-				double dot_ud = (u_x * current_line.x_vect) + (u_y * current_line.y_vect) + (u_z * current_line.z_vect);
-				double len_u = Math.sqrt(current_line.x_vect * current_line.x_vect + current_line.y_vect * current_line.y_vect 
-											+ current_line.z_vect * current_line.z_vect);
-				double proj_x = dot_ud * current_line.x_vect / (len_u * len_u);
+				double proj_x = VectorMath.projection_factor(u_x, u_y, u_z, current_line.x_vect, current_line.y_vect, current_line.z_vect)
+									* current_line.x_vect;
 				
 				// Move the result back to where it was relative to previous_point.
 				proj_x += previous_point.x_point;
@@ -764,10 +1200,8 @@ public class Model extends Observable
 				double u_y = candidate.y_point - previous_point.y_point;
 				double u_z = candidate.z_point - previous_point.z_point;
 				
-				double dot_ud = (u_x * current_line.x_vect) + (u_y * current_line.y_vect) + (u_z * current_line.z_vect);
-				double len_u = Math.sqrt(current_line.x_vect * current_line.x_vect + current_line.y_vect * current_line.y_vect 
-											+ current_line.z_vect * current_line.z_vect);
-				double proj_x = dot_ud * current_line.x_vect / (len_u * len_u);
+				double proj_x = VectorMath.projection_factor(u_x, u_y, u_z, current_line.x_vect, current_line.y_vect, current_line.z_vect)
+									* current_line.x_vect;
 
 				// Move the result back to where it was relative to previous_point.
 				proj_x += previous_point.x_point;
@@ -800,6 +1234,7 @@ public class Model extends Observable
 			if (next_point_found == false)
 			{
 				// If we get here there is no next point; abandon polygon.
+				metrics.traces_abandoned++;
 				return;
 			}
 			
@@ -812,10 +1247,8 @@ public class Model extends Observable
 			double u_z = previous_point.z_point - candidate.z_point;
 			
 			// Project the point on the current line, using previous_point as the origin
-			double dot_ud = (u_x * next_line.x_vect) + (u_y * next_line.y_vect) + (u_z * next_line.z_vect);
-			double len_u = Math.sqrt(next_line.x_vect * next_line.x_vect + next_line.y_vect * next_line.y_vect 
-										+ next_line.z_vect * next_line.z_vect);
-			double proj_x = dot_ud * next_line.x_vect / (len_u * len_u);
+			double proj_x = VectorMath.projection_factor(u_x, u_y, u_z, next_line.x_vect, next_line.y_vect, next_line.z_vect) 
+								* next_line.x_vect;
 			
 			// Move the result back to where it was relative to current_point.
 			proj_x += candidate.x_point;
@@ -842,6 +1275,7 @@ public class Model extends Observable
 				polygon.set_name(current_name);
 //				polygon.output_polygon();
 				polygons.add(polygon);
+				metrics.traces_completed++;
 				return;
 			}
 
@@ -891,35 +1325,86 @@ public class Model extends Observable
 		{
 			// Open the file
 			writer = new PrintWriter(output_filename, "UTF-8");
-			writer.println("# Polygons representing a polyhedral scene");
-			writer.println("");
+			write_obj(conglomerates, writer);
+		} 
+		catch (IOException ex) 
+		{
+			System.out.println("Error writing to file: " + ex);
+		} 
+		finally 
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+	
+	// Writes the polygons being drawn in .obj format, eg to a file or (for HttpSceneServer) straight to a network connection.
+	static void write_obj(List<Conglomerate> conglomerates, PrintWriter writer)
+	{
+		writer.println("# Polygons representing a polyhedral scene");
+		writer.println("");
 
-			// Iterate through conglomerates, and within each iterate through outline_draw_list to get polygons to draw
-			for (Conglomerate conglo: conglomerates)
-			{
-				List<Polygon> drawables = conglo.get_outline_draw_list();
+		// Iterate through conglomerates, and within each iterate through outline_draw_list to get polygons to draw
+		for (Conglomerate conglo: conglomerates)
+		{
+			List<Polygon> drawables = conglo.get_outline_draw_list();
 
-				// Iterate through chosen polygons and draw each
-				for (Polygon gon: drawables)
+			// Iterate through chosen polygons and draw each
+			for (Polygon gon: drawables)
+			{
+				int point_count = 0;
+				for (Point current_point: gon.points)
 				{
-					int point_count = 0;
-					for (Point current_point: gon.points)
-					{
-						point_count--;
-						// Output points
-						writer.println("v " + current_point.x_point + " " + current_point.y_point + " " + current_point.z_point);
-					}
-					
-					// Output face data based on point_count
-					writer.print("f ");
-					for (int i = point_count; i < 0; i++)
-					{
-						writer.print(i + " ");
-					}
-					writer.println();
-					writer.println();
+					point_count--;
+					// Output points
+					writer.println("v " + current_point.x_point + " " + current_point.y_point + " " + current_point.z_point);
+				}
+				
+				// Output face data based on point_count
+				writer.print("f ");
+				for (int i = point_count; i < 0; i++)
+				{
+					writer.print(i + " ");
 				}
+				writer.println();
+				writer.println();
 			}
+		}
+	}
+	
+	// This function outputs the polygons being drawn to a binary glTF (.glb) file, with the back faces included (see GlbWriter).
+	void output_glb_to_file(String output_filename)
+	{
+		try
+		{
+			new GlbWriter(conglomerates).write(output_filename);
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+	}
+	
+	// The edge labels for an .obj file are written beside it, with the extension replaced by .labels
+	static String labels_filename(String output_filename)
+	{
+		if (output_filename.endsWith(".obj"))
+		{
+			return output_filename.substring(0, output_filename.length() - 4) + ".labels";
+		}
+		return output_filename + ".labels";
+	}
+	
+	// This function outputs the label of every outline edge to a sidecar file for the .obj file written by output_to_file().
+	// Each edge is written once, as its label followed by the 1-based indices of its two vertices in the .obj file.  Since
+	//  output_to_file() writes each polygon's points separately, the indices are those of the first polygon containing the edge.
+	void output_labels_to_file(String labels_filename)
+	{
+		PrintWriter writer = null;
+		try 
+		{
+			writer = new PrintWriter(labels_filename, "UTF-8");
+			write_labels_header(writer);
+			write_labels(conglomerates, writer);
 		} 
 		catch (IOException ex) 
 		{
@@ -930,4 +1415,41 @@ public class Model extends Observable
 			try {writer.close();} catch (Exception ex) {}
 		}
 	}
+	
+	// Writes the comment lines at the top of a .labels file.  The .obj file is the one of the same name, so they don't name it; that
+	//  way a scene copied or renamed (eg by SceneCache) along with its .labels file is still described correctly.
+	static void write_labels_header(PrintWriter writer)
+	{
+		writer.println("# Edge labels for the polygons in the .obj file of the same name");
+		writer.println("# label first_vertex second_vertex");
+		writer.println("");
+	}
+	
+	// Writes a line for each labelled edge of the conglomerates, with the vertex indices output_to_file() would give its points.  
+	//  VariantExporter uses this too, since its rotated copies have the same vertices in the same order.
+	static void write_labels(List<Conglomerate> conglomerates, PrintWriter writer)
+	{
+		// Find the index of each polygon's first vertex, in the same order output_to_file() writes them
+		HashMap<Polygon, Integer> first_vertex = new HashMap<Polygon, Integer>();
+		int vertex_count = 0;
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				first_vertex.put(gon, vertex_count + 1);
+				vertex_count += gon.get_num_points();
+			}
+		}
+
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (LabelledEdge edge: conglo.get_labelled_edges())
+			{
+				int start = first_vertex.get(edge.first_polygon);
+				int first_index = start + edge.first_index;
+				int second_index = start + edge.first_polygon.get_next(edge.first_index, 1);
+				writer.println(edge.label + " " + first_index + " " + second_index);
+			}
+		}
+	}
 }
@@ -0,0 +1,123 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// This class reads a Wavefront .obj file written by Model.output_to_file() back into a SceneMesh, for browsing saved scenes.
+// Model writes every face's points separately, so points are matched up by their coordinates (as written) to share them between
+//  faces again; this also lets Triangulator recognise outlines which pass through the same point twice.  The faces are triangulated
+//  and each edge is kept once for the outlines.
+public class ObjReader
+{
+	public static SceneMesh read(String filename) throws IOException
+	{
+		HashMap<String, Integer> point_indices = new HashMap<String, Integer>();	// Keyed by the coordinates as written
+		List<Point> points = new ArrayList<Point>();			// The distinct points
+		List<Integer> file_vertices = new ArrayList<Integer>();	// The distinct point for each "v" line, in order
+		List<Integer> triangle_indices = new ArrayList<Integer>();
+		List<Integer> line_indices = new ArrayList<Integer>();
+		HashSet<Long> edges = new HashSet<Long>();
+
+		BufferedReader reader = new BufferedReader(new FileReader(filename));
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.startsWith("v "))
+				{
+					String coordinates = line.substring(2).trim();
+					Integer index = point_indices.get(coordinates);
+					if (index == null)
+					{
+						String[] values = coordinates.split("\\s+");
+						index = points.size();
+						points.add(new Point(index, Double.parseDouble(values[0]), Double.parseDouble(values[1]), 
+												Double.parseDouble(values[2]), null, null, null, null, null, null));
+						point_indices.put(coordinates, index);
+					}
+					file_vertices.add(index);
+				}
+				else if (line.startsWith("f "))
+				{
+					// Indices are 1-based, or negative to count back from the latest vertex; "v/vt/vn" forms are allowed
+					String[] values = line.substring(2).trim().split("\\s+");
+					ArrayList<Point> face_points = new ArrayList<Point>();
+					for (String value: values)
+					{
+						int file_index = Integer.parseInt(value.split("/")[0]);
+						int vertex = (file_index < 0) ? file_vertices.size() + file_index : file_index - 1;
+						face_points.add(points.get(file_vertices.get(vertex)));
+					}
+
+					Polygon face = new Polygon(null, face_points);
+					for (int index: face.get_triangles())
+					{
+						triangle_indices.add(face_points.get(index).name);
+					}
+
+					for (int i = 0; i < face_points.size(); i++)
+					{
+						int first = face_points.get(i).name;
+						int second = face_points.get(face.get_next(i, 1)).name;
+						if (first != second && edges.add(Math.min(first, second) * (long)Integer.MAX_VALUE + Math.max(first, second)))
+						{
+							line_indices.add(first);
+							line_indices.add(second);
+						}
+					}
+				}
+			}
+		}
+		catch (RuntimeException ex)
+		{
+			throw new IOException("Badly formed .obj file " + filename + ": " + ex);
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		float[] positions = new float[points.size() * 3];
+		for (Point current_point: points)
+		{
+			positions[current_point.name * 3] = (float)current_point.x_point;
+			positions[current_point.name * 3 + 1] = (float)current_point.y_point;
+			positions[current_point.name * 3 + 2] = (float)current_point.z_point;
+		}
+		return new SceneMesh(positions, to_array(triangle_indices), to_array(line_indices));
+	}
+
+	private static int[] to_array(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,100 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+// This class writes 8-bit RGB PNG images.  It only needs java.util.zip, so images can be written on machines without a display and
+//  without loading any of the AWT image classes.
+public class PngWriter
+{
+	private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+	// Writes an image to a file.  'pixels' holds one 0xRRGGBB value per pixel, a row at a time starting with the top row.
+	public static void write(String filename, int width, int height, int[] pixels) throws IOException
+	{
+		OutputStream file = new FileOutputStream(filename);
+		try
+		{
+			write(file, width, height, pixels);
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	public static void write(OutputStream stream, int width, int height, int[] pixels) throws IOException
+	{
+		DataOutputStream output = new DataOutputStream(stream);
+		output.write(SIGNATURE);
+
+		// Header: size, 8 bits per channel, colour type 2 (RGB), default compression, filter and interlace methods
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream header_data = new DataOutputStream(header);
+		header_data.writeInt(width);
+		header_data.writeInt(height);
+		header_data.writeByte(8);
+		header_data.writeByte(2);
+		header_data.writeByte(0);
+		header_data.writeByte(0);
+		header_data.writeByte(0);
+		write_chunk(output, "IHDR", header.toByteArray());
+
+		// Image data: each row starts with its filter type (0, none), and the whole thing is zlib compressed
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		DeflaterOutputStream deflater = new DeflaterOutputStream(compressed);
+		byte[] row = new byte[1 + width * 3];
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				int pixel = pixels[y * width + x];
+				row[1 + x * 3] = (byte)(pixel >> 16);
+				row[2 + x * 3] = (byte)(pixel >> 8);
+				row[3 + x * 3] = (byte)pixel;
+			}
+			deflater.write(row);
+		}
+		deflater.finish();
+		write_chunk(output, "IDAT", compressed.toByteArray());
+
+		write_chunk(output, "IEND", new byte[0]);
+		output.flush();
+	}
+
+	// Each chunk is its length, type, data, and the CRC of the type and data.
+	private static void write_chunk(DataOutputStream output, String type, byte[] data) throws IOException
+	{
+		byte[] type_bytes = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(type_bytes);
+		crc.update(data);
+
+		output.writeInt(data.length);
+		output.write(type_bytes);
+		output.write(data);
+		output.writeInt((int)crc.getValue());
+	}
+}
@@ -66,13 +66,12 @@ public class Point
 	}
 	
 	// This function returns the line shared by this point and the parameter points.  These points *must* share a line and must not be the 
-	//  same point or the program will exit with an error; this is only to be called on points adjacent to each other in a polygon.
+	//  same point or an IllegalStateException is thrown; this is only to be called on points adjacent to each other in a polygon.
 	public Line get_common_line(Point other_point)
 	{
 		if (other_point == this)
 		{
-			System.out.println("ERROR: Point.get_common_line() called on two copies of the same point.");
-			System.exit(-1);
+			throw new IllegalStateException("Point.get_common_line() called on two copies of the same point");
 		}
 		
 		if (other_point.line1 == this.line1 || other_point.line2 == this.line1 || other_point.line3 == this.line1)
@@ -89,10 +88,8 @@ public class Point
 		}
 		else
 		{
-			System.out.println("ERROR: Point.get_common_line() found no common lines.");
-			System.exit(-1);
+			throw new IllegalStateException("Point.get_common_line() found no common lines");
 		}
-		return null;  // Compiler needs this to feel fulfilled.
 	}
 
 	// Get the next line for the current polygon; we require that this point be the vertex of a potential polygon, we have one of the lines
@@ -113,9 +110,7 @@ public class Point
 		}
 		else
 		{
-			System.out.println("ERROR: Point.get_next_line() unable to find next line.");
-			System.exit(-1);
+			throw new IllegalStateException("Point.get_next_line() unable to find next line");
 		}
-		return null;  // Compiler needs this to feel fulfilled.
 	}
 }
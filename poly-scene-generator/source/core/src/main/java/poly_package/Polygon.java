@@ -39,6 +39,8 @@ public class Polygon
 	// True once Conglomerate has checked both faces of this polygon for polyhedra
 	boolean has_been_explored = false;
 	
+	int[] triangles = null;			// Indices into 'points', three per triangle; worked out when first needed
+	
 	// Adds the first two points of this potential polygon.
 	public Polygon(Plane the_plane, Point first_point, Point second_point)
 	{
@@ -67,6 +69,7 @@ public class Polygon
 	public void add_point(Point the_point)
 	{
 		points.add(the_point);
+		triangles = null;
 	}
 	
 	// Records the polyhedron that this polygon has been found to be a part of.
@@ -82,8 +85,7 @@ public class Polygon
 		}
 		else
 		{
-			System.out.println("ERROR in polygon -> set_polyhedra; polygon part of more than two polyhedra.");
-			System.exit(-1);
+			throw new IllegalStateException("Polygon.set_polyhedra(): polygon part of more than two polyhedra");
 		}
 
 	}
@@ -168,8 +170,52 @@ public class Polygon
 			reversed_points.add(points.get(i));
 		}
 		points = reversed_points;
+		triangles = null;
+	}
+	
+	// Returns the triangles which fill this polygon (which may be concave if it was merged), as indices into its points, three per 
+	//  triangle and in the same direction as the points.
+	public int[] get_triangles()
+	{
+		if (triangles == null)
+		{
+			triangles = Triangulator.triangulate(this);
+		}
+		return triangles;
 	}
 	
+	// Stores the (unnormalized) normal given by Newell's method in 'normal'.  It points towards the side from which the points 
+	//  appear counterclockwise, and unlike a cross product of two edges it's also correct when a merged polygon is concave.
+	public void calculate_newell_normal(double[] normal)
+	{
+		normal[0] = 0;
+		normal[1] = 0;
+		normal[2] = 0;
+
+		for (int i = 0; i < points.size(); i++)
+		{
+			Point current = points.get(i);
+			Point next = points.get(get_next(i, 1));
+			normal[0] += (current.y_point - next.y_point) * (current.z_point + next.z_point);
+			normal[1] += (current.z_point - next.z_point) * (current.x_point + next.x_point);
+			normal[2] += (current.x_point - next.x_point) * (current.y_point + next.y_point);
+		}
+	}
+
+	// Stores the unit normal of this polygon's plane in 'normal', flipped if necessary so that it points out of the polyhedron.  The
+	//  points must already be counterclockwise (viewed from outside); the plane's own normal is used for the actual value since 
+	//  it's exact.
+	public void calculate_outward_normal(double[] normal)
+	{
+		calculate_newell_normal(normal);
+
+		double direction = normal[0] * plane.normal_x + normal[1] * plane.normal_y + normal[2] * plane.normal_z;
+		double sign = (direction < 0) ? -1 : 1;
+		normal[0] = sign * plane.normal_x;
+		normal[1] = sign * plane.normal_y;
+		normal[2] = sign * plane.normal_z;
+	}
+
 	// Output function for debugging
 	public void output_polygon()
 	{
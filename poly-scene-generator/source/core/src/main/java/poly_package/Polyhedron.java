@@ -104,9 +104,7 @@ public class Polyhedron
 			double u_z = otherpoint.get_z() - self_z;
 			
 			// u1 = (u1_x, u1_y, u1_z) = projection of u on n
-			double numerator = (normal_x * u_x) + (normal_y * u_y) + (normal_z * u_z);
-			double denominator = (normal_x * normal_x) + (normal_y * normal_y) + (normal_z * normal_z);
-			double factor = numerator / denominator;
+			double factor = VectorMath.projection_factor(u_x, u_y, u_z, normal_x, normal_y, normal_z);
 			double u1_x = factor * normal_x;
 			double u1_y = factor * normal_y;
 			double u1_z = factor * normal_z;
@@ -136,17 +134,13 @@ public class Polyhedron
 		double cy = c.get_y() - a.get_y();
 		double cz = c.get_z() - a.get_z();
 
-		// Use the cross product to find the normal vector
-		double normx = by*cz - bz*cy;
-		double normy = -(bx*cz - bz*cx);
-		double normz = bx*cy - by*cx;
-		
 		// Vector from viewpoint to 'a'
 		double vx = a.get_x() - viewpoint_x;
 		double vy = a.get_y() - viewpoint_y;
 		double vz = a.get_z() - viewpoint_z;
 		
-		double dot_product = normx*vx + normy*vy + normz*vz;
+		// The dot product of that vector with the normal vector (the cross product b x c)
+		double dot_product = VectorMath.triple_product(vx, vy, vz, bx, by, bz, cx, cy, cz);
 		if (dot_product > 0)
 		{
 			return false;
@@ -164,9 +158,7 @@ public class Polyhedron
 				return i;
 			}
 		}
-		System.out.println("ERROR: Polyhedron.find_polygon_in_plane() - no polygon in that plane.");
-		System.exit(-1);
-		return null;
+		throw new IllegalStateException("Polyhedron.find_polygon_in_plane(): no polygon in that plane");
 	}
 	
 	public void mark_explored()
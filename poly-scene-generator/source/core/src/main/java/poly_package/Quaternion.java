@@ -0,0 +1,161 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.lang.Math;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+// This class implements the quaternion used for rotation of the scene
+public class Quaternion 
+{
+	double vertical_axis_x, vertical_axis_y, vertical_axis_z;			// A vector representing the axis of rotation for up/down keys
+	double horizontal_axis_x, horizontal_axis_y, horizontal_axis_z;		// A vector representing the axis of rotation for left/right keys
+	double rotation_increment = 2 * Math.PI / 360;						// Rotate by one degree per step
+	double total_x, total_y, total_z, total_w;							// Result of rotations to this point
+	final double camera_distance = -5.0;								// Distance of the camera in the z-axis from the origin
+	
+	// The directions the scene can be rotated in
+	static final int UP = 0;
+	static final int DOWN = 1;
+	static final int LEFT = 2;
+	static final int RIGHT = 3;
+	
+	// Reused by rotate(), so that rotating allocates nothing
+	double[] product = new double[4];
+	double[] matrix = new double[16];
+	DoubleBuffer matrix_buffer = DoubleBuffer.wrap(matrix);
+	
+	Quaternion()
+	{
+		// The initial position of the camera is on the positive z-axis, with positive x to the right and positive y up
+		vertical_axis_x = 1;
+		vertical_axis_y = 0;
+		vertical_axis_z = 0;
+		
+		horizontal_axis_x = 0;
+		horizontal_axis_y = 1;
+		horizontal_axis_z = 0;
+		
+		// Initialize to values representing no rotation
+		total_x = 0;
+		total_y = 0;
+		total_z = 0;
+		total_w = 1;
+	}
+	
+	// Creates a quaternion representing an arbitrary rotation (w, x, y, z) of the model, which need not be normalized.
+	Quaternion(double w, double x, double y, double z)
+	{
+		this();
+
+		double length = Math.sqrt(w*w + x*x + y*y + z*z);
+		total_w = w / length;
+		total_x = x / length;
+		total_y = y / length;
+		total_z = z / length;
+	}
+	
+	// Returns a rotation chosen uniformly at random (Shoemake's method), for generating random viewpoints.
+	public static Quaternion random_rotation(Random random)
+	{
+		double u1 = random.nextDouble();
+		double u2 = random.nextDouble() * 2 * Math.PI;
+		double u3 = random.nextDouble() * 2 * Math.PI;
+		
+		return new Quaternion(Math.sqrt(1 - u1) * Math.sin(u2), Math.sqrt(1 - u1) * Math.cos(u2), 
+								Math.sqrt(u1) * Math.sin(u3), Math.sqrt(u1) * Math.cos(u3));
+	}
+	
+	// Returns the 4x4 matrix (row-major) representing the rotation of the model and the position of the camera.
+	public double[][] get_rotation_matrix()
+	{
+		calculate_rotation_matrix();
+		double[][] result = new double[4][4];
+		for (int row = 0; row < 4; row++)
+		{
+			for (int column = 0; column < 4; column++)
+			{
+				result[row][column] = matrix[column * 4 + row];
+			}
+		}
+		return result;
+	}
+	
+	// Stores the 3x3 rotation (row-major, without the camera) in 'rotation', for rotating points directly.
+	public void get_rotation(double[] rotation)
+	{
+		calculate_rotation_matrix();
+		for (int row = 0; row < 3; row++)
+		{
+			for (int column = 0; column < 3; column++)
+			{
+				rotation[row * 3 + column] = matrix[column * 4 + row];
+			}
+		}
+	}
+	
+	// Rotate by rotation_increment in the specified direction (UP, DOWN, LEFT or RIGHT) and return a 4x4 matrix representing the 
+	//  rotation of the model from its original position.
+	public DoubleBuffer rotate(int direction)
+	{
+		return rotate(direction, rotation_increment);
+	}
+
+	// Rotate by 'angle' radians in the specified direction and return a 4x4 matrix representing the rotation of the model
+	//  from its original position.
+	// This function rotates around either the vertical axis or the horizontal axis.  The matrix is column-major, as glLoadMatrixd()
+	//  takes it, and the same buffer is returned (and overwritten) by every call.
+	public DoubleBuffer rotate(int direction, double angle)
+	{
+		double axis_x, axis_y, axis_z;
+		if (direction == UP || direction == DOWN)
+		{
+			axis_x = vertical_axis_x;
+			axis_y = vertical_axis_y;
+			axis_z = vertical_axis_z;
+		}
+		else
+		{
+			axis_x = horizontal_axis_x;
+			axis_y = horizontal_axis_y;
+			axis_z = horizontal_axis_z;
+		}
+		double half_angle = (direction == UP || direction == LEFT) ? -angle / 2 : angle / 2;
+		double sin = Math.sin(half_angle);
+		
+		// Use the incremental rotation to update the total quaternion by left multiplying it.  Remember that multiplication of 
+		//  quaternions is not commutative.
+		VectorMath.multiply_quaternions(Math.cos(half_angle), axis_x * sin, axis_y * sin, axis_z * sin, 
+										total_w, total_x, total_y, total_z, product);
+		total_w = product[0];
+		total_x = product[1];
+		total_y = product[2];
+		total_z = product[3];
+						
+		calculate_rotation_matrix();
+		return matrix_buffer;
+	}
+
+	// Calculate the rotation matrix representing the current values of the quaternion, and move the camera back from the origin.
+	private void calculate_rotation_matrix()
+	{
+		VectorMath.rotation_matrix(total_w, total_x, total_y, total_z, matrix);
+		matrix[14] = camera_distance;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,423 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// This class shows how the cost of generating a scene grows with the number of planes.  It runs create_scene() for a range of plane
+//  counts with several seeds each, recording the time of each stage, the peak heap and the number of lines, points, polygons and
+//  polyhedra, then fits a power law (time = c * planes^k) to each stage by least squares on the logarithms.  The exponent k says
+//  which stage will dominate as scenes get bigger, and the largest plane count which finished within the time budget is roughly the
+//  biggest scene the machine can handle.
+// The peak heap is the sum of the peaks of the heap memory pools since the scene started, after a collection beforehand; since the
+//  pools don't all peak at the same moment it can overstate the true peak a little.
+public class ScalingReport
+{
+	static final int[] PLANE_COUNTS = {10, 20, 30, 50, 75, 100, 150, 200, 300, 500};
+	static final long FIRST_SEED = 4900;
+
+	// The counts recorded for each scene, taken from Model's lists once the scene is finished
+	static final String[] COUNTS = {"lines", "points", "polygons", "polyhedra", "conglomerates"};
+
+	int seed_count = 3;
+	double poly_probability = 0.5;
+	double budget_seconds = 600;		// Larger plane counts aren't tried once a scene takes longer than this on average
+	File output_file;
+
+	List<MemoryPoolMXBean> heap_pools = new ArrayList<MemoryPoolMXBean>();
+
+	// One row per plane count: the averages over the scenes which finished
+	List<Integer> plane_counts = new ArrayList<Integer>();
+	List<Map<String, Double>> stage_milliseconds = new ArrayList<Map<String, Double>>();
+	List<double[]> average_counts = new ArrayList<double[]>();
+	List<Double> peak_heap_megabytes = new ArrayList<Double>();
+	List<Integer> finished_scenes = new ArrayList<Integer>();
+	List<Integer> failed_scenes = new ArrayList<Integer>();
+
+	public ScalingReport(File output_file)
+	{
+		this.output_file = output_file;
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP)
+			{
+				heap_pools.add(pool);
+			}
+		}
+	}
+
+	// Runs the scenes for each plane count in turn, writing a CSV line for each scene, until the list runs out or a plane count
+	//  goes over the time budget or out of memory.
+	public void run(int[] counts, PrintWriter csv)
+	{
+		// Untimed scenes of the smallest size first, so that the JIT has compiled the code before the small scenes are timed
+		for (int i = 0; i < seed_count; i++)
+		{
+			try
+			{
+				new Model(FIRST_SEED + i).create_scene(counts[0], poly_probability, output_file.getPath());
+			}
+			catch (RuntimeException ex)
+			{
+				// Failures are counted in the timed runs
+			}
+		}
+
+		for (int number_of_planes: counts)
+		{
+			Map<String, Double> stage_totals = new LinkedHashMap<String, Double>();
+			double[] count_totals = new double[COUNTS.length];
+			double heap_total = 0;
+			double total_milliseconds = 0;
+			int finished = 0, failed = 0;
+			boolean out_of_memory = false;
+
+			for (int i = 0; i < seed_count; i++)
+			{
+				long seed = FIRST_SEED + i;
+				Model model = new Model(seed);
+				System.gc();
+				for (MemoryPoolMXBean pool: heap_pools)
+				{
+					pool.resetPeakUsage();
+				}
+
+				boolean succeeded = false;
+				try
+				{
+					model.create_scene(number_of_planes, poly_probability, output_file.getPath());
+					succeeded = true;
+				}
+				catch (RuntimeException ex)
+				{
+					failed++;
+				}
+				catch (OutOfMemoryError ex)
+				{
+					model = null;
+					System.out.println("Out of memory at " + number_of_planes + " planes (seed " + seed + ")");
+					out_of_memory = true;
+					break;
+				}
+
+				double heap_megabytes = peak_heap() / (1024.0 * 1024.0);
+				SceneMetrics metrics = model.get_metrics();
+				int[] counts_now = {model.lines.size(), model.points.size(), model.polygons.size(), model.polyhedra.size(),
+									model.conglomerates.size()};
+				write_csv_line(csv, number_of_planes, seed, succeeded, metrics, counts_now, heap_megabytes);
+				total_milliseconds += metrics.get_total_nanoseconds() / 1e6;
+
+				// A failed scene stopped partway, so its times and counts would pull the averages down
+				if (succeeded)
+				{
+					finished++;
+					for (Map.Entry<String, Long> stage: metrics.get_stage_nanoseconds().entrySet())
+					{
+						Double total = stage_totals.get(stage.getKey());
+						stage_totals.put(stage.getKey(), ((total == null) ? 0 : total) + stage.getValue() / 1e6);
+					}
+					for (int c = 0; c < COUNTS.length; c++)
+					{
+						count_totals[c] += counts_now[c];
+					}
+					heap_total += heap_megabytes;
+				}
+			}
+
+			if (finished > 0)
+			{
+				for (Map.Entry<String, Double> stage: stage_totals.entrySet())
+				{
+					stage.setValue(stage.getValue() / finished);
+				}
+				for (int c = 0; c < COUNTS.length; c++)
+				{
+					count_totals[c] /= finished;
+				}
+				plane_counts.add(number_of_planes);
+				stage_milliseconds.add(stage_totals);
+				average_counts.add(count_totals);
+				peak_heap_megabytes.add(heap_total / finished);
+				finished_scenes.add(finished);
+				failed_scenes.add(failed);
+			}
+			System.out.println(String.format(Locale.ROOT, "%d planes: %d finished, %d failed, %.1f s per scene", number_of_planes,
+												finished, failed, total_milliseconds / 1000 / Math.max(1, finished + failed)));
+			if (csv != null)
+			{
+				csv.flush();
+			}
+
+			if (out_of_memory)
+			{
+				break;
+			}
+			if (total_milliseconds / 1000 / Math.max(1, finished + failed) > budget_seconds)
+			{
+				System.out.println("Stopping: scenes with " + number_of_planes + " planes took longer than the budget of "
+									+ budget_seconds + " s");
+				break;
+			}
+		}
+	}
+
+	long peak_heap()
+	{
+		long peak = 0;
+		for (MemoryPoolMXBean pool: heap_pools)
+		{
+			peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	void write_csv_line(PrintWriter csv, int number_of_planes, long seed, boolean succeeded, SceneMetrics metrics, int[] counts,
+						double heap_megabytes)
+	{
+		if (csv == null)
+		{
+			return;
+		}
+		StringBuilder line = new StringBuilder();
+		line.append(number_of_planes).append(",").append(seed).append(",").append(succeeded ? "ok" : "failed");
+		for (String stage: stage_names())
+		{
+			Long nanoseconds = metrics.get_stage_nanoseconds().get(stage);
+			line.append(",").append((nanoseconds == null) ? "" : String.format(Locale.ROOT, "%.3f", nanoseconds / 1e6));
+		}
+		line.append(",").append(String.format(Locale.ROOT, "%.3f", metrics.get_total_nanoseconds() / 1e6));
+		line.append(",").append(String.format(Locale.ROOT, "%.1f", heap_megabytes));
+		for (int count: counts)
+		{
+			line.append(",").append(count);
+		}
+		csv.println(line);
+	}
+
+	static List<String> stage_names()
+	{
+		List<String> stages = new ArrayList<String>();
+		stages.add(SceneProgress.PLANES);
+		stages.add(SceneProgress.LINES);
+		stages.add(SceneProgress.POINTS);
+		stages.add(SceneProgress.POLYGONS);
+		stages.add(SceneProgress.POLYHEDRA);
+		stages.add(SceneProgress.CONGLOMERATES);
+		stages.add(SceneProgress.OUTPUT);
+		return stages;
+	}
+
+	static String csv_header()
+	{
+		StringBuilder header = new StringBuilder("planes,seed,result");
+		for (String stage: stage_names())
+		{
+			header.append(",").append(stage).append("_ms");
+		}
+		header.append(",total_ms,peak_heap_mb");
+		for (String count: COUNTS)
+		{
+			header.append(",").append(count);
+		}
+		return header.toString();
+	}
+
+	// Fits y = c * x^k by least squares on log y against log x, leaving out points where y is 0.  Returns {k, r squared}, or null if
+	//  there are fewer than two points.
+	static double[] fit_exponent(List<Integer> x, List<Double> y)
+	{
+		double n = 0, sum_x = 0, sum_y = 0, sum_xx = 0, sum_xy = 0, sum_yy = 0;
+		for (int i = 0; i < x.size(); i++)
+		{
+			if (y.get(i) == null || y.get(i) <= 0)
+			{
+				continue;
+			}
+			double log_x = Math.log(x.get(i));
+			double log_y = Math.log(y.get(i));
+			n++;
+			sum_x += log_x;
+			sum_y += log_y;
+			sum_xx += log_x * log_x;
+			sum_xy += log_x * log_y;
+			sum_yy += log_y * log_y;
+		}
+		double variance_x = n * sum_xx - sum_x * sum_x;
+		if (n < 2 || variance_x <= 0)
+		{
+			return null;
+		}
+		double slope = (n * sum_xy - sum_x * sum_y) / variance_x;
+		double variance_y = n * sum_yy - sum_y * sum_y;
+		double r_squared = (variance_y <= 0) ? 1 : (n * sum_xy - sum_x * sum_y) * (n * sum_xy - sum_x * sum_y) / (variance_x * variance_y);
+		return new double[] {slope, r_squared};
+	}
+
+	// Prints the averages for each plane count, then the growth exponent of each stage, the peak heap and the counts.
+	public void print_summary()
+	{
+		System.out.println();
+		StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%6s %4s %4s", "planes", "ok", "fail"));
+		for (String stage: stage_names())
+		{
+			header.append(String.format(Locale.ROOT, " %13s", stage + " ms"));
+		}
+		header.append(String.format(Locale.ROOT, " %9s %8s %9s %8s", "heap MB", "points", "polygons", "polyhedra"));
+		System.out.println(header);
+		for (int row = 0; row < plane_counts.size(); row++)
+		{
+			StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%6d %4d %4d", plane_counts.get(row),
+																	finished_scenes.get(row), failed_scenes.get(row)));
+			for (String stage: stage_names())
+			{
+				Double milliseconds = stage_milliseconds.get(row).get(stage);
+				line.append(String.format(Locale.ROOT, " %13.1f", (milliseconds == null) ? 0 : milliseconds));
+			}
+			double[] counts = average_counts.get(row);
+			line.append(String.format(Locale.ROOT, " %9.1f %8.0f %9.0f %8.0f", peak_heap_megabytes.get(row), counts[1], counts[2],
+										counts[3]));
+			System.out.println(line);
+		}
+
+		System.out.println();
+		System.out.println("Growth with the number of planes (y = c * planes^k):");
+		System.out.println(String.format(Locale.ROOT, "%-20s %7s %7s", "", "k", "r^2"));
+		for (String stage: stage_names())
+		{
+			List<Double> values = new ArrayList<Double>();
+			for (Map<String, Double> row: stage_milliseconds)
+			{
+				values.add(row.get(stage));
+			}
+			print_fit(stage + " time", values);
+		}
+		print_fit("peak heap", peak_heap_megabytes);
+		for (int c = 0; c < COUNTS.length; c++)
+		{
+			List<Double> values = new ArrayList<Double>();
+			for (double[] counts: average_counts)
+			{
+				values.add(counts[c]);
+			}
+			print_fit(COUNTS[c], values);
+		}
+
+		if (!plane_counts.isEmpty())
+		{
+			System.out.println();
+			System.out.println("Largest plane count finished: " + plane_counts.get(plane_counts.size() - 1));
+		}
+	}
+
+	void print_fit(String name, List<Double> values)
+	{
+		double[] fit = fit_exponent(plane_counts, values);
+		if (fit == null)
+		{
+			System.out.println(String.format(Locale.ROOT, "%-20s %7s %7s", name, "-", "-"));
+		}
+		else
+		{
+			System.out.println(String.format(Locale.ROOT, "%-20s %7.2f %7.3f", name, fit[0], fit[1]));
+		}
+	}
+
+	// Usage: ScalingReport [--planes list] [--seeds count] [--probability p] [--budget seconds] [--csv file]
+	public static void main(String[] args)
+	{
+		int[] counts = PLANE_COUNTS;
+		String csv_file = null;
+		File output_file;
+		try
+		{
+			output_file = File.createTempFile("scaling-report", ".obj");
+			output_file.deleteOnExit();
+			new File(Model.labels_filename(output_file.getPath())).deleteOnExit();
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+			return;
+		}
+		ScalingReport report = new ScalingReport(output_file);
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--planes") && i + 1 < args.length)
+			{
+				counts = AllocationHarness.parse_ints(args[++i]);
+			}
+			else if (args[i].equals("--seeds") && i + 1 < args.length)
+			{
+				report.seed_count = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("--probability") && i + 1 < args.length)
+			{
+				report.poly_probability = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("--budget") && i + 1 < args.length)
+			{
+				report.budget_seconds = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("--csv") && i + 1 < args.length)
+			{
+				csv_file = args[++i];
+			}
+			else
+			{
+				System.out.println("Usage: ScalingReport [--planes list] [--seeds count] [--probability p] [--budget seconds] "
+									+ "[--csv file]");
+				return;
+			}
+		}
+
+		PrintWriter csv = null;
+		if (csv_file != null)
+		{
+			try
+			{
+				csv = new PrintWriter(csv_file, "UTF-8");
+				csv.println(csv_header());
+			}
+			catch (IOException ex)
+			{
+				System.out.println("Error writing to file: " + ex);
+				return;
+			}
+		}
+
+		System.out.println("Seeds " + FIRST_SEED + " to " + (FIRST_SEED + report.seed_count - 1) + ", probability "
+							+ report.poly_probability + ", max heap " + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+		report.run(counts, csv);
+		if (csv != null)
+		{
+			csv.close();
+		}
+		report.print_summary();
+	}
+}
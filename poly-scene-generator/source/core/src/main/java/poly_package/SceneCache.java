@@ -0,0 +1,339 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// SceneCache keeps finished scenes in a directory so that a sweep which is run again (after a crash, or with some settings changed)
+//  copies the scenes it has already made instead of generating them again.  A seeded scene is always the same, so each is stored
+//  under a SHA-256 hash of everything that decides its contents: the seed, the number of planes, the probability, the format and
+//  Model.GENERATOR_VERSION, which is changed whenever a change to the generator changes the scene a seed gives.
+// An .obj scene is stored as key.obj and key.labels, and a .glb scene as key.glb.  A seed which fails always fails, so that's
+//  remembered too, as an empty key.failed.  Files are written under a temporary name in the directory and then renamed, so an entry
+//  is either complete or not there, even if the program is killed partway through (apart from a .labels file written before its .obj
+//  file, which is deleted when the cache is next opened).
+// The index of entries is read from the directory when the cache is opened and kept in memory, so a lookup doesn't touch the disk.
+//  Once the entries take up more than the size limit, the least recently used are deleted; the last use of each is kept as its
+//  file's modification time, so the order survives from one run to the next.
+public class SceneCache
+{
+	static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+	static final String[] EXTENSIONS = {".obj", ".glb", ".failed"};		// The file which marks a complete entry
+
+	Path directory;
+	long max_bytes;
+	long total_bytes = 0;
+	Map<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);		// Bytes by key, least recently used first
+	Set<String> failures = new HashSet<String>();
+
+	public SceneCache(Path directory, long max_bytes) throws IOException
+	{
+		this.directory = directory;
+		this.max_bytes = max_bytes;
+		Files.createDirectories(directory);
+
+		// Add up the files of each entry, and find when each was last used
+		final Map<String, Long> sizes = new HashMap<String, Long>();
+		final Map<String, FileTime> last_used = new HashMap<String, FileTime>();
+		DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+		try
+		{
+			for (Path file: files)
+			{
+				String name = file.getFileName().toString();
+				if (name.endsWith(".tmp"))
+				{
+					Files.deleteIfExists(file);		// Left by a write which didn't finish
+					continue;
+				}
+				int dot = name.indexOf('.');
+				if (dot < 0)
+				{
+					continue;
+				}
+				String key = name.substring(0, dot);
+				Long size = sizes.get(key);
+				sizes.put(key, ((size == null) ? 0 : size) + Files.size(file));
+				if (is_entry_file(name))
+				{
+					last_used.put(key, Files.getLastModifiedTime(file));
+				}
+				if (name.endsWith(".failed"))
+				{
+					failures.add(key);
+				}
+			}
+		}
+		finally
+		{
+			files.close();
+		}
+
+		// A .labels file is stored before its .obj file, so a run killed in between leaves one with no entry; it would never be used
+		//  or evicted
+		for (String key: sizes.keySet())
+		{
+			if (!last_used.containsKey(key))
+			{
+				Files.deleteIfExists(directory.resolve(key + ".labels"));
+			}
+		}
+
+		List<String> keys = new ArrayList<String>(last_used.keySet());
+		Collections.sort(keys, new Comparator<String>()
+		{
+			public int compare(String a, String b)
+			{
+				return last_used.get(a).compareTo(last_used.get(b));
+			}
+		});
+		for (String key: keys)
+		{
+			entries.put(key, sizes.get(key));
+			total_bytes += sizes.get(key);
+		}
+		evict();
+	}
+
+	static boolean is_entry_file(String name)
+	{
+		for (String extension: EXTENSIONS)
+		{
+			if (name.endsWith(extension))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// The format of a scene file, from its name, as Model.output_scene() decides it.
+	static String format(String output_filename)
+	{
+		return output_filename.endsWith(".glb") ? "glb" : "obj";
+	}
+
+	public static String key(long seed, int number_of_planes, double poly_probability, String format)
+	{
+		String description = Model.GENERATOR_VERSION + " " + seed + " " + number_of_planes + " " + Double.toString(poly_probability)
+								+ " " + format;
+		try
+		{
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b: hash)
+			{
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException("SHA-256 isn't available", ex);		// Every JVM has to provide it
+		}
+	}
+
+	// Copies a cached scene to output_filename (and its .labels file beside it for .obj).  Returns false if it isn't cached.
+	public boolean fetch(long seed, int number_of_planes, double poly_probability, String output_filename)
+	{
+		String format = format(output_filename);
+		String key = key(seed, number_of_planes, poly_probability, format);
+		synchronized (this)
+		{
+			if (entries.get(key) == null || failures.contains(key))
+			{
+				return false;
+			}
+		}
+
+		try
+		{
+			Path scene = directory.resolve(key + "." + format);
+			Files.copy(scene, Paths.get(output_filename), StandardCopyOption.REPLACE_EXISTING);
+			if (format.equals("obj"))
+			{
+				Files.copy(directory.resolve(key + ".labels"), Paths.get(Model.labels_filename(output_filename)),
+							StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.setLastModifiedTime(scene, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		}
+		catch (NoSuchFileException ex)
+		{
+			forget(key);		// Evicted by another thread, or deleted by hand
+			return false;
+		}
+		catch (IOException ex)
+		{
+			System.out.println("ERROR reading the scene cache; " + ex);
+			return false;
+		}
+	}
+
+	// Tells whether this scene is known to fail.
+	public boolean is_failure(long seed, int number_of_planes, double poly_probability, String format)
+	{
+		String key = key(seed, number_of_planes, poly_probability, format);
+		synchronized (this)
+		{
+			return failures.contains(key);
+		}
+	}
+
+	// Adds a scene which has just been written to output_filename to the cache.
+	public void store(long seed, int number_of_planes, double poly_probability, String output_filename)
+	{
+		String format = format(output_filename);
+		String key = key(seed, number_of_planes, poly_probability, format);
+		try
+		{
+			long bytes = 0;
+			// The labels go in first, so the entry isn't complete until the .obj file is there too
+			if (format.equals("obj"))
+			{
+				bytes += add_file(Paths.get(Model.labels_filename(output_filename)), key + ".labels");
+			}
+			bytes += add_file(Paths.get(output_filename), key + "." + format);
+			add_entry(key, bytes);
+		}
+		catch (IOException ex)
+		{
+			System.out.println("ERROR writing to the scene cache; " + ex);
+		}
+	}
+
+	// Records that this scene fails, so it isn't tried again.
+	public void store_failure(long seed, int number_of_planes, double poly_probability, String format)
+	{
+		String key = key(seed, number_of_planes, poly_probability, format);
+		try
+		{
+			Path temporary = Files.createTempFile(directory, key, ".tmp");
+			move_into_place(temporary, directory.resolve(key + ".failed"));
+			synchronized (this)
+			{
+				failures.add(key);
+				add_entry(key, 0);
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("ERROR writing to the scene cache; " + ex);
+		}
+	}
+
+	// Copies a file into the cache under a temporary name, then renames it, and returns its size.
+	long add_file(Path source, String name) throws IOException
+	{
+		Path temporary = Files.createTempFile(directory, name, ".tmp");
+		try
+		{
+			Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+			move_into_place(temporary, directory.resolve(name));
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary);
+		}
+		return Files.size(directory.resolve(name));
+	}
+
+	static void move_into_place(Path temporary, Path destination) throws IOException
+	{
+		try
+		{
+			Files.move(temporary, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException ex)
+		{
+			Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	synchronized void add_entry(String key, long bytes)
+	{
+		Long old_bytes = entries.put(key, bytes);
+		total_bytes += bytes - ((old_bytes == null) ? 0 : old_bytes);
+		evict();
+	}
+
+	synchronized void forget(String key)
+	{
+		Long bytes = entries.remove(key);
+		failures.remove(key);
+		if (bytes != null)
+		{
+			total_bytes -= bytes;
+		}
+	}
+
+	// Deletes the least recently used entries until the cache is within its size limit.
+	synchronized void evict()
+	{
+		Iterator<Map.Entry<String, Long>> oldest = entries.entrySet().iterator();
+		while (total_bytes > max_bytes && oldest.hasNext())
+		{
+			Map.Entry<String, Long> entry = oldest.next();
+			for (String extension: new String[] {".obj", ".labels", ".glb", ".failed"})
+			{
+				try
+				{
+					Files.deleteIfExists(directory.resolve(entry.getKey() + extension));
+				}
+				catch (IOException ex)
+				{
+					System.out.println("ERROR deleting from the scene cache; " + ex);
+				}
+			}
+			total_bytes -= entry.getValue();
+			failures.remove(entry.getKey());
+			oldest.remove();
+		}
+	}
+
+	public synchronized int get_entry_count()
+	{
+		return entries.size();
+	}
+
+	public synchronized long get_total_bytes()
+	{
+		return total_bytes;
+	}
+}
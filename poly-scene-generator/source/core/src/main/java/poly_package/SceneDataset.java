@@ -0,0 +1,348 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+// This class reads a dataset written by SceneDatasetWriter, building each scene again from its arrangement's planes and its
+//  variant's bitmask.  The header and index are read when the file is opened, so any variant can be read with one small read for
+//  its bitmask (and one for its arrangement's planes, if it isn't the arrangement of the last variant read).  The last arrangement
+//  is kept, and VisibilityVariants only rebuilds the conglomerates which differ, so reading the variants of an arrangement one after
+//  another costs much less than reading them in random order.
+// A dataset can only be read by the generator version which wrote it, since another might make different polyhedra from the same
+//  planes.  A SceneDataset isn't safe to share between threads; each thread of a data loader should open its own.
+public class SceneDataset
+{
+	FileChannel channel;
+	String generator_version;
+	long[] arrangement_offsets;
+	long[] variant_offsets;
+
+	int arrangement_number = -1;		// The arrangement built last, and its model
+	Model model;
+	VisibilityVariants variants;
+	ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+	public SceneDataset(String filename) throws IOException
+	{
+		channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try
+		{
+			read(0, 10);
+			if (buffer.getInt() != SceneDatasetWriter.MAGIC)
+			{
+				throw new IOException(filename + " isn't a scene dataset");
+			}
+			int format_version = buffer.getInt();
+			if (format_version != SceneDatasetWriter.FORMAT_VERSION)
+			{
+				throw new IOException(filename + " has format version " + format_version + ", not "
+										+ SceneDatasetWriter.FORMAT_VERSION);
+			}
+			int version_length = buffer.getShort();
+			read(10, version_length + 16);
+			byte[] version = new byte[version_length];
+			buffer.get(version);
+			generator_version = new String(version, StandardCharsets.UTF_8);
+			if (!generator_version.equals(Model.GENERATOR_VERSION))
+			{
+				throw new IOException(filename + " was made by generator version " + generator_version + ", not "
+										+ Model.GENERATOR_VERSION);
+			}
+			arrangement_offsets = new long[buffer.getInt()];
+			variant_offsets = new long[buffer.getInt()];
+			long index_offset = buffer.getLong();
+
+			ByteBuffer index = ByteBuffer.allocate((arrangement_offsets.length + variant_offsets.length) * 8)
+											.order(ByteOrder.LITTLE_ENDIAN);
+			read_fully(index, index_offset);
+			index.asLongBuffer().get(arrangement_offsets).get(variant_offsets);
+		}
+		catch (IOException ex)
+		{
+			channel.close();
+			throw ex;
+		}
+	}
+
+	// Reads 'length' bytes from 'offset' into 'buffer', ready to be got.
+	private void read(long offset, int length) throws IOException
+	{
+		if (buffer.capacity() < length)
+		{
+			buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		buffer.clear();
+		buffer.limit(length);
+		read_fully(buffer, offset);
+	}
+
+	private void read_fully(ByteBuffer into, long offset) throws IOException
+	{
+		while (into.hasRemaining())
+		{
+			int count = channel.read(into, offset);
+			if (count < 0)
+			{
+				throw new IOException("The dataset ends early");
+			}
+			offset += count;
+		}
+		into.flip();
+	}
+
+	public int get_arrangement_count()
+	{
+		return arrangement_offsets.length;
+	}
+
+	public int get_variant_count()
+	{
+		return variant_offsets.length;
+	}
+
+	// Returns which polyhedra (by name) are visible in a variant.  The arrangement it belongs to is built if it isn't already.
+	public boolean[] get_visibility(int variant) throws IOException
+	{
+		read(variant_offsets[variant], 4);
+		use_arrangement(buffer.getInt());
+
+		int polyhedron_count = model.polyhedra.size();
+		read(variant_offsets[variant] + 12, (polyhedron_count + 7) / 8);
+		boolean[] visible = new boolean[polyhedron_count];
+		for (int i = 0; i < polyhedron_count; i += 8)
+		{
+			int mask = buffer.get();
+			for (int bit = 0; bit < 8 && i + bit < polyhedron_count; bit++)
+			{
+				visible[i + bit] = (mask & (1 << bit)) != 0;
+			}
+		}
+		return visible;
+	}
+
+	// Builds a variant's scene and returns its conglomerates, which are only valid until the next call.
+	public List<Conglomerate> get_scene(int variant) throws IOException
+	{
+		boolean[] visible = get_visibility(variant);
+		return variants.choose(visible);
+	}
+
+	// Returns the seed the arrangement of a variant was generated from, as given to Main or BatchRunner.
+	public long get_seed(int variant) throws IOException
+	{
+		read(variant_offsets[variant], 4);
+		read(arrangement_offsets[buffer.getInt()], 8);
+		return buffer.getLong();
+	}
+
+	// Builds an arrangement from its planes, unless it was the last one built.
+	private void use_arrangement(int number) throws IOException
+	{
+		if (number == arrangement_number)
+		{
+			return;
+		}
+
+		read(arrangement_offsets[number], 16);
+		long seed = buffer.getLong();
+		int plane_count = buffer.getInt();
+		int polyhedron_count = buffer.getInt();
+		read(arrangement_offsets[number] + 16, plane_count * 40);
+		double[][] plane_values = new double[plane_count][5];
+		for (double[] values: plane_values)
+		{
+			buffer.asDoubleBuffer().get(values);
+			buffer.position(buffer.position() + 40);
+		}
+
+		arrangement_number = -1;
+		model = new Model(seed);
+		model.generate_arrangement(plane_values);
+		if (model.polyhedra.size() != polyhedron_count)
+		{
+			throw new IOException("Arrangement " + number + " gave " + model.polyhedra.size() + " polyhedra, but had "
+									+ polyhedron_count + " when it was written");
+		}
+		variants = new VisibilityVariants(model);
+		arrangement_number = number;
+	}
+
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	// Makes a dataset of 'count' variants of each of 'arrangements' arrangements from consecutive seeds, each variant with new random
+	//  numbers (as VisibilityVariants --variants does).  Only variants which can be built are kept, so every one in the file can be
+	//  read.
+	static void create(String filename, int number_of_planes, double poly_probability, int arrangements, int count, long first_seed)
+					throws IOException
+	{
+		SceneDatasetWriter writer = new SceneDatasetWriter(filename);
+		int failed = 0;
+		long start_time = System.nanoTime();
+		try
+		{
+			for (int i = 0; i < arrangements; i++)
+			{
+				Model model = new Model(first_seed + i);
+				try
+				{
+					model.generate_arrangement(number_of_planes);
+				}
+				catch (RuntimeException ex)
+				{
+					System.out.println("ERROR in SceneDataset -> arrangement " + (first_seed + i) + "; " + ex);
+					failed += count;
+					continue;
+				}
+				writer.add_arrangement(model);
+
+				VisibilityVariants variants = new VisibilityVariants(model);
+				for (int j = 0; j < count; j++)
+				{
+					boolean[] visible = new boolean[model.polyhedra.size()];
+					double[] draws = model.draw_visibility();
+					for (int k = 0; k < draws.length; k++)
+					{
+						visible[k] = draws[k] < poly_probability;
+					}
+					try
+					{
+						variants.choose(visible);
+					}
+					catch (RuntimeException ex)
+					{
+						failed++;
+						continue;
+					}
+					writer.add_variant(visible, poly_probability);
+				}
+			}
+			writer.close();
+		}
+		catch (IOException ex)
+		{
+			writer.abandon();
+			throw ex;
+		}
+		double seconds = (System.nanoTime() - start_time) / 1e9;
+		System.out.println("Wrote " + writer.get_variant_count() + " variants (" + failed + " failed) of " + arrangements
+							+ " arrangements in " + seconds + " s, " + Files.size(Paths.get(filename)) + " bytes");
+	}
+
+	// Builds 'count' variants in random order (as a data loader would ask for them) and in the order they're stored, and prints how
+	//  long each took.
+	void time_reading(int count) throws IOException
+	{
+		Random random = new Random(0);
+		long start_time = System.nanoTime();
+		for (int i = 0; i < count; i++)
+		{
+			get_scene(random.nextInt(get_variant_count()));
+		}
+		double random_ms = (System.nanoTime() - start_time) / 1e6 / count;
+
+		start_time = System.nanoTime();
+		for (int i = 0; i < count; i++)
+		{
+			get_scene(i % get_variant_count());
+		}
+		double stored_ms = (System.nanoTime() - start_time) / 1e6 / count;
+		System.out.println("Built " + count + " variants at " + random_ms + " ms each in random order and " + stored_ms
+							+ " ms each in stored order");
+	}
+
+	// Creates a dataset, describes one, writes one of its scenes as .obj (with its .labels) or .glb, or times reading one.
+	public static void main(String[] args)
+	{
+		if (args.length < 2 || (args[0].equals("create") && args.length < 7) || (args[0].equals("extract") && args.length < 4)
+				|| (args[0].equals("time") && args.length < 3))
+		{
+			System.out.println("Usage: SceneDataset create file planes probability arrangements variants first_seed");
+			System.out.println("       SceneDataset info file");
+			System.out.println("       SceneDataset extract file variant output_file");
+			System.out.println("       SceneDataset time file count");
+			return;
+		}
+
+		if (args[0].equals("create"))
+		{
+			try
+			{
+				create(args[1], Integer.parseInt(args[2]), Double.parseDouble(args[3]), Integer.parseInt(args[4]),
+						Integer.parseInt(args[5]), Long.parseLong(args[6]));
+			}
+			catch (IOException ex)
+			{
+				System.out.println("Error writing to file: " + ex);
+			}
+			return;
+		}
+
+		try
+		{
+			SceneDataset dataset = new SceneDataset(args[1]);
+			try
+			{
+				if (args[0].equals("info"))
+				{
+					System.out.println(args[1] + ": generator version " + dataset.generator_version + ", "
+										+ dataset.get_arrangement_count() + " arrangements, " + dataset.get_variant_count()
+										+ " variants");
+				}
+				else if (args[0].equals("extract"))
+				{
+					int variant = Integer.parseInt(args[2]);
+					List<Conglomerate> conglomerates = dataset.get_scene(variant);
+					if (args[3].endsWith(".glb"))
+					{
+						new GlbWriter(conglomerates).write(args[3]);
+					}
+					else
+					{
+						VisibilityVariants.write_variant(conglomerates, args[3]);
+					}
+					System.out.println("Wrote variant " + variant + " (seed " + dataset.get_seed(variant) + ") to " + args[3]);
+				}
+				else if (args[0].equals("time"))
+				{
+					dataset.time_reading(Integer.parseInt(args[2]));
+				}
+			}
+			finally
+			{
+				dataset.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error reading dataset: " + ex);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// This class writes a dataset of scenes in the compact form SceneDataset reads.  A scene is decided entirely by its planes and which
+//  of its polyhedra are visible, so instead of the scene's polygons the file holds each arrangement's planes (five doubles each) and a
+//  bitmask for each variant of it, one bit per polyhedron.  SceneDataset builds the scenes again from these when they're read.
+// The file is, in little-endian numbers:
+//  a header: the int "PSGD", the format version (int), Model.GENERATOR_VERSION (a short giving its length, then UTF-8), the numbers
+//   of arrangements and variants (ints), and the offset of the index (long);
+//  an arrangement: its seed (long), the numbers of planes and polyhedra (ints), then x, y, z, theta and phi of each plane (doubles);
+//  a variant: its arrangement's number (int), its probability (double), then (polyhedra + 7) / 8 bytes of bitmask, with polyhedron
+//   i visible if bit i % 8 of byte i / 8 is set;
+//  the index, at the end: the offset of each arrangement and then of each variant (longs).
+// Each variant is written after its arrangement.  The file is written under a temporary name and renamed once it's complete.
+public class SceneDatasetWriter
+{
+	static final int MAGIC = 0x44475350;			// "PSGD"
+	static final int FORMAT_VERSION = 1;
+
+	Path path;
+	Path temporary_path;
+	FileChannel channel;
+	ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+	long position = 0;								// The offset in the file of the start of 'buffer'
+	List<Long> arrangement_offsets = new ArrayList<Long>();
+	List<Long> variant_offsets = new ArrayList<Long>();
+	int polyhedron_count = -1;						// The number of polyhedra in the last arrangement
+
+	public SceneDatasetWriter(String filename) throws IOException
+	{
+		path = Paths.get(filename).toAbsolutePath();
+		temporary_path = path.resolveSibling(path.getFileName() + ".tmp");
+		channel = FileChannel.open(temporary_path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+									StandardOpenOption.TRUNCATE_EXISTING);
+		put_header(0);			// Written again with the counts by close()
+	}
+
+	private void put_header(long index_offset)
+	{
+		byte[] version = Model.GENERATOR_VERSION.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putShort((short) version.length);
+		buffer.put(version);
+		buffer.putInt(arrangement_offsets.size());
+		buffer.putInt(variant_offsets.size());
+		buffer.putLong(index_offset);
+	}
+
+	// Adds the arrangement of a model which has had generate_arrangement() called; the variants added after it belong to it.
+	public void add_arrangement(Model model) throws IOException
+	{
+		make_room(16 + model.planes.size() * 40);
+		arrangement_offsets.add(position + buffer.position());
+		buffer.putLong(model.seed);
+		buffer.putInt(model.planes.size());
+		buffer.putInt(model.polyhedra.size());
+		for (Plane plane: model.planes)
+		{
+			buffer.putDouble(plane.x_point);
+			buffer.putDouble(plane.y_point);
+			buffer.putDouble(plane.z_point);
+			buffer.putDouble(plane.theta);
+			buffer.putDouble(plane.phi);
+		}
+		polyhedron_count = model.polyhedra.size();
+	}
+
+	// Adds a variant of the last arrangement, with the polyhedra marked in 'visible' (by name) visible.
+	public void add_variant(boolean[] visible, double poly_probability) throws IOException
+	{
+		if (visible.length != polyhedron_count)
+		{
+			throw new IllegalArgumentException("The variant has " + visible.length + " polyhedra but its arrangement has "
+												+ polyhedron_count);
+		}
+		int mask_length = (visible.length + 7) / 8;
+		make_room(12 + mask_length);
+		variant_offsets.add(position + buffer.position());
+		buffer.putInt(arrangement_offsets.size() - 1);
+		buffer.putDouble(poly_probability);
+		for (int i = 0; i < mask_length; i++)
+		{
+			int mask = 0;
+			for (int bit = 0; bit < 8 && i * 8 + bit < visible.length; bit++)
+			{
+				if (visible[i * 8 + bit])
+				{
+					mask |= 1 << bit;
+				}
+			}
+			buffer.put((byte) mask);
+		}
+	}
+
+	// Writes out the buffer if it hasn't room for 'length' more bytes, and makes it bigger if that still isn't enough.
+	private void make_room(int length) throws IOException
+	{
+		if (buffer.remaining() >= length)
+		{
+			return;
+		}
+		flush();
+		if (buffer.capacity() < length)
+		{
+			buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			position += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	public int get_variant_count()
+	{
+		return variant_offsets.size();
+	}
+
+	// Writes the index and the finished header, and renames the file into place.
+	public void close() throws IOException
+	{
+		try
+		{
+			long index_offset = position + buffer.position();
+			for (Long offset: arrangement_offsets)
+			{
+				make_room(8);
+				buffer.putLong(offset);
+			}
+			for (Long offset: variant_offsets)
+			{
+				make_room(8);
+				buffer.putLong(offset);
+			}
+			flush();
+
+			put_header(index_offset);
+			buffer.flip();
+			long header_position = 0;
+			while (buffer.hasRemaining())
+			{
+				header_position += channel.write(buffer, header_position);
+			}
+			buffer.clear();
+			channel.force(false);
+		}
+		finally
+		{
+			channel.close();
+		}
+		SceneCache.move_into_place(temporary_path, path);
+	}
+
+	// Closes the file without finishing it, and deletes it.
+	public void abandon()
+	{
+		try
+		{
+			channel.close();
+			Files.deleteIfExists(temporary_path);
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error deleting " + temporary_path + ": " + ex);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A Java Flight Recorder event covering Model.generate_scene(), with the scene's parameters and the number of each kind of element
+//  it created.  Like the other events here it costs almost nothing unless a recording with it enabled is running.
+@Name("poly_package.Scene")
+@Label("Scene Generation")
+@Category({"Polyhedral Scene Generator"})
+@Description("Generation of one scene, from the planes to the conglomerates")
+public class SceneEvent extends Event
+{
+	@Label("Seed")
+	long seed;
+
+	@Label("Planes")
+	int planes;
+
+	@Label("Probability")
+	double probability;
+
+	@Label("Lines")
+	int lines;
+
+	@Label("Points")
+	int points;
+
+	@Label("Polygons")
+	int polygons;
+
+	@Label("Polyhedra")
+	int polyhedra;
+
+	@Label("Chosen Polyhedra")
+	int chosen_polyhedra;
+
+	@Label("Conglomerates")
+	int conglomerates;
+
+	@Label("Failed")
+	@Description("Generation stopped with an exception")
+	boolean failed;
+}
@@ -0,0 +1,243 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// This class packs a finished scene into flat arrays ready to be uploaded to the graphics card: one position per point (three
+//  floats), three indices per triangle of the filled faces, and two indices per outline edge.  Each point is stored once however
+//  many faces share it, and each edge once however many outlines it's in.
+// Meshes can be appended to each other, so that a scene can be displayed a conglomerate at a time while it's being generated.  The
+//  arrays grow by doubling, so only the first get_*_count() entries of each are in use.
+public class SceneMesh
+{
+	static final int BINARY_MAGIC = 0x4D475350;		// "PSGM" in the first four bytes of write_binary()'s output
+	static final int BINARY_VERSION = 1;
+	static final int BINARY_HEADER_SIZE = 20;
+
+	float[] positions;
+	int[] triangle_indices;
+	int[] line_indices;
+	int position_count = 0;
+	int triangle_index_count = 0;
+	int line_index_count = 0;
+
+	// Creates an empty mesh.
+	public SceneMesh()
+	{
+		positions = new float[0];
+		triangle_indices = new int[0];
+		line_indices = new int[0];
+	}
+
+	// Creates a mesh from arrays which have already been packed (see ObjReader).
+	SceneMesh(float[] positions, int[] triangle_indices, int[] line_indices)
+	{
+		this.positions = positions;
+		this.triangle_indices = triangle_indices;
+		this.line_indices = line_indices;
+		position_count = positions.length;
+		triangle_index_count = triangle_indices.length;
+		line_index_count = line_indices.length;
+	}
+
+	public SceneMesh(List<Conglomerate> conglomerates)
+	{
+		HashMap<Point, Integer> point_indices = new HashMap<Point, Integer>();
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				triangle_index_count += gon.get_triangles().length;
+				for (Point current_point: gon.points)
+				{
+					if (!point_indices.containsKey(current_point))
+					{
+						point_indices.put(current_point, point_indices.size());
+					}
+				}
+			}
+			line_index_count += conglo.get_labelled_edges().size() * 2;
+		}
+
+		position_count = point_indices.size() * 3;
+		positions = new float[position_count];
+		for (Point current_point: point_indices.keySet())
+		{
+			int index = point_indices.get(current_point);
+			positions[index * 3] = (float)current_point.x_point;
+			positions[index * 3 + 1] = (float)current_point.y_point;
+			positions[index * 3 + 2] = (float)current_point.z_point;
+		}
+
+		triangle_indices = new int[triangle_index_count];
+		line_indices = new int[line_index_count];
+		int next_triangle_index = 0;
+		int next_line_index = 0;
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				for (int index: gon.get_triangles())
+				{
+					triangle_indices[next_triangle_index++] = point_indices.get(gon.points.get(index));
+				}
+			}
+			for (LabelledEdge edge: conglo.get_labelled_edges())
+			{
+				line_indices[next_line_index++] = point_indices.get(edge.first_point);
+				line_indices[next_line_index++] = point_indices.get(edge.second_point);
+			}
+		}
+	}
+
+	// Adds another mesh's points, triangles and edges to this one.  Points the two meshes share are stored twice.
+	public synchronized void append(SceneMesh other)
+	{
+		int first_vertex = position_count / 3;
+
+		positions = grow(positions, position_count + other.position_count);
+		System.arraycopy(other.positions, 0, positions, position_count, other.position_count);
+		position_count += other.position_count;
+
+		triangle_indices = grow(triangle_indices, triangle_index_count + other.triangle_index_count);
+		for (int i = 0; i < other.triangle_index_count; i++)
+		{
+			triangle_indices[triangle_index_count++] = first_vertex + other.triangle_indices[i];
+		}
+
+		line_indices = grow(line_indices, line_index_count + other.line_index_count);
+		for (int i = 0; i < other.line_index_count; i++)
+		{
+			line_indices[line_index_count++] = first_vertex + other.line_indices[i];
+		}
+	}
+
+	private static float[] grow(float[] array, int needed)
+	{
+		return (needed <= array.length) ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+	}
+
+	private static int[] grow(int[] array, int needed)
+	{
+		return (needed <= array.length) ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+	}
+
+	// The memory the mesh's data takes up (not counting unused space at the ends of the arrays).
+	public synchronized long get_byte_size()
+	{
+		return (position_count + triangle_index_count + line_index_count) * 4L;
+	}
+
+	public synchronized float[] get_positions()
+	{
+		return Arrays.copyOf(positions, position_count);
+	}
+
+	public synchronized int[] get_triangle_indices()
+	{
+		return Arrays.copyOf(triangle_indices, triangle_index_count);
+	}
+
+	public synchronized int[] get_line_indices()
+	{
+		return Arrays.copyOf(line_indices, line_index_count);
+	}
+
+	public synchronized int get_vertex_count()
+	{
+		return position_count / 3;
+	}
+
+	public synchronized int get_triangle_count()
+	{
+		return triangle_index_count / 3;
+	}
+
+	public synchronized int get_line_count()
+	{
+		return line_index_count / 2;
+	}
+
+	// The size of write_binary()'s output.
+	public synchronized long get_binary_size()
+	{
+		return BINARY_HEADER_SIZE + get_byte_size();
+	}
+
+	// Writes the mesh in a compact binary form, all little-endian: the magic number "PSGM", the version, the number of vertices, of 
+	//  triangles and of edges (as 32-bit ints), then the positions (three 32-bit floats per vertex), the triangle indices (three ints 
+	//  each) and the edge indices (two ints each).  The arrays can be read straight into vertex buffers, eg in Unity or numpy.
+	public synchronized void write_binary(OutputStream output) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(BINARY_MAGIC);
+		buffer.putInt(BINARY_VERSION);
+		buffer.putInt(position_count / 3);
+		buffer.putInt(triangle_index_count / 3);
+		buffer.putInt(line_index_count / 2);
+		for (int i = 0; i < position_count; i++)
+		{
+			flush_if_full(buffer, output);
+			buffer.putFloat(positions[i]);
+		}
+		for (int i = 0; i < triangle_index_count; i++)
+		{
+			flush_if_full(buffer, output);
+			buffer.putInt(triangle_indices[i]);
+		}
+		for (int i = 0; i < line_index_count; i++)
+		{
+			flush_if_full(buffer, output);
+			buffer.putInt(line_indices[i]);
+		}
+		output.write(buffer.array(), 0, buffer.position());
+	}
+
+	// Puts the same bytes as write_binary() into a buffer (which must be little-endian and have get_binary_size() bytes left), copying
+	//  each array in one go.  SocketSceneServer uses this to send a mesh without converting it a number at a time.
+	public synchronized void put_binary(ByteBuffer buffer)
+	{
+		buffer.putInt(BINARY_MAGIC);
+		buffer.putInt(BINARY_VERSION);
+		buffer.putInt(position_count / 3);
+		buffer.putInt(triangle_index_count / 3);
+		buffer.putInt(line_index_count / 2);
+		buffer.asFloatBuffer().put(positions, 0, position_count);
+		buffer.position(buffer.position() + position_count * 4);
+		buffer.asIntBuffer().put(triangle_indices, 0, triangle_index_count);
+		buffer.position(buffer.position() + triangle_index_count * 4);
+		buffer.asIntBuffer().put(line_indices, 0, line_index_count);
+		buffer.position(buffer.position() + line_index_count * 4);
+	}
+
+	private static void flush_if_full(ByteBuffer buffer, OutputStream output) throws IOException
+	{
+		if (buffer.remaining() < 4)
+		{
+			output.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+}
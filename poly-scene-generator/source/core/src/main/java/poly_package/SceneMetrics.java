@@ -0,0 +1,213 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.sun.management.ThreadMXBean;
+
+// SceneMetrics records how long each stage of generating one scene took and how much work each did, including the work which was
+//  thrown away (lines which miss the unit sphere, polygon traces which are abandoned, and cells which don't close into polyhedra).
+// Model fills it in on the thread generating the scene, and it's written as one line of JSON so that the metrics of a batch of scenes
+//  can be appended to one file and analysed together.  The seed is included so that a slow scene can be generated again.
+// The memory each stage allocates is measured with the JVM's per-thread allocation counter, which counts every object the generating
+//  thread creates whether or not it's still in use, so it shows how much work each stage gives the garbage collector.  Looking the
+//  counter up loads the JVM's management classes, which would slow down the start of a program generating a single scene, so it's
+//  only done once enable_allocation_counter() is called (eg for Main's --metrics option).
+public class SceneMetrics
+{
+	static ThreadMXBean thread_bean = null;
+
+	long seed;
+	int number_of_planes;
+	double poly_probability;
+	String output_filename = "";
+
+	Map<String, Long> stage_nanoseconds = new LinkedHashMap<String, Long>();	// In the order the stages ran
+	Map<String, Long> stage_bytes = new LinkedHashMap<String, Long>();			// Bytes allocated by each stage, if it can be measured
+
+	int lines_kept, lines_culled;
+	int points;
+	int traces_started, traces_completed, traces_abandoned;
+	int polyhedra_found, polyhedra_failed;
+	int chosen_polyhedra;
+	int conglomerates;
+	int merges;							// Pairs of polygons combined by Conglomerate.merge()
+	long bytes_written;
+
+	public SceneMetrics(long seed, int number_of_planes, double poly_probability)
+	{
+		this.seed = seed;
+		this.number_of_planes = number_of_planes;
+		this.poly_probability = poly_probability;
+	}
+
+	public long get_seed()
+	{
+		return seed;
+	}
+
+	// Returns the time each stage took in nanoseconds, by SceneProgress stage name.
+	public Map<String, Long> get_stage_nanoseconds()
+	{
+		return stage_nanoseconds;
+	}
+
+	public long get_total_nanoseconds()
+	{
+		long total = 0;
+		for (long nanoseconds: stage_nanoseconds.values())
+		{
+			total += nanoseconds;
+		}
+		return total;
+	}
+
+	// Returns the bytes each stage allocated, by SceneProgress stage name.  It's empty unless the allocation counter was enabled.
+	public Map<String, Long> get_stage_bytes()
+	{
+		return stage_bytes;
+	}
+
+	public int get_traces_abandoned()
+	{
+		return traces_abandoned;
+	}
+
+	public int get_polyhedra_failed()
+	{
+		return polyhedra_failed;
+	}
+
+	public long get_bytes_written()
+	{
+		return bytes_written;
+	}
+
+	// Returns the metrics as a single line of JSON, with the stage times in milliseconds.
+	public String to_json()
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\"seed\":").append(seed);
+		json.append(",\"planes\":").append(number_of_planes);
+		json.append(",\"probability\":").append(poly_probability);
+		json.append(",\"output\":\"").append(output_filename.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"");
+		json.append(",\"stage_ms\":{");
+		boolean first = true;
+		for (Map.Entry<String, Long> stage: stage_nanoseconds.entrySet())
+		{
+			json.append(first ? "" : ",").append("\"").append(stage.getKey()).append("\":").append(milliseconds(stage.getValue()));
+			first = false;
+		}
+		json.append("},\"total_ms\":").append(milliseconds(get_total_nanoseconds()));
+		if (!stage_bytes.isEmpty())
+		{
+			json.append(",\"stage_allocated_bytes\":{");
+			first = true;
+			for (Map.Entry<String, Long> stage: stage_bytes.entrySet())
+			{
+				json.append(first ? "" : ",").append("\"").append(stage.getKey()).append("\":").append(stage.getValue());
+				first = false;
+			}
+			json.append("}");
+		}
+		json.append(",\"lines_kept\":").append(lines_kept);
+		json.append(",\"lines_culled\":").append(lines_culled);
+		json.append(",\"points\":").append(points);
+		json.append(",\"traces_started\":").append(traces_started);
+		json.append(",\"traces_completed\":").append(traces_completed);
+		json.append(",\"traces_abandoned\":").append(traces_abandoned);
+		json.append(",\"polyhedra_found\":").append(polyhedra_found);
+		json.append(",\"polyhedra_failed\":").append(polyhedra_failed);
+		json.append(",\"polyhedra_chosen\":").append(chosen_polyhedra);
+		json.append(",\"conglomerates\":").append(conglomerates);
+		json.append(",\"merges\":").append(merges);
+		json.append(",\"bytes_written\":").append(bytes_written);
+		json.append("}");
+		return json.toString();
+	}
+
+	private static String milliseconds(long nanoseconds)
+	{
+		return String.format(Locale.ROOT, "%.3f", nanoseconds / 1e6);
+	}
+
+	// The allocation counter is an extension in HotSpot-based JVMs, so it may not be there.
+	private static ThreadMXBean find_thread_bean()
+	{
+		Object bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof ThreadMXBean && ((ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+		{
+			((ThreadMXBean)bean).setThreadAllocatedMemoryEnabled(true);
+			return (ThreadMXBean)bean;
+		}
+		return null;
+	}
+
+	// Starts measuring allocation, if the JVM can.  It should be called before the threads generating scenes are started.
+	public static boolean enable_allocation_counter()
+	{
+		if (thread_bean == null)
+		{
+			thread_bean = find_thread_bean();
+		}
+		return thread_bean != null;
+	}
+
+	public static boolean can_measure_allocation()
+	{
+		return thread_bean != null;
+	}
+
+	// Returns the total bytes the current thread has allocated so far, or 0 if it can't be measured.
+	public static long allocated_bytes()
+	{
+		return (thread_bean != null) ? thread_bean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	// Appends the JSON line to a file (creating it if necessary), or prints it if the filename is "-".
+	public void append_to_file(String filename)
+	{
+		if (filename.equals("-"))
+		{
+			System.out.println(to_json());
+			return;
+		}
+
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(new FileWriter(filename, true));
+			writer.println(to_json());
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+}
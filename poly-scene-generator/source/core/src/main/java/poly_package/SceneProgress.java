@@ -0,0 +1,83 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+// SceneProgress is sent by Model to its observers at the start and end of each stage of generating a scene.
+public class SceneProgress
+{
+	// The stages, in order
+	static final String PLANES = "planes";
+	static final String LINES = "lines";
+	static final String POINTS = "points";
+	static final String POLYGONS = "polygons";
+	static final String POLYHEDRA = "polyhedra";
+	static final String CONGLOMERATES = "conglomerates";
+	static final String OUTPUT = "output";
+	static final String FAILED = "failed";		// Sent instead of the remaining stages if generation stops with an exception
+
+	String stage;
+	boolean finished;		// False when the stage is starting
+	int count;				// The number of things the stage created (planes, lines, etc.), once it has finished
+	long nanoseconds;		// How long the stage took, once it has finished
+
+	public SceneProgress(String stage, boolean finished, int count, long nanoseconds)
+	{
+		this.stage = stage;
+		this.finished = finished;
+		this.count = count;
+		this.nanoseconds = nanoseconds;
+	}
+
+	public String get_stage()
+	{
+		return stage;
+	}
+
+	public boolean is_finished()
+	{
+		return finished;
+	}
+
+	public int get_count()
+	{
+		return count;
+	}
+
+	public long get_nanoseconds()
+	{
+		return nanoseconds;
+	}
+
+	// A description of the progress suitable for showing to the user, eg "Finding polygons..." or "1234 polygons (56 ms)".
+	public String toString()
+	{
+		if (stage.equals(FAILED))
+		{
+			return "Scene generation failed";
+		}
+		if (!finished)
+		{
+			return stage.equals(OUTPUT) ? "Writing output..." : "Finding " + stage + "...";
+		}
+		if (stage.equals(OUTPUT))
+		{
+			return "Scene written (" + nanoseconds / 1000000 + " ms)";
+		}
+		return count + " " + stage + " (" + nanoseconds / 1000000 + " ms)";
+	}
+}
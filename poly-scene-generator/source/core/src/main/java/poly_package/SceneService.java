@@ -0,0 +1,127 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// SceneService generates scenes on request for the servers (HttpSceneServer and SocketSceneServer).  Generation is CPU-bound, so it
+//  runs on a fixed pool with one thread per processor, and the requests waiting for it are held in a bounded queue: once the queue is
+//  full, generate() throws RejectedExecutionException straight away so the server can tell the client to come back later, rather than
+//  letting the wait grow without limit.
+// Each request has a deadline which includes its time in the queue.  A request which misses it is cancelled; if its scene has started,
+//  the worker is interrupted, which Model.check_cancelled() notices within one line, polygon or polyhedron.
+public class SceneService
+{
+	static final int ATTEMPTS = 3;			// Scenes without a seed are tried again with a new one if generation fails
+
+	ThreadPoolExecutor workers;
+	Random seeds = new Random();
+
+	public SceneService(int threads, int queue_size)
+	{
+		final AtomicInteger thread_number = new AtomicInteger();
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queue_size),
+											new ThreadFactory()
+		{
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "Scene worker " + thread_number.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	// Generates a scene (without writing it) and returns its Model, waiting at most timeout_ms from now.  If 'seed' is null a random
+	//  one is used, and a scene which fails is tried again with another; a given seed which fails will always fail, so it isn't.
+	// Throws RejectedExecutionException if the queue is full, TimeoutException if the deadline passes, and ExecutionException if
+	//  generation fails.
+	public Model generate(final int number_of_planes, final double poly_probability, final Long seed, long timeout_ms)
+					throws InterruptedException, ExecutionException, TimeoutException
+	{
+		Future<Model> result = workers.submit(new Callable<Model>()
+		{
+			public Model call()
+			{
+				int attempts = (seed == null) ? ATTEMPTS : 1;
+				for (int attempt = 1; ; attempt++)
+				{
+					Model model = new Model((seed == null) ? next_seed() : seed);
+					try
+					{
+						model.generate_scene(number_of_planes, poly_probability);
+						return model;
+					}
+					catch (RuntimeException ex)
+					{
+						if (attempt >= attempts || Thread.currentThread().isInterrupted())
+						{
+							throw ex;
+						}
+					}
+				}
+			}
+		});
+
+		try
+		{
+			return result.get(timeout_ms, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException ex)
+		{
+			result.cancel(true);
+			workers.remove((Runnable)result);		// So that a request which never started doesn't hold its place in the queue
+			throw ex;
+		}
+		catch (InterruptedException ex)
+		{
+			result.cancel(true);
+			throw ex;
+		}
+	}
+
+	synchronized long next_seed()
+	{
+		return seeds.nextLong();
+	}
+
+	public int get_queue_length()
+	{
+		return workers.getQueue().size();
+	}
+
+	public int get_active_count()
+	{
+		return workers.getActiveCount();
+	}
+
+	public void shutdown()
+	{
+		workers.shutdownNow();
+	}
+}
@@ -0,0 +1,303 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+// SocketSceneServer generates scenes on request for clients on the same machine (eg the Unity importer or a training loop), over a
+//  Unix domain socket with a small binary protocol, which avoids the cost of HTTP and of text formats.  Everything is little-endian.
+// A request is an int giving the length of the rest (21), then the number of planes (int), the probability (double), a byte which is
+//  1 if a seed follows or 0 for a random seed, and the seed (long).  A response is an int giving the length of the rest, a status
+//  (int: one of the STATUS_ values), and the seed used (long), followed by the scene in SceneMesh's binary form if the status is
+//  STATUS_OK, or a UTF-8 message otherwise.  A client can send any number of requests on one connection, one at a time.
+// Scenes are generated on SceneService's bounded pool, as for HttpSceneServer, and each connection has its own thread and its own
+//  buffer for responses, which is reused (and grown when needed) so that sending a scene is one bulk copy of each array.
+public class SocketSceneServer
+{
+	static final int STATUS_OK = 0;
+	static final int STATUS_BUSY = 1;			// SceneService's queue is full; try again shortly
+	static final int STATUS_TIMEOUT = 2;
+	static final int STATUS_FAILED = 3;
+	static final int STATUS_BAD_REQUEST = 4;
+
+	static final int REQUEST_SIZE = 21;
+	static final int RESPONSE_HEADER_SIZE = 16;	// The length, status and seed
+
+	SceneService service;
+	Path socket_path;
+	ServerSocketChannel server;
+	Executor connections = HttpSceneServer.connection_executor();
+	long timeout_ms;
+	int max_planes;
+
+	public SocketSceneServer(Path socket_path, SceneService service, long timeout_ms, int max_planes) throws IOException
+	{
+		this.socket_path = socket_path;
+		this.service = service;
+		this.timeout_ms = timeout_ms;
+		this.max_planes = max_planes;
+		// A socket file left behind by a server which didn't shut down cleanly would stop the new one binding
+		Files.deleteIfExists(socket_path);
+		server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(socket_path));
+	}
+
+	// Accepts connections until the server is closed, handling each on its own thread.
+	public void run()
+	{
+		try
+		{
+			while (true)
+			{
+				final SocketChannel channel = server.accept();
+				connections.execute(new Runnable()
+				{
+					public void run()
+					{
+						serve(channel);
+					}
+				});
+			}
+		}
+		catch (IOException ex)
+		{
+			if (server.isOpen())
+			{
+				System.out.println("ERROR in SocketSceneServer -> run; " + ex);
+			}
+		}
+	}
+
+	public void close() throws IOException
+	{
+		server.close();
+		Files.deleteIfExists(socket_path);
+		service.shutdown();
+	}
+
+	// Answers requests on one connection until the client closes it.
+	void serve(SocketChannel channel)
+	{
+		ByteBuffer request = ByteBuffer.allocate(4 + REQUEST_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer response = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		try
+		{
+			while (true)
+			{
+				request.clear();
+				request.limit(4);
+				if (!read_fully(channel, request))
+				{
+					return;
+				}
+				int length = request.getInt(0);
+				if (length != REQUEST_SIZE)
+				{
+					send_message(channel, response, STATUS_BAD_REQUEST, 0, "Requests are " + REQUEST_SIZE + " bytes after the length");
+					return;
+				}
+				request.limit(4 + REQUEST_SIZE);
+				if (!read_fully(channel, request))
+				{
+					return;
+				}
+				request.position(4);
+				int number_of_planes = request.getInt();
+				double poly_probability = request.getDouble();
+				boolean has_seed = request.get() != 0;
+				long seed = request.getLong();
+
+				response = answer(channel, response, number_of_planes, poly_probability, has_seed ? Long.valueOf(seed) : null);
+			}
+		}
+		catch (IOException ex)
+		{
+			// The client has gone away
+		}
+		finally
+		{
+			try {channel.close();} catch (IOException ex) {}
+		}
+	}
+
+	// Generates one scene and sends it.  Returns the response buffer, which is replaced by a bigger one if the scene didn't fit.
+	ByteBuffer answer(SocketChannel channel, ByteBuffer response, int number_of_planes, double poly_probability, Long seed)
+				throws IOException
+	{
+		long seed_used = (seed == null) ? 0 : seed;
+		if (number_of_planes < 1 || number_of_planes > max_planes || !(poly_probability >= 0 && poly_probability <= 1))
+		{
+			send_message(channel, response, STATUS_BAD_REQUEST, seed_used, "planes must be from 1 to " + max_planes
+							+ " and the probability from 0 to 1");
+			return response;
+		}
+
+		Model model;
+		try
+		{
+			model = service.generate(number_of_planes, poly_probability, seed, timeout_ms);
+		}
+		catch (RejectedExecutionException ex)
+		{
+			send_message(channel, response, STATUS_BUSY, seed_used, "Too many scenes queued; try again shortly");
+			return response;
+		}
+		catch (TimeoutException ex)
+		{
+			send_message(channel, response, STATUS_TIMEOUT, seed_used, "The scene wasn't finished within " + timeout_ms + " ms");
+			return response;
+		}
+		catch (ExecutionException ex)
+		{
+			send_message(channel, response, STATUS_FAILED, seed_used, "Generation failed: " + ex.getCause());
+			return response;
+		}
+		catch (InterruptedException ex)
+		{
+			throw new IOException("Interrupted", ex);
+		}
+
+		SceneMesh mesh = new SceneMesh(model.get_conglomerates());
+		long size = RESPONSE_HEADER_SIZE + mesh.get_binary_size();
+		if (size > Integer.MAX_VALUE)
+		{
+			send_message(channel, response, STATUS_FAILED, model.seed, "The scene is too big to send");
+			return response;
+		}
+		if (size > response.capacity())
+		{
+			response = ByteBuffer.allocateDirect((int)Math.max(size, response.capacity() * 2L)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		response.clear();
+		response.putInt((int)size - 4);
+		response.putInt(STATUS_OK);
+		response.putLong(model.seed);
+		mesh.put_binary(response);
+		response.flip();
+		write_fully(channel, response);
+		return response;
+	}
+
+	static void send_message(SocketChannel channel, ByteBuffer response, int status, long seed, String message) throws IOException
+	{
+		byte[] text = message.getBytes(StandardCharsets.UTF_8);
+		response.clear();
+		response.position(4);
+		response.putInt(status);
+		response.putLong(seed);
+		// A message too long for the buffer is cut short, and the length says how much of it was sent
+		response.put(text, 0, Math.min(text.length, response.remaining()));
+		response.putInt(0, response.position() - 4);
+		response.flip();
+		write_fully(channel, response);
+	}
+
+	// Reads until the buffer's limit is reached.  Returns false if the connection was closed before anything was read.
+	static boolean read_fully(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		boolean started = buffer.position() > 0;
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				if (started)
+				{
+					throw new EOFException("The connection closed partway through a request");
+				}
+				return false;
+			}
+			started = true;
+		}
+		return true;
+	}
+
+	static void write_fully(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+
+	// Usage: SocketSceneServer socket_path [--threads count] [--queue length] [--timeout ms] [--max-planes count]
+	public static void main(String[] args)
+	{
+		if (args.length < 1 || args.length % 2 == 0)
+		{
+			System.out.println("Usage: SocketSceneServer socket_path [--threads count] [--queue length] [--timeout ms] "
+								+ "[--max-planes count]");
+			return;
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue_length = 256;
+		long timeout_ms = 10000;
+		int max_planes = 60;
+		for (int i = 1; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equals("--threads"))
+			{
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--queue"))
+			{
+				queue_length = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equals("--timeout"))
+			{
+				timeout_ms = Long.parseLong(args[i + 1]);
+			}
+			else if (args[i].equals("--max-planes"))
+			{
+				max_planes = Integer.parseInt(args[i + 1]);
+			}
+			else
+			{
+				System.out.println("Usage: SocketSceneServer socket_path [--threads count] [--queue length] [--timeout ms] "
+									+ "[--max-planes count]");
+				return;
+			}
+		}
+
+		try
+		{
+			SocketSceneServer server = new SocketSceneServer(Paths.get(args[0]), new SceneService(threads, queue_length), timeout_ms,
+																max_planes);
+			System.out.println("Serving scenes on " + args[0] + " with " + threads + " threads");
+			server.run();
+		}
+		catch (IOException ex)
+		{
+			System.out.println("ERROR starting SocketSceneServer; " + ex);
+		}
+	}
+}
@@ -0,0 +1,517 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// This class renders a finished scene into image buffers in memory, without OpenGL, so images can be made on machines with no
+//  graphics hardware.  It draws what View draws (blue faces with white outlines on black, using the same camera and perspective)
+//  into a colour buffer, and also fills a depth buffer, a buffer of the face seen at each pixel, and a buffer of the label of the
+//  edge drawn at each pixel.
+// The image is divided into square tiles.  Triangles and edges are first sorted into the tiles they overlap, then the tiles are
+//  rasterized in parallel; each tile only writes its own pixels, so the threads never touch the same memory.
+public class SoftwareRenderer
+{
+	static final int TILE_SIZE = 64;
+	static final double FIELD_OF_VIEW = 50.0;			// gluPerspective() parameters used by View.reshape()
+	static final double NEAR_PLANE = 1.0;
+	static final double FAR_PLANE = 1000.0;
+
+	static final int BACKGROUND_COLOUR = 0x000000;
+	static final int FACE_COLOUR = 0x0000ff;
+	static final int OUTLINE_COLOUR = 0xffffff;
+
+	// Values in the edge buffer
+	static final int NO_EDGE = 0;
+	static final int CONVEX_EDGE = 1;
+	static final int CONCAVE_EDGE = 2;
+	static final int BOUNDARY_EDGE = 3;
+
+	int width, height;
+
+	// The buffers, a row at a time starting with the top row
+	int[] colour_buffer;
+	float[] depth_buffer;		// Window depth from 0 (near plane) to 1 (far plane), as in OpenGL
+	int[] face_buffer;			// 0 for background, otherwise 1 + the index of the face in 'faces'
+	int[] edge_buffer;			// NO_EDGE or the label of the edge drawn on top
+
+	// The scene, flattened into arrays.  Faces are the (merged) polygons of the outline draw lists, split into triangles.
+	List<Point> points = new ArrayList<Point>();
+	List<Polygon> faces = new ArrayList<Polygon>();
+	int[] triangle_points;		// Three point indices per triangle
+	int[] triangle_faces;		// The face index of each triangle
+	int[] edge_points;			// Two point indices per outline edge
+	int[] edge_labels;
+
+	// Screen positions of the points and their tile lists for the current render
+	double[] screen_x, screen_y, screen_z;
+	int tiles_across, tiles_down;
+	int[][] tile_triangles, tile_edges;
+	int[] tile_triangle_count, tile_edge_count;
+
+	public SoftwareRenderer(List<Conglomerate> conglomerates, int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		colour_buffer = new int[width * height];
+		depth_buffer = new float[width * height];
+		face_buffer = new int[width * height];
+		edge_buffer = new int[width * height];
+
+		HashMap<Point, Integer> point_indices = new HashMap<Point, Integer>();
+		List<Integer> triangles = new ArrayList<Integer>();
+		List<Integer> edges = new ArrayList<Integer>();
+		List<Integer> labels = new ArrayList<Integer>();
+
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				int face_index = faces.size();
+				faces.add(gon);
+
+				int[] gon_triangles = gon.get_triangles();
+				for (int i = 0; i < gon_triangles.length; i += 3)
+				{
+					triangles.add(index_of(gon.get_point(gon_triangles[i]), point_indices));
+					triangles.add(index_of(gon.get_point(gon_triangles[i + 1]), point_indices));
+					triangles.add(index_of(gon.get_point(gon_triangles[i + 2]), point_indices));
+					triangles.add(face_index);
+				}
+			}
+
+			for (LabelledEdge edge: conglo.get_labelled_edges())
+			{
+				edges.add(index_of(edge.first_point, point_indices));
+				edges.add(index_of(edge.second_point, point_indices));
+				labels.add(label_id(edge.label));
+			}
+		}
+
+		triangle_points = new int[triangles.size() / 4 * 3];
+		triangle_faces = new int[triangles.size() / 4];
+		for (int i = 0; i < triangle_faces.length; i++)
+		{
+			triangle_points[i * 3] = triangles.get(i * 4);
+			triangle_points[i * 3 + 1] = triangles.get(i * 4 + 1);
+			triangle_points[i * 3 + 2] = triangles.get(i * 4 + 2);
+			triangle_faces[i] = triangles.get(i * 4 + 3);
+		}
+		edge_points = new int[edges.size()];
+		for (int i = 0; i < edge_points.length; i++)
+		{
+			edge_points[i] = edges.get(i);
+		}
+		edge_labels = new int[labels.size()];
+		for (int i = 0; i < edge_labels.length; i++)
+		{
+			edge_labels[i] = labels.get(i);
+		}
+
+		tiles_across = (width + TILE_SIZE - 1) / TILE_SIZE;
+		tiles_down = (height + TILE_SIZE - 1) / TILE_SIZE;
+		tile_triangles = new int[tiles_across * tiles_down][];
+		tile_edges = new int[tiles_across * tiles_down][];
+		tile_triangle_count = new int[tiles_across * tiles_down];
+		tile_edge_count = new int[tiles_across * tiles_down];
+	}
+
+	// Returns the index of a point in 'points', adding it if it isn't there yet.
+	private int index_of(Point the_point, HashMap<Point, Integer> point_indices)
+	{
+		Integer index = point_indices.get(the_point);
+		if (index == null)
+		{
+			index = points.size();
+			points.add(the_point);
+			point_indices.put(the_point, index);
+		}
+		return index;
+	}
+
+	// Converts an edge label to the value stored in the edge buffer.
+	static int label_id(String label)
+	{
+		if (label.equals(LabelledEdge.CONVEX))
+		{
+			return CONVEX_EDGE;
+		}
+		else if (label.equals(LabelledEdge.CONCAVE))
+		{
+			return CONCAVE_EDGE;
+		}
+		return BOUNDARY_EDGE;
+	}
+
+	// Renders the scene as seen from the camera position represented by the quaternion, using the executor to rasterize the tiles.
+	public void render(Quaternion camera, ExecutorService executor)
+	{
+		project_points(camera.get_rotation_matrix());
+		bin_triangles_and_edges();
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int tile = 0; tile < tiles_across * tiles_down; tile++)
+		{
+			final int current_tile = tile;
+			tasks.add(new Callable<Object>()
+			{
+				public Object call()
+				{
+					rasterize_tile(current_tile);
+					return null;
+				}
+			});
+		}
+
+		try
+		{
+			executor.invokeAll(tasks);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Transforms every point by the model-view matrix from Quaternion (exactly as View loads it) and the same perspective projection
+	//  View sets up with gluPerspective(), then to window coordinates with y down.
+	private void project_points(double[][] matrix)
+	{
+		double aspect = (double)width / height;
+		double focal_length = 1 / Math.tan(Math.toRadians(FIELD_OF_VIEW) / 2);
+		double depth_scale = (FAR_PLANE + NEAR_PLANE) / (NEAR_PLANE - FAR_PLANE);
+		double depth_offset = 2 * FAR_PLANE * NEAR_PLANE / (NEAR_PLANE - FAR_PLANE);
+
+		screen_x = new double[points.size()];
+		screen_y = new double[points.size()];
+		screen_z = new double[points.size()];
+
+		for (int i = 0; i < points.size(); i++)
+		{
+			Point current = points.get(i);
+			double view_x = matrix[0][0] * current.x_point + matrix[0][1] * current.y_point + matrix[0][2] * current.z_point + matrix[0][3];
+			double view_y = matrix[1][0] * current.x_point + matrix[1][1] * current.y_point + matrix[1][2] * current.z_point + matrix[1][3];
+			double view_z = matrix[2][0] * current.x_point + matrix[2][1] * current.y_point + matrix[2][2] * current.z_point + matrix[2][3];
+
+			// Normalized device coordinates; the scene is inside the unit sphere, far in front of the near plane
+			double ndc_x = focal_length / aspect * view_x / -view_z;
+			double ndc_y = focal_length * view_y / -view_z;
+			double ndc_z = (depth_scale * view_z + depth_offset) / -view_z;
+
+			screen_x[i] = (ndc_x + 1) / 2 * width;
+			screen_y[i] = (1 - ndc_y) / 2 * height;
+			screen_z[i] = (ndc_z + 1) / 2;
+		}
+	}
+
+	// Records, for each tile, the triangles and edges whose bounding boxes overlap it.
+	private void bin_triangles_and_edges()
+	{
+		for (int tile = 0; tile < tile_triangle_count.length; tile++)
+		{
+			tile_triangle_count[tile] = 0;
+			tile_edge_count[tile] = 0;
+		}
+
+		for (int triangle = 0; triangle < triangle_faces.length; triangle++)
+		{
+			int a = triangle_points[triangle * 3];
+			int b = triangle_points[triangle * 3 + 1];
+			int c = triangle_points[triangle * 3 + 2];
+			double min_x = Math.min(screen_x[a], Math.min(screen_x[b], screen_x[c]));
+			double max_x = Math.max(screen_x[a], Math.max(screen_x[b], screen_x[c]));
+			double min_y = Math.min(screen_y[a], Math.min(screen_y[b], screen_y[c]));
+			double max_y = Math.max(screen_y[a], Math.max(screen_y[b], screen_y[c]));
+			add_to_tiles(triangle, min_x, max_x, min_y, max_y, tile_triangles, tile_triangle_count);
+		}
+
+		for (int edge = 0; edge < edge_labels.length; edge++)
+		{
+			int a = edge_points[edge * 2];
+			int b = edge_points[edge * 2 + 1];
+			add_to_tiles(edge, Math.min(screen_x[a], screen_x[b]) - 1, Math.max(screen_x[a], screen_x[b]) + 1,
+							Math.min(screen_y[a], screen_y[b]) - 1, Math.max(screen_y[a], screen_y[b]) + 1, tile_edges, tile_edge_count);
+		}
+	}
+
+	private void add_to_tiles(int item, double min_x, double max_x, double min_y, double max_y, int[][] tile_lists, int[] tile_counts)
+	{
+		int first_column = Math.max(0, (int)Math.floor(min_x) / TILE_SIZE);
+		int last_column = Math.min(tiles_across - 1, (int)Math.floor(max_x) / TILE_SIZE);
+		int first_row = Math.max(0, (int)Math.floor(min_y) / TILE_SIZE);
+		int last_row = Math.min(tiles_down - 1, (int)Math.floor(max_y) / TILE_SIZE);
+
+		for (int row = first_row; row <= last_row; row++)
+		{
+			for (int column = first_column; column <= last_column; column++)
+			{
+				int tile = row * tiles_across + column;
+				if (tile_lists[tile] == null)
+				{
+					tile_lists[tile] = new int[64];
+				}
+				else if (tile_counts[tile] == tile_lists[tile].length)
+				{
+					int[] larger = new int[tile_lists[tile].length * 2];
+					System.arraycopy(tile_lists[tile], 0, larger, 0, tile_counts[tile]);
+					tile_lists[tile] = larger;
+				}
+				tile_lists[tile][tile_counts[tile]] = item;
+				tile_counts[tile]++;
+			}
+		}
+	}
+
+	// Clears one tile, then draws its triangles and then its edges.
+	private void rasterize_tile(int tile)
+	{
+		int left = (tile % tiles_across) * TILE_SIZE;
+		int top = (tile / tiles_across) * TILE_SIZE;
+		int right = Math.min(left + TILE_SIZE, width);
+		int bottom = Math.min(top + TILE_SIZE, height);
+
+		for (int y = top; y < bottom; y++)
+		{
+			for (int x = left; x < right; x++)
+			{
+				int pixel = y * width + x;
+				colour_buffer[pixel] = BACKGROUND_COLOUR;
+				depth_buffer[pixel] = 1.0f;
+				face_buffer[pixel] = 0;
+				edge_buffer[pixel] = NO_EDGE;
+			}
+		}
+
+		for (int i = 0; i < tile_triangle_count[tile]; i++)
+		{
+			rasterize_triangle(tile_triangles[tile][i], left, top, right, bottom);
+		}
+		for (int i = 0; i < tile_edge_count[tile]; i++)
+		{
+			rasterize_edge(tile_edges[tile][i], left, top, right, bottom);
+		}
+	}
+
+	// Fills the pixels of a triangle within the given part of the image, testing depth the way View does (GL_LEQUAL).  Like View's
+	//  glPolygonOffset(1, 1), the faces are pushed back by their depth slope so the outlines drawn on them afterwards are visible.
+	private void rasterize_triangle(int triangle, int left, int top, int right, int bottom)
+	{
+		int a = triangle_points[triangle * 3];
+		int b = triangle_points[triangle * 3 + 1];
+		int c = triangle_points[triangle * 3 + 2];
+		double ax = screen_x[a], ay = screen_y[a], az = screen_z[a];
+		double bx = screen_x[b], by = screen_y[b], bz = screen_z[b];
+		double cx = screen_x[c], cy = screen_y[c], cz = screen_z[c];
+
+		double area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (Math.abs(area) < 1e-12)
+		{
+			return;
+		}
+
+		// Depth is linear in window coordinates: z = az + dz_dx * (x - ax) + dz_dy * (y - ay)
+		double dz_dx = ((bz - az) * (cy - ay) - (cz - az) * (by - ay)) / area;
+		double dz_dy = ((cz - az) * (bx - ax) - (bz - az) * (cx - ax)) / area;
+		double offset = Math.max(Math.abs(dz_dx), Math.abs(dz_dy)) + 1.0 / (1 << 24);
+
+		int min_x = Math.max(left, (int)Math.floor(Math.min(ax, Math.min(bx, cx))));
+		int max_x = Math.min(right - 1, (int)Math.ceil(Math.max(ax, Math.max(bx, cx))));
+		int min_y = Math.max(top, (int)Math.floor(Math.min(ay, Math.min(by, cy))));
+		int max_y = Math.min(bottom - 1, (int)Math.ceil(Math.max(ay, Math.max(by, cy))));
+		double sign = (area > 0) ? 1 : -1;
+		int face_id = triangle_faces[triangle] + 1;
+
+		for (int y = min_y; y <= max_y; y++)
+		{
+			double py = y + 0.5;
+			for (int x = min_x; x <= max_x; x++)
+			{
+				double px = x + 0.5;
+
+				// The pixel centre is inside if it's on the inner side of all three edges
+				double w0 = sign * ((bx - ax) * (py - ay) - (by - ay) * (px - ax));
+				double w1 = sign * ((cx - bx) * (py - by) - (cy - by) * (px - bx));
+				double w2 = sign * ((ax - cx) * (py - cy) - (ay - cy) * (px - cx));
+				if (w0 < 0 || w1 < 0 || w2 < 0)
+				{
+					continue;
+				}
+
+				float z = (float)(az + dz_dx * (px - ax) + dz_dy * (py - ay) + offset);
+				int pixel = y * width + x;
+				if (z <= depth_buffer[pixel])
+				{
+					depth_buffer[pixel] = z;
+					colour_buffer[pixel] = FACE_COLOUR;
+					face_buffer[pixel] = face_id;
+				}
+			}
+		}
+	}
+
+	// Draws the pixels of an edge within the given part of the image, one pixel per step along its longer dimension.
+	private void rasterize_edge(int edge, int left, int top, int right, int bottom)
+	{
+		int a = edge_points[edge * 2];
+		int b = edge_points[edge * 2 + 1];
+		double delta_x = screen_x[b] - screen_x[a];
+		double delta_y = screen_y[b] - screen_y[a];
+		double delta_z = screen_z[b] - screen_z[a];
+		int steps = (int)Math.ceil(Math.max(Math.abs(delta_x), Math.abs(delta_y)));
+		if (steps == 0)
+		{
+			steps = 1;
+		}
+
+		for (int step = 0; step <= steps; step++)
+		{
+			double t = (double)step / steps;
+			int x = (int)Math.floor(screen_x[a] + t * delta_x);
+			int y = (int)Math.floor(screen_y[a] + t * delta_y);
+			if (x < left || x >= right || y < top || y >= bottom)
+			{
+				continue;
+			}
+
+			float z = (float)(screen_z[a] + t * delta_z);
+			int pixel = y * width + x;
+			if (z <= depth_buffer[pixel])
+			{
+				depth_buffer[pixel] = z;
+				colour_buffer[pixel] = OUTLINE_COLOUR;
+				edge_buffer[pixel] = edge_labels[edge];
+			}
+		}
+	}
+
+	// Writes the colour buffer as a PNG image.
+	public void output_png(String filename)
+	{
+		try
+		{
+			PngWriter.write(filename, width, height, colour_buffer);
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+	}
+
+	// Writes the depth, face and edge buffers as raw little-endian arrays (<prefix>.depth as 32-bit floats, <prefix>.face as 32-bit
+	//  integers and <prefix>.edge as bytes), a row at a time starting with the top row.
+	public void output_raw(String prefix)
+	{
+		DataOutputStream depth_output = null;
+		DataOutputStream face_output = null;
+		DataOutputStream edge_output = null;
+		try
+		{
+			depth_output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(prefix + ".depth")));
+			face_output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(prefix + ".face")));
+			edge_output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(prefix + ".edge")));
+
+			for (int pixel = 0; pixel < width * height; pixel++)
+			{
+				depth_output.writeInt(Integer.reverseBytes(Float.floatToIntBits(depth_buffer[pixel])));
+				face_output.writeInt(Integer.reverseBytes(face_buffer[pixel]));
+				edge_output.writeByte(edge_buffer[pixel]);
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {depth_output.close();} catch (Exception ex) {}
+			try {face_output.close();} catch (Exception ex) {}
+			try {edge_output.close();} catch (Exception ex) {}
+		}
+	}
+
+	public int[] get_colour_buffer()
+	{
+		return colour_buffer;
+	}
+
+	public float[] get_depth_buffer()
+	{
+		return depth_buffer;
+	}
+
+	public int[] get_face_buffer()
+	{
+		return face_buffer;
+	}
+
+	public int[] get_edge_buffer()
+	{
+		return edge_buffer;
+	}
+
+	// Generates a scene and renders it from the viewer's starting position, followed by any number of random viewpoints.
+	// Parameters: number of planes, probability each polyhedron is visible, width, height, output filename prefix, and optionally the
+	//  number of random views.  Each view is written as <prefix>[-view<n>].png plus the raw buffers.
+	public static void main(String[] args)
+	{
+		if (args.length < 5)
+		{
+			System.out.println("Usage: SoftwareRenderer planes probability width height prefix [random_views]");
+			return;
+		}
+
+		int number_of_planes = Integer.parseInt(args[0]);
+		double poly_probability = Double.parseDouble(args[1]);
+		int width = Integer.parseInt(args[2]);
+		int height = Integer.parseInt(args[3]);
+		String prefix = args[4];
+		int random_views = (args.length > 5) ? Integer.parseInt(args[5]) : 0;
+
+		Model my_model = new Model();
+		my_model.create_scene(number_of_planes, poly_probability, prefix + ".obj");
+
+		SoftwareRenderer renderer = new SoftwareRenderer(my_model.get_conglomerates(), width, height);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		Random random = new Random();
+
+		for (int view = 0; view <= random_views; view++)
+		{
+			Quaternion camera = (view == 0) ? new Quaternion() : Quaternion.random_rotation(random);
+			String view_prefix = (view == 0) ? prefix : prefix + "-view" + view;
+
+			long start_time = System.nanoTime();
+			renderer.render(camera, executor);
+			System.out.println("Rendered " + view_prefix + " in " + (System.nanoTime() - start_time) / 1000000.0 + " ms");
+
+			renderer.output_png(view_prefix + ".png");
+			renderer.output_raw(view_prefix);
+		}
+
+		executor.shutdown();
+	}
+}
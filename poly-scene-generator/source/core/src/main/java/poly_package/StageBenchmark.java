@@ -0,0 +1,244 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// This class measures each stage of generating a scene separately, so that the effect of a change to one stage can be seen.  For each
+//  number of planes and probability, it generates scenes from a fixed list of seeds (so the input is the same on every run) and
+//  times every stage of each, after some untimed warm-up runs so that the JIT has compiled the code being measured.  The memory
+//  allocated by each stage is measured with the JVM's per-thread allocation counter.
+// A scene which fails (see Model.start_scene()) fails the same way for the same seed every time.  The stages it finished are still
+//  measured, so each stage is averaged over the scenes which got past it.
+public class StageBenchmark
+{
+	static final int[] PLANE_COUNTS = {10, 25, 50, 100, 200};
+	static final double[] PROBABILITIES = {0.2, 0.5, 1.0};
+	static final long FIRST_SEED = 4900;
+
+	// The stages, in the order Model.generate_scene() runs them, then writing the .obj file
+	static final String[] STAGES = {"planes", "lines", "points", "sort_points", "polygons", "polyhedra", "choose", "conglomerates",
+									"output"};
+
+	boolean measure_allocation = SceneMetrics.enable_allocation_counter();
+	File output_file;
+
+	// Totals over the measured runs of one configuration
+	long[] stage_nanoseconds = new long[STAGES.length];
+	long[] stage_bytes = new long[STAGES.length];
+	int[] stage_runs = new int[STAGES.length];
+	int failures = 0;
+
+	// The stage being timed, and the number of stages of the current scene which have finished
+	long start_time, start_bytes;
+	int stages_finished;
+
+	public StageBenchmark(File output_file)
+	{
+		this.output_file = output_file;
+	}
+
+	// Runs the warm-up and measured runs for one configuration.  Run i always uses seed FIRST_SEED + i.
+	public void run_configuration(int number_of_planes, double poly_probability, int warmup_runs, int measured_runs)
+	{
+		for (int i = 0; i < warmup_runs; i++)
+		{
+			run_scene(number_of_planes, poly_probability, FIRST_SEED + i, false);
+		}
+
+		Arrays.fill(stage_nanoseconds, 0);
+		Arrays.fill(stage_bytes, 0);
+		Arrays.fill(stage_runs, 0);
+		failures = 0;
+		for (int i = 0; i < measured_runs; i++)
+		{
+			run_scene(number_of_planes, poly_probability, FIRST_SEED + i, true);
+		}
+	}
+
+	// Generates and writes one scene, one stage at a time.  If 'record' is set, the time and allocation of each stage which finished
+	//  are added to the totals.
+	void run_scene(int number_of_planes, double poly_probability, long seed, boolean record)
+	{
+		long[] nanoseconds = new long[STAGES.length];
+		long[] bytes = new long[STAGES.length];
+		stages_finished = 0;
+		Model model = new Model(seed);
+		model.number_of_planes = number_of_planes;
+		model.poly_probability = poly_probability;
+
+		try
+		{
+			begin();
+			model.create_planes();
+			end(0, nanoseconds, bytes);
+
+			begin();
+			model.create_lines();
+			end(1, nanoseconds, bytes);
+
+			begin();
+			model.create_points();
+			end(2, nanoseconds, bytes);
+
+			begin();
+			model.sort_line_points();
+			end(3, nanoseconds, bytes);
+
+			begin();
+			model.create_polygons();
+			end(4, nanoseconds, bytes);
+
+			begin();
+			model.create_polyhedra();
+			end(5, nanoseconds, bytes);
+
+			begin();
+			List<Polyhedron> chosen_polyhedra = model.choose_polyhedra();
+			end(6, nanoseconds, bytes);
+
+			begin();
+			model.create_conglomerates(chosen_polyhedra);
+			end(7, nanoseconds, bytes);
+
+			begin();
+			model.output_to_file(output_file.getPath());
+			end(8, nanoseconds, bytes);
+		}
+		catch (RuntimeException ex)
+		{
+			if (record)
+			{
+				failures++;
+			}
+		}
+
+		if (record)
+		{
+			for (int stage = 0; stage < stages_finished; stage++)
+			{
+				stage_nanoseconds[stage] += nanoseconds[stage];
+				stage_bytes[stage] += bytes[stage];
+				stage_runs[stage]++;
+			}
+		}
+	}
+
+	private void begin()
+	{
+		start_bytes = SceneMetrics.allocated_bytes();
+		start_time = System.nanoTime();
+	}
+
+	private void end(int stage, long[] nanoseconds, long[] bytes)
+	{
+		nanoseconds[stage] = System.nanoTime() - start_time;
+		bytes[stage] = SceneMetrics.allocated_bytes() - start_bytes;
+		stages_finished = stage + 1;
+	}
+
+	// Prints the average of each stage for the configuration just run, and adds them to the CSV file if there is one.
+	void report(int number_of_planes, double poly_probability, PrintWriter csv)
+	{
+		for (int stage = 0; stage < STAGES.length; stage++)
+		{
+			int runs = stage_runs[stage];
+			if (runs == 0)
+			{
+				System.out.println(String.format(Locale.ROOT, "%6d %5.2f  %-14s %12s %14s %5d", number_of_planes, poly_probability,
+													STAGES[stage], "-", "-", 0));
+				continue;
+			}
+			double ms = stage_nanoseconds[stage] / 1e6 / runs;
+			double kb = stage_bytes[stage] / 1024.0 / runs;
+			System.out.println(String.format(Locale.ROOT, "%6d %5.2f  %-14s %12.3f %14.1f %5d", number_of_planes, poly_probability,
+												STAGES[stage], ms, kb, runs));
+			if (csv != null)
+			{
+				csv.println(String.format(Locale.ROOT, "%d,%.2f,%s,%d,%.6f,%.1f", number_of_planes, poly_probability, STAGES[stage],
+											runs, ms, measure_allocation ? kb : -1));
+			}
+		}
+		if (failures > 0)
+		{
+			System.out.println("       (failed scenes: " + failures + "; their later stages are left out)");
+		}
+	}
+
+	// Usage: StageBenchmark [warmup_runs [measured_runs [plane_counts [csv_file]]]], where plane_counts is a comma-separated list.
+	public static void main(String[] args)
+	{
+		int warmup_runs = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+		int measured_runs = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		int[] plane_counts = PLANE_COUNTS;
+		if (args.length > 2)
+		{
+			String[] fields = args[2].split(",");
+			plane_counts = new int[fields.length];
+			for (int i = 0; i < fields.length; i++)
+			{
+				plane_counts[i] = Integer.parseInt(fields[i].trim());
+			}
+		}
+
+		PrintWriter csv = null;
+		File output_file = null;
+		try
+		{
+			output_file = File.createTempFile("stage-benchmark", ".obj");
+			output_file.deleteOnExit();
+			if (args.length > 3)
+			{
+				csv = new PrintWriter(args[3], "UTF-8");
+				csv.println("planes,probability,stage,runs,ms_per_scene,kb_allocated_per_scene");
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+			return;
+		}
+
+		StageBenchmark benchmark = new StageBenchmark(output_file);
+		if (!benchmark.measure_allocation)
+		{
+			System.out.println("This JVM can't measure allocation per thread; allocation is shown as 0");
+		}
+		System.out.println("Warm-up runs: " + warmup_runs + ", measured runs: " + measured_runs + " (seeds " + FIRST_SEED + " to "
+							+ (FIRST_SEED + measured_runs - 1) + ")");
+		System.out.println("planes     p  stage          ms per scene  KB allocated  runs");
+		for (int number_of_planes: plane_counts)
+		{
+			for (double poly_probability: PROBABILITIES)
+			{
+				benchmark.run_configuration(number_of_planes, poly_probability, warmup_runs, measured_runs);
+				benchmark.report(number_of_planes, poly_probability, csv);
+			}
+		}
+
+		if (csv != null)
+		{
+			csv.close();
+		}
+	}
+}
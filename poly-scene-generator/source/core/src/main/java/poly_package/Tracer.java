@@ -0,0 +1,196 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Tracer records when each stage of each scene starts and ends on each thread, so that a batch run on several threads can be seen as
+//  a timeline: which thread was generating, merging or writing which scene, and where threads sat idle.  The timeline is written in
+//  Chrome's trace event format, which Perfetto (ui.perfetto.dev) and chrome://tracing can open.
+// Each thread writes to its own ring buffer, so recording takes no locks; once a buffer is full the oldest spans are overwritten.
+//  Tracing is off unless enable() is called, and then begin() and end() return after testing one static flag.
+public final class Tracer
+{
+	static final int BUFFER_SIZE = 1 << 16;		// Events kept per thread
+
+	static boolean enabled = false;
+	static long start_time;
+
+	static final Queue<Buffer> buffers = new ConcurrentLinkedQueue<Buffer>();
+	static final ThreadLocal<Buffer> thread_buffer = new ThreadLocal<Buffer>()
+	{
+		protected Buffer initialValue()
+		{
+			Buffer buffer = new Buffer(Thread.currentThread());
+			buffers.add(buffer);
+			return buffer;
+		}
+	};
+
+	// The events of one thread.  Only that thread writes to it; 'count' is volatile so that write_chrome_trace() sees every event
+	//  written before it.
+	static class Buffer
+	{
+		final long thread_id;
+		final String thread_name;
+		final String[] names = new String[BUFFER_SIZE];
+		final String[] categories = new String[BUFFER_SIZE];
+		final long[] scenes = new long[BUFFER_SIZE];
+		final long[] times = new long[BUFFER_SIZE];
+		final boolean[] begins = new boolean[BUFFER_SIZE];
+		volatile long count = 0;
+
+		// The spans which have begun and not ended, innermost last
+		String[] open_names = new String[16];
+		String[] open_categories = new String[16];
+		int depth = 0;
+
+		Buffer(Thread thread)
+		{
+			thread_id = thread.getId();
+			thread_name = thread.getName();
+		}
+
+		void add(String name, String category, long scene, boolean begin)
+		{
+			int slot = (int)(count & (BUFFER_SIZE - 1));
+			names[slot] = name;
+			categories[slot] = category;
+			scenes[slot] = scene;
+			begins[slot] = begin;
+			times[slot] = System.nanoTime();
+			count = count + 1;
+
+			if (begin)
+			{
+				if (depth == open_names.length)
+				{
+					open_names = Arrays.copyOf(open_names, depth * 2);
+					open_categories = Arrays.copyOf(open_categories, depth * 2);
+				}
+				open_names[depth] = name;
+				open_categories[depth] = category;
+				depth++;
+			}
+			else if (depth > 0)
+			{
+				depth--;
+			}
+		}
+	}
+
+	private Tracer()
+	{
+	}
+
+	// Turns tracing on.  It should be called before the threads being traced start, since they read the flag without synchronizing.
+	public static void enable()
+	{
+		start_time = System.nanoTime();
+		enabled = true;
+	}
+
+	// Starts a span on the current thread.  'name' and 'category' should be constants, since they're kept until the trace is written.
+	public static void begin(String name, String category, long scene)
+	{
+		if (enabled)
+		{
+			thread_buffer.get().add(name, category, scene, true);
+		}
+	}
+
+	// Ends the span most recently started on the current thread.
+	public static void end(String name, String category, long scene)
+	{
+		if (enabled)
+		{
+			thread_buffer.get().add(name, category, scene, false);
+		}
+	}
+
+	// Returns the number of spans open on the current thread, for end_to_depth().
+	public static int get_depth()
+	{
+		return enabled ? thread_buffer.get().depth : 0;
+	}
+
+	// Ends the spans open on the current thread until only 'depth' are left.  It's used when an exception has skipped the end()
+	//  calls of the spans it passed through.
+	public static void end_to_depth(int depth, long scene)
+	{
+		if (enabled)
+		{
+			Buffer buffer = thread_buffer.get();
+			while (buffer.depth > depth)
+			{
+				buffer.add(buffer.open_names[buffer.depth - 1], buffer.open_categories[buffer.depth - 1], scene, false);
+			}
+		}
+	}
+
+	// Writes every thread's events as a Chrome trace, with times in microseconds since enable().  It should be called once the
+	//  traced work has finished.  If a buffer has wrapped, an end whose begin was overwritten is left out.
+	public static void write_chrome_trace(String filename)
+	{
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(filename, "UTF-8");
+			writer.println("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+			boolean first = true;
+			for (Buffer buffer: buffers)
+			{
+				writer.print(first ? "" : ",\n");
+				first = false;
+				writer.print("{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " + buffer.thread_id
+								+ ", \"args\": {\"name\": \"" + buffer.thread_name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}}");
+
+				long count = buffer.count;
+				int depth = 0;
+				for (long i = Math.max(0, count - BUFFER_SIZE); i < count; i++)
+				{
+					int slot = (int)(i & (BUFFER_SIZE - 1));
+					if (!buffer.begins[slot] && depth == 0)
+					{
+						continue;
+					}
+					depth += buffer.begins[slot] ? 1 : -1;
+					writer.print(String.format(Locale.ROOT, ",\n{\"name\": \"%s\", \"cat\": \"%s\", \"ph\": \"%s\", \"ts\": %.3f, "
+												+ "\"pid\": 1, \"tid\": %d, \"args\": {\"scene\": %d}}", buffer.names[slot],
+												buffer.categories[slot], buffer.begins[slot] ? "B" : "E",
+												(buffer.times[slot] - start_time) / 1000.0, buffer.thread_id, buffer.scenes[slot]));
+				}
+			}
+			writer.println();
+			writer.println("]}");
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+		}
+		finally
+		{
+			try {writer.close();} catch (Exception ex) {}
+		}
+	}
+}
@@ -0,0 +1,588 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+// This class splits planar polygons into triangles by ear clipping, so that merged outline polygons (which can be concave) can be
+//  filled and exported directly instead of drawing the convex pieces they were merged from.
+// The polygon is projected onto the coordinate plane its normal is closest to, keeping the counterclockwise order.  Holes are
+//  joined to the outer loop by a pair of coincident "bridge" edges first, so that there's a single loop to clip.  Every point is kept
+//  (including points in the middle of straight edges, which the neighbouring faces need), so an n-point loop gives n - 2 triangles.
+public class Triangulator
+{
+	double[] x, y;				// Projected coordinates of each vertex (the outer loop's, then each hole's in turn)
+	int[] vertex;				// The vertex at each node of the loop being clipped; bridge vertices appear at two nodes
+	int[] next, prev;			// Links between the nodes still in the loop
+	int node_count = 0;
+	double area_epsilon;		// Twice-areas smaller than this are treated as zero
+
+	int[] triangles;
+	int triangle_count = 0;
+
+	// Triangulates a polygon's outline.  The result holds three indices into its points per triangle, counterclockwise like the polygon.
+	// A merged outline occasionally passes through the same point twice, going around an extra loop on the way.  The outline is split
+	//  into simple loops at these points: the loop with the largest area is the outer loop, loops going the other way are holes in it,
+	//  and loops going the same way are filled separately unless they lie inside the outer loop (which already covers them).
+	public static int[] triangulate(Polygon gon)
+	{
+		double[] normal = new double[3];
+		gon.calculate_newell_normal(normal);
+
+		List<List<Integer>> loops = split_loops(gon.get_points());
+		if (loops.size() == 1)
+		{
+			return triangulate(gon.get_points(), null, normal);
+		}
+		JfrEvents.fallback("Triangulator", "Polygon " + gon.name + " repeats points and was split into " + loops.size() + " loops");
+
+		List<Integer> outer = loops.get(0);
+		for (List<Integer> loop: loops)
+		{
+			if (Math.abs(loop_area(gon, loop, normal)) > Math.abs(loop_area(gon, outer, normal)))
+			{
+				outer = loop;
+			}
+		}
+		boolean outer_positive = loop_area(gon, outer, normal) > 0;
+
+		List<List<Integer>> holes = new ArrayList<List<Integer>>();
+		List<List<Integer>> separate = new ArrayList<List<Integer>>();
+		for (List<Integer> loop: loops)
+		{
+			if (loop != outer && loop.size() >= 3)
+			{
+				if ((loop_area(gon, loop, normal) > 0) != outer_positive)
+				{
+					holes.add(loop);
+				}
+				else if (!inside_loop(gon, outer, loop, normal))
+				{
+					separate.add(loop);
+				}
+			}
+		}
+
+		List<Integer> result = new ArrayList<Integer>();
+		add_triangles(gon, outer, holes, normal, result);
+		for (List<Integer> loop: separate)
+		{
+			add_triangles(gon, loop, new ArrayList<List<Integer>>(), normal, result);
+		}
+
+		int[] triangles = new int[result.size()];
+		for (int i = 0; i < triangles.length; i++)
+		{
+			triangles[i] = result.get(i);
+		}
+		return triangles;
+	}
+
+	// Splits a loop of points into loops which don't repeat any point, as lists of indices into 'points'.  Whenever a point comes up
+	//  again, the points since it was last seen are taken out as a loop of their own.
+	static List<List<Integer>> split_loops(List<Point> points)
+	{
+		List<List<Integer>> loops = new ArrayList<List<Integer>>();
+		List<Integer> current = new ArrayList<Integer>();
+		HashMap<Point, Integer> positions = new HashMap<Point, Integer>();
+
+		for (int i = 0; i < points.size(); i++)
+		{
+			Integer position = positions.get(points.get(i));
+			if (position == null)
+			{
+				positions.put(points.get(i), current.size());
+				current.add(i);
+				continue;
+			}
+
+			List<Integer> loop = new ArrayList<Integer>(current.subList(position, current.size()));
+			loops.add(loop);
+			for (int j = position + 1; j < current.size(); j++)
+			{
+				positions.remove(points.get(current.get(j)));
+			}
+			current.subList(position + 1, current.size()).clear();
+		}
+		loops.add(0, current);
+		return loops;
+	}
+
+	// Triangulates one loop of a polygon with the given holes, adding the triangles as indices into the polygon's points.
+	private static void add_triangles(Polygon gon, List<Integer> outer, List<List<Integer>> holes, double[] normal, List<Integer> result)
+	{
+		List<Integer> all_indices = new ArrayList<Integer>(outer);
+		List<List<Point>> hole_points = new ArrayList<List<Point>>();
+		for (List<Integer> hole: holes)
+		{
+			all_indices.addAll(hole);
+			hole_points.add(loop_points(gon, hole));
+		}
+
+		for (int index: triangulate(loop_points(gon, outer), hole_points, normal))
+		{
+			result.add(all_indices.get(index));
+		}
+	}
+
+	private static List<Point> loop_points(Polygon gon, List<Integer> loop)
+	{
+		List<Point> loop_points = new ArrayList<Point>();
+		for (int index: loop)
+		{
+			loop_points.add(gon.get_point(index));
+		}
+		return loop_points;
+	}
+
+	// Twice the area of a loop of a polygon's points, positive if it's counterclockwise about the normal.
+	private static double loop_area(Polygon gon, List<Integer> loop, double[] normal)
+	{
+		double area = 0;
+		for (int i = 0; i < loop.size(); i++)
+		{
+			Point current = gon.get_point(loop.get(i));
+			Point next = gon.get_point(loop.get((i + 1) % loop.size()));
+			area += normal[0] * (current.y_point * next.z_point - current.z_point * next.y_point)
+					+ normal[1] * (current.z_point * next.x_point - current.x_point * next.z_point)
+					+ normal[2] * (current.x_point * next.y_point - current.y_point * next.x_point);
+		}
+		return area;
+	}
+
+	// True if the middle of the first triangle of 'loop' is inside 'outer' (by counting crossings of a ray in the +x direction).
+	private static boolean inside_loop(Polygon gon, List<Integer> outer, List<Integer> loop, double[] normal)
+	{
+		Triangulator projection = new Triangulator();
+		List<Point> outer_points = loop_points(gon, outer);
+		List<List<Point>> inner = new ArrayList<List<Point>>();
+		inner.add(loop_points(gon, loop));
+		projection.x = new double[outer.size() + loop.size()];
+		projection.y = new double[projection.x.length];
+		projection.project(outer_points, inner, normal);
+
+		int[] triangle = triangulate(inner.get(0), null, normal);
+		if (triangle.length == 0)
+		{
+			return true;
+		}
+		double px = 0, py = 0;
+		for (int i = 0; i < 3; i++)
+		{
+			px += projection.x[outer.size() + triangle[i]] / 3;
+			py += projection.y[outer.size() + triangle[i]] / 3;
+		}
+
+		boolean inside = false;
+		for (int i = 0; i < outer.size(); i++)
+		{
+			int j = (i + 1) % outer.size();
+			double ax = projection.x[i], ay = projection.y[i], bx = projection.x[j], by = projection.y[j];
+			if ((ay > py) != (by > py) && px < ax + (py - ay) * (bx - ax) / (by - ay))
+			{
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	// Triangulates the planar region inside 'outer' (counterclockwise viewed from the side 'normal' points to) and outside each of
+	//  'holes', which may be null.  The result indexes the outer points followed by the points of each hole in turn.
+	public static int[] triangulate(List<Point> outer, List<List<Point>> holes, double[] normal)
+	{
+		Triangulator triangulator = new Triangulator();
+		return triangulator.run(outer, (holes == null) ? new ArrayList<List<Point>>() : holes, normal);
+	}
+
+	private int[] run(List<Point> outer, List<List<Point>> holes, double[] normal)
+	{
+		int vertex_total = outer.size();
+		for (List<Point> hole: holes)
+		{
+			vertex_total += hole.size();
+		}
+		if (outer.size() < 3)
+		{
+			return new int[0];
+		}
+
+		x = new double[vertex_total];
+		y = new double[vertex_total];
+		vertex = new int[vertex_total + 2 * holes.size()];
+		next = new int[vertex.length];
+		prev = new int[vertex.length];
+		project(outer, holes, normal);
+
+		// The outer loop must be counterclockwise and the holes clockwise for the bridges to join them up the right way round
+		int outer_start = add_loop(0, outer.size(), true);
+		int first_vertex = outer.size();
+		List<Integer> hole_starts = new ArrayList<Integer>();
+		for (List<Point> hole: holes)
+		{
+			if (hole.size() >= 3)
+			{
+				hole_starts.add(add_loop(first_vertex, hole.size(), false));
+			}
+			first_vertex += hole.size();
+		}
+		outer_start = eliminate_holes(outer_start, hole_starts);
+
+		triangles = new int[(node_count - 2) * 3];
+		clip_ears(outer_start);
+
+		int[] result = new int[triangle_count * 3];
+		System.arraycopy(triangles, 0, result, 0, result.length);
+		return result;
+	}
+
+	// Fills x and y by dropping the coordinate in which the normal is largest.  The remaining two are taken in the order that keeps
+	//  a loop which is counterclockwise about the normal counterclockwise in 2D.
+	private void project(List<Point> outer, List<List<Point>> holes, double[] normal)
+	{
+		double abs_x = Math.abs(normal[0]);
+		double abs_y = Math.abs(normal[1]);
+		double abs_z = Math.abs(normal[2]);
+		int axis = (abs_x > abs_y && abs_x > abs_z) ? 0 : ((abs_y > abs_z) ? 1 : 2);
+		boolean flip = normal[axis] < 0;
+
+		List<Point> all_points = new ArrayList<Point>(outer);
+		for (List<Point> hole: holes)
+		{
+			all_points.addAll(hole);
+		}
+
+		double min_x = Double.MAX_VALUE, max_x = -Double.MAX_VALUE, min_y = Double.MAX_VALUE, max_y = -Double.MAX_VALUE;
+		for (int i = 0; i < all_points.size(); i++)
+		{
+			Point current_point = all_points.get(i);
+			double u, v;
+			if (axis == 0)
+			{
+				u = current_point.y_point;
+				v = current_point.z_point;
+			}
+			else if (axis == 1)
+			{
+				u = current_point.z_point;
+				v = current_point.x_point;
+			}
+			else
+			{
+				u = current_point.x_point;
+				v = current_point.y_point;
+			}
+			x[i] = flip ? v : u;
+			y[i] = flip ? u : v;
+
+			min_x = Math.min(min_x, x[i]);
+			max_x = Math.max(max_x, x[i]);
+			min_y = Math.min(min_y, y[i]);
+			max_y = Math.max(max_y, y[i]);
+		}
+
+		double size = Math.max(max_x - min_x, max_y - min_y);
+		area_epsilon = 1e-12 * size * size;
+	}
+
+	// Links the given vertices into a loop of new nodes, in the requested direction, and returns one of the nodes.
+	private int add_loop(int first_vertex, int count, boolean counterclockwise)
+	{
+		double area = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int current = first_vertex + i;
+			int following = first_vertex + (i + 1) % count;
+			area += x[current] * y[following] - x[following] * y[current];
+		}
+		boolean reverse = (area > 0) != counterclockwise;
+
+		int first_node = node_count;
+		for (int i = 0; i < count; i++)
+		{
+			vertex[node_count] = first_vertex + (reverse ? count - 1 - i : i);
+			next[node_count] = first_node + (i + 1) % count;
+			prev[node_count] = first_node + (i + count - 1) % count;
+			node_count++;
+		}
+		return first_node;
+	}
+
+	// Joins each hole to the outer loop, starting with the hole that reaches furthest in +x so that later bridges can't cross it.
+	private int eliminate_holes(int outer_start, List<Integer> hole_starts)
+	{
+		List<Integer> rightmost = new ArrayList<Integer>();
+		for (int start: hole_starts)
+		{
+			int best = start;
+			int node = next[start];
+			while (node != start)
+			{
+				if (x[vertex[node]] > x[vertex[best]])
+				{
+					best = node;
+				}
+				node = next[node];
+			}
+			rightmost.add(best);
+		}
+
+		Collections.sort(rightmost, new Comparator<Integer>()
+		{
+			public int compare(Integer first, Integer second)
+			{
+				return Double.compare(x[vertex[second]], x[vertex[first]]);
+			}
+		});
+
+		for (int hole_node: rightmost)
+		{
+			int bridge = find_bridge(hole_node, outer_start);
+			if (bridge < 0)
+			{
+				JfrEvents.fallback("Triangulator", "A hole isn't inside the outer loop and was left unfilled");
+				continue;
+			}
+			split_loop(bridge, hole_node);
+		}
+		return outer_start;
+	}
+
+	// Finds a node of the outer loop which can be joined to the hole's rightmost node M without crossing any edge (David Eberly's
+	//  method): cast a ray from M in the +x direction, take the nearest edge it hits, and take that edge's endpoint furthest in +x
+	//  unless a reflex vertex lies inside the triangle between M, the hit and that endpoint, in which case the reflex vertex making the
+	//  smallest angle with the ray is used.
+	private int find_bridge(int hole_node, int outer_start)
+	{
+		double mx = x[vertex[hole_node]];
+		double my = y[vertex[hole_node]];
+		double hit_x = Double.MAX_VALUE;
+		int candidate = -1;
+
+		int node = outer_start;
+		do
+		{
+			int following = next[node];
+			double ax = x[vertex[node]], ay = y[vertex[node]];
+			double bx = x[vertex[following]], by = y[vertex[following]];
+
+			if (((ay <= my && by >= my) || (ay >= my && by <= my)) && ay != by)
+			{
+				double crossing = ax + (my - ay) * (bx - ax) / (by - ay);
+				if (crossing >= mx && crossing < hit_x)
+				{
+					hit_x = crossing;
+					candidate = (ax > bx) ? node : following;
+				}
+			}
+			node = following;
+		} while (node != outer_start);
+
+		if (candidate < 0)
+		{
+			return -1;
+		}
+
+		double px = x[vertex[candidate]], py = y[vertex[candidate]];
+		if (hit_x == px && my == py)
+		{
+			return candidate;
+		}
+
+		double best_tangent = Double.MAX_VALUE;
+		int best = candidate;
+		node = outer_start;
+		do
+		{
+			double nx = x[vertex[node]], ny = y[vertex[node]];
+			if (node != candidate && nx >= mx && is_reflex(node)
+					&& point_in_triangle(mx, my, hit_x, my, px, py, nx, ny))
+			{
+				double tangent = Math.abs(my - ny) / (nx - mx);
+				if (tangent < best_tangent || (tangent == best_tangent && nx > x[vertex[best]]))
+				{
+					best_tangent = tangent;
+					best = node;
+				}
+			}
+			node = next[node];
+		} while (node != outer_start);
+
+		if (best_tangent == Double.MAX_VALUE)
+		{
+			return candidate;
+		}
+		return best;
+	}
+
+	// Joins two loops with a pair of edges between node a (on the outer loop) and node b (on a hole), duplicating both nodes:
+	//  a -> b -> ... around the hole ... -> b' -> a' -> the rest of the outer loop.
+	private void split_loop(int a, int b)
+	{
+		int a2 = node_count++;
+		int b2 = node_count++;
+		vertex[a2] = vertex[a];
+		vertex[b2] = vertex[b];
+
+		int a_next = next[a];
+		int b_prev = prev[b];
+
+		next[a] = b;
+		prev[b] = a;
+
+		next[b_prev] = b2;
+		prev[b2] = b_prev;
+		next[b2] = a2;
+		prev[a2] = b2;
+
+		next[a2] = a_next;
+		prev[a_next] = a2;
+	}
+
+	// Repeatedly cuts off a convex vertex whose triangle contains no other vertex.
+	// Merged outlines often run along the same line of the arrangement more than once, so that once the ears beside one stretch
+	//  are cut off the loop doubles back on itself there, and no vertex is an ear.  When a full trip around the loop finds no ear, a
+	//  vertex where the loop goes straight on or turns right back is cut off instead; its triangle has no area, so the area covered
+	//  doesn't change, and the ears on either side are freed.  Only if there is no such vertex either (which would mean rounding had
+	//  made the loop self-intersecting) is the rest cut into a fan, so that the whole polygon is still covered.
+	private void clip_ears(int start)
+	{
+		int remaining = node_count;
+		int node = start;
+		int stalled = 0;
+
+		while (remaining > 3)
+		{
+			if (stalled >= remaining)
+			{
+				int flat = find_flat_vertex(node);
+				if (flat < 0)
+				{
+					JfrEvents.fallback("Triangulator", "No ear found; the last " + remaining + " vertices were cut into a fan");
+					int current = next[node];
+					while (next[current] != node)
+					{
+						add_triangle(node, current, next[current]);
+						current = next[current];
+					}
+					return;
+				}
+				node = flat;
+			}
+			else if (!is_ear(node))
+			{
+				node = next[node];
+				stalled++;
+				continue;
+			}
+
+			add_triangle(prev[node], node, next[node]);
+			int following = next[node];
+			next[prev[node]] = following;
+			prev[following] = prev[node];
+			remaining--;
+			node = following;
+			stalled = 0;
+		}
+
+		add_triangle(prev[node], node, next[node]);
+	}
+
+	// Returns a node of the loop containing 'node' at which the loop doesn't turn, or -1 if there isn't one.
+	private int find_flat_vertex(int node)
+	{
+		int current = node;
+		do
+		{
+			int a = prev[current], c = next[current];
+			if (Math.abs(cross(x[vertex[a]], y[vertex[a]], x[vertex[current]], y[vertex[current]], x[vertex[c]], y[vertex[c]]))
+					<= area_epsilon)
+			{
+				return current;
+			}
+			current = next[current];
+		} while (current != node);
+		return -1;
+	}
+
+	private void add_triangle(int a, int b, int c)
+	{
+		triangles[triangle_count * 3] = vertex[a];
+		triangles[triangle_count * 3 + 1] = vertex[b];
+		triangles[triangle_count * 3 + 2] = vertex[c];
+		triangle_count++;
+	}
+
+	private boolean is_ear(int node)
+	{
+		int a = prev[node], c = next[node];
+		double ax = x[vertex[a]], ay = y[vertex[a]];
+		double bx = x[vertex[node]], by = y[vertex[node]];
+		double cx = x[vertex[c]], cy = y[vertex[c]];
+
+		if (cross(ax, ay, bx, by, cx, cy) <= area_epsilon)
+		{
+			return false;
+		}
+
+		// Only a reflex vertex can be inside a convex vertex's triangle without an edge crossing it first; check the bounding box
+		//  before the full test
+		double min_x = Math.min(ax, Math.min(bx, cx)), max_x = Math.max(ax, Math.max(bx, cx));
+		double min_y = Math.min(ay, Math.min(by, cy)), max_y = Math.max(ay, Math.max(by, cy));
+
+		int other = next[c];
+		while (other != a)
+		{
+			double px = x[vertex[other]], py = y[vertex[other]];
+			if (px >= min_x && px <= max_x && py >= min_y && py <= max_y
+					&& !(px == ax && py == ay) && !(px == bx && py == by) && !(px == cx && py == cy)
+					&& is_reflex(other) && point_in_triangle(ax, ay, bx, by, cx, cy, px, py))
+			{
+				return false;
+			}
+			other = next[other];
+		}
+		return true;
+	}
+
+	private boolean is_reflex(int node)
+	{
+		int a = prev[node], c = next[node];
+		return cross(x[vertex[a]], y[vertex[a]], x[vertex[node]], y[vertex[node]], x[vertex[c]], y[vertex[c]]) <= area_epsilon;
+	}
+
+	// Twice the signed area of triangle abc; positive if it's counterclockwise.
+	private static double cross(double ax, double ay, double bx, double by, double cx, double cy)
+	{
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+
+	// True if p is inside or on the edge of triangle abc, which may go either way around.  A point within rounding of an edge counts
+	//  as on it; a reflex vertex lying on the edge a clipped ear would leave behind has to stop the ear, or the triangles overlap.
+	private boolean point_in_triangle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py)
+	{
+		double first = cross(ax, ay, bx, by, px, py);
+		double second = cross(bx, by, cx, cy, px, py);
+		double third = cross(cx, cy, ax, ay, px, py);
+		return (first >= -area_epsilon && second >= -area_epsilon && third >= -area_epsilon)
+				|| (first <= area_epsilon && second <= area_epsilon && third <= area_epsilon);
+	}
+}
@@ -0,0 +1,255 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// This class writes rotated copies of a finished scene, for training data which needs the same scene from many orientations.  The
+//  scene is only generated once: the constructor packs the points of the outline polygons into one array (in the order
+//  Model.output_to_file() writes them) and formats the edge labels, which don't change with rotation.  Each variant is then a 3x3
+//  rotation matrix from a Quaternion and one pass over that array, with the .obj file written as it goes.
+public class VariantExporter
+{
+	double[] positions;			// x, y, z of each vertex of each outline polygon
+	int[] face_sizes;			// The number of vertices of each outline polygon
+	String labels;				// The body of the .labels file, which is the same for every variant
+	double[] rotation = new double[9];
+
+	public VariantExporter(List<Conglomerate> conglomerates)
+	{
+		int vertex_count = 0;
+		int face_count = 0;
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				vertex_count += gon.get_num_points();
+				face_count++;
+			}
+		}
+
+		positions = new double[vertex_count * 3];
+		face_sizes = new int[face_count];
+		int position_index = 0;
+		int face_index = 0;
+		for (Conglomerate conglo: conglomerates)
+		{
+			for (Polygon gon: conglo.get_outline_draw_list())
+			{
+				for (Point current_point: gon.get_points())
+				{
+					positions[position_index++] = current_point.x_point;
+					positions[position_index++] = current_point.y_point;
+					positions[position_index++] = current_point.z_point;
+				}
+				face_sizes[face_index++] = gon.get_num_points();
+			}
+		}
+
+		StringWriter label_text = new StringWriter();
+		PrintWriter label_writer = new PrintWriter(label_text);
+		Model.write_labels(conglomerates, label_writer);
+		label_writer.flush();
+		labels = label_text.toString();
+	}
+
+	// Writes the scene rotated by 'camera' to an .obj file in the same form as Model.output_to_file(), with its .labels file beside it.
+	public void write_variant(Quaternion camera, String filename) throws IOException
+	{
+		camera.get_rotation(rotation);
+		double r00 = rotation[0], r01 = rotation[1], r02 = rotation[2];
+		double r10 = rotation[3], r11 = rotation[4], r12 = rotation[5];
+		double r20 = rotation[6], r21 = rotation[7], r22 = rotation[8];
+
+		PrintWriter writer = new PrintWriter(filename, "UTF-8");
+		try
+		{
+			writer.println("# Polygons representing a polyhedral scene");
+			writer.println("");
+
+			int position_index = 0;
+			for (int face_size: face_sizes)
+			{
+				for (int i = 0; i < face_size; i++)
+				{
+					double x = positions[position_index];
+					double y = positions[position_index + 1];
+					double z = positions[position_index + 2];
+					position_index += 3;
+					writer.println("v " + (r00 * x + r01 * y + r02 * z) + " " + (r10 * x + r11 * y + r12 * z) + " "
+									+ (r20 * x + r21 * y + r22 * z));
+				}
+
+				writer.print("f ");
+				for (int i = -face_size; i < 0; i++)
+				{
+					writer.print(i + " ");
+				}
+				writer.println();
+				writer.println();
+			}
+			if (writer.checkError())
+			{
+				throw new IOException("Error writing " + filename);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		String labels_filename = Model.labels_filename(filename);
+		writer = new PrintWriter(labels_filename, "UTF-8");
+		try
+		{
+			Model.write_labels_header(writer);
+			writer.print(labels);
+			if (writer.checkError())
+			{
+				throw new IOException("Error writing " + labels_filename);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	// Returns 'count' rotations chosen uniformly at random, the same ones for the same seed.
+	public static List<Quaternion> random_rotations(int count, long seed)
+	{
+		Random random = new Random(seed);
+		List<Quaternion> rotations = new ArrayList<Quaternion>();
+		for (int i = 0; i < count; i++)
+		{
+			rotations.add(Quaternion.random_rotation(random));
+		}
+		return rotations;
+	}
+
+	// Reads rotations from a file with one quaternion per line, as "w x y z" (which needn't be normalized, but can't be zero).  Blank
+	//  lines and lines starting with # are skipped.
+	public static List<Quaternion> read_rotations(String filename) throws IOException
+	{
+		List<Quaternion> rotations = new ArrayList<Quaternion>();
+		BufferedReader reader = new BufferedReader(new FileReader(filename));
+		try
+		{
+			String line;
+			int line_number = 0;
+			while ((line = reader.readLine()) != null)
+			{
+				line_number++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+
+				String[] fields = line.split("\\s+");
+				try
+				{
+					if (fields.length != 4)
+					{
+						throw new NumberFormatException("expected w x y z");
+					}
+					double w = Double.parseDouble(fields[0]), x = Double.parseDouble(fields[1]);
+					double y = Double.parseDouble(fields[2]), z = Double.parseDouble(fields[3]);
+					// Quaternion divides by the length, so a zero (or infinite) one would make every vertex NaN
+					double length = Math.sqrt(w * w + x * x + y * y + z * z);
+					if (!(length > 0) || Double.isInfinite(length))
+					{
+						throw new NumberFormatException("the quaternion must have a non-zero, finite length");
+					}
+					rotations.add(new Quaternion(w, x, y, z));
+				}
+				catch (NumberFormatException ex)
+				{
+					throw new IOException("Bad rotation on line " + line_number + " of " + filename + ": " + ex.getMessage());
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return rotations;
+	}
+
+	// Generates a scene, writes it as prefix.obj, and then writes its rotated copies as prefix-variant1.obj and so on.  The rotations
+	//  are either random (from the seed, if one is given) or read from a file.
+	public static void main(String[] args)
+	{
+		if (args.length < 5 || !(args[3].equals("--rotations") || args[3].equals("--rotation-file")))
+		{
+			System.out.println("Usage: VariantExporter planes probability prefix --rotations count [--seed seed]");
+			System.out.println("       VariantExporter planes probability prefix --rotation-file file");
+			return;
+		}
+
+		int number_of_planes = Integer.parseInt(args[0]);
+		double poly_probability = Double.parseDouble(args[1]);
+		String prefix = args[2];
+
+		List<Quaternion> rotations;
+		try
+		{
+			if (args[3].equals("--rotations"))
+			{
+				long seed = (args.length > 6 && args[5].equals("--seed")) ? Long.parseLong(args[6]) : System.nanoTime();
+				rotations = random_rotations(Integer.parseInt(args[4]), seed);
+			}
+			else
+			{
+				rotations = read_rotations(args[4]);
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error reading rotations: " + ex);
+			return;
+		}
+
+		Model my_model = new Model();
+		my_model.create_scene(number_of_planes, poly_probability, prefix + ".obj");
+
+		VariantExporter exporter = new VariantExporter(my_model.get_conglomerates());
+		long start_time = System.nanoTime();
+		try
+		{
+			for (int i = 0; i < rotations.size(); i++)
+			{
+				exporter.write_variant(rotations.get(i), prefix + "-variant" + (i + 1) + ".obj");
+			}
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error writing to file: " + ex);
+			return;
+		}
+		double seconds = (System.nanoTime() - start_time) / 1e9;
+		System.out.println("Wrote " + rotations.size() + " variants in " + seconds + " s");
+	}
+}
@@ -0,0 +1,116 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+// This class holds the vector, quaternion and matrix arithmetic used by Model, Conglomerate, Polyhedron and Quaternion.
+// Vectors are passed as their x, y and z components (or as arrays of three), and results which aren't a single number are stored in
+//  an array the caller supplies, so that nothing is allocated; the functions are small enough for the JIT to inline.
+public final class VectorMath
+{
+	private VectorMath()
+	{
+	}
+
+	public static double dot(double ax, double ay, double az, double bx, double by, double bz)
+	{
+		return ax * bx + ay * by + az * bz;
+	}
+
+	public static double dot(double[] a, double[] b)
+	{
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	public static double length_squared(double x, double y, double z)
+	{
+		return x * x + y * y + z * z;
+	}
+
+	public static double length(double x, double y, double z)
+	{
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	// Stores a x b in 'result'.
+	public static void cross(double ax, double ay, double az, double bx, double by, double bz, double[] result)
+	{
+		result[0] = ay * bz - az * by;
+		result[1] = az * bx - ax * bz;
+		result[2] = ax * by - ay * bx;
+	}
+
+	// Stores a x b in 'result', which may be the same array as a or b.
+	public static void cross(double[] a, double[] b, double[] result)
+	{
+		cross(a[0], a[1], a[2], b[0], b[1], b[2], result);
+	}
+
+	// Returns a.(b x c), the signed volume of the parallelepiped spanned by the three vectors.
+	public static double triple_product(double ax, double ay, double az, double bx, double by, double bz, double cx, double cy, 
+			double cz)
+	{
+		return ax * (by * cz - bz * cy) + ay * (bz * cx - bx * cz) + az * (bx * cy - by * cx);
+	}
+
+	// Returns the multiple of d which is the projection of u on d, ie (u.d) / (d.d).
+	public static double projection_factor(double ux, double uy, double uz, double dx, double dy, double dz)
+	{
+		return dot(ux, uy, uz, dx, dy, dz) / length_squared(dx, dy, dz);
+	}
+
+	// Stores the quaternion product ab in 'result' as (w, x, y, z).  The product isn't commutative; rotating by b and then by a is ab.
+	public static void multiply_quaternions(double aw, double ax, double ay, double az, double bw, double bx, double by, double bz,
+			double[] result)
+	{
+		double w = aw*bw - ax*bx - ay*by - az*bz;
+		double x = aw*bx + ax*bw + ay*bz - az*by;
+		double y = aw*by - ax*bz + ay*bw + az*bx;
+		double z = aw*bz + ax*by - ay*bx + az*bw;
+		result[0] = w;
+		result[1] = x;
+		result[2] = y;
+		result[3] = z;
+	}
+
+	// Stores the 4x4 matrix of the rotation represented by the unit quaternion (w, x, y, z) in 'matrix', in column-major order as
+	//  glLoadMatrixd() takes it, with no translation.
+	public static void rotation_matrix(double w, double x, double y, double z, double[] matrix)
+	{
+//		1-2y2-2z2	2xy-2wz		2xz+2wy		0
+//		2xy+2wz		1-2x2-2z2	2yz-2wx		0
+//		2xz-2wy		2yz+2wx		1-2x2-2y2	0
+//		0			0			0			1
+
+		matrix[0] = 1 - 2*y*y - 2*z*z;
+		matrix[1] = 2*x*y + 2*w*z;
+		matrix[2] = 2*x*z - 2*w*y;
+		matrix[3] = 0;
+		matrix[4] = 2*x*y - 2*w*z;
+		matrix[5] = 1 - 2*x*x - 2*z*z;
+		matrix[6] = 2*y*z + 2*w*x;
+		matrix[7] = 0;
+		matrix[8] = 2*x*z + 2*w*y;
+		matrix[9] = 2*y*z - 2*w*x;
+		matrix[10] = 1 - 2*x*x - 2*y*y;
+		matrix[11] = 0;
+		matrix[12] = 0;
+		matrix[13] = 0;
+		matrix[14] = 0;
+		matrix[15] = 1;
+	}
+}
@@ -0,0 +1,306 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// This class makes many scenes from one arrangement of planes, for datasets which need more samples than there is time to generate
+//  arrangements for.  The planes, lines, points, polygons and polyhedra take almost all the time and don't depend on which polyhedra
+//  are visible, so they are built once (Model.generate_arrangement()), and each variant only chooses a new set of visible polyhedra
+//  and brings the conglomerates up to date.
+// Each polyhedron gets one uniform random number (Model.draw_visibility()) and is visible at probability p if its number is below p,
+//  so a sweep over several probabilities with the same numbers gives nested scenes: each one's polyhedra are also visible in all
+//  those with a higher probability.
+// Between variants only the conglomerates which have lost a polyhedron or gained a neighbour are rebuilt; the others are kept as
+//  they are.  A rebuilt conglomerate is made exactly as Model.create_conglomerates() would make it for the same visible polyhedra,
+//  so a variant is the same scene generate_scene() gives for those polyhedra.
+public class VisibilityVariants
+{
+	Model model;
+	boolean[] visible;					// Whether each polyhedron (by name, which is its index in model.polyhedra) is visible
+	List<Conglomerate> conglomerates = new ArrayList<Conglomerate>();
+	HashMap<Polyhedron, Conglomerate> owners = new HashMap<Polyhedron, Conglomerate>();	// The conglomerate of each visible polyhedron
+	boolean rebuild_all = false;		// Set when a variant failed part way through, leaving its polygons in an unknown state
+
+	int kept_conglomerates = 0;			// Counts over all the variants so far, to show how much work was saved
+	int rebuilt_conglomerates = 0;
+
+	// 'model' must have had generate_arrangement() called, and nothing else since.
+	public VisibilityVariants(Model model)
+	{
+		this.model = model;
+		visible = new boolean[model.polyhedra.size()];
+	}
+
+	// Makes visible the polyhedra whose draws are below 'probability', and returns the scene's conglomerates.
+	public List<Conglomerate> choose(double[] draws, double probability)
+	{
+		boolean[] new_visible = new boolean[draws.length];
+		for (int i = 0; i < draws.length; i++)
+		{
+			new_visible[i] = draws[i] < probability;
+		}
+		return choose(new_visible);
+	}
+
+	// Makes visible the polyhedra marked in 'new_visible' (by name), and returns the scene's conglomerates in the order
+	//  create_conglomerates() would give them.  If merging fails (see Conglomerate.combine_polygons()) the exception is passed on, and
+	//  the next call rebuilds everything.
+	public List<Conglomerate> choose(boolean[] new_visible)
+	{
+		List<Polyhedron> polyhedra = model.polyhedra;
+
+		// Find the conglomerates which can't be kept: those with a polyhedron which is no longer visible, and those next to one which
+		//  has become visible
+		HashSet<Conglomerate> changed = new HashSet<Conglomerate>();
+		if (rebuild_all)
+		{
+			changed.addAll(conglomerates);
+		}
+		for (int i = 0; i < new_visible.length; i++)
+		{
+			if (new_visible[i] == visible[i])
+			{
+				continue;
+			}
+
+			Polyhedron poly = polyhedra.get(i);
+			if (visible[i])
+			{
+				if (owners.containsKey(poly))
+				{
+					changed.add(owners.get(poly));
+				}
+			}
+			else
+			{
+				for (Polygon gon: poly.polygons)
+				{
+					Polyhedron neighbour = (gon.polyhedron_one == poly) ? gon.polyhedron_two : gon.polyhedron_one;
+					if (neighbour != null && owners.containsKey(neighbour))
+					{
+						changed.add(owners.get(neighbour));
+					}
+				}
+			}
+		}
+
+		// The polyhedra to group again are the visible ones from the changed conglomerates and the newly visible ones.  Their
+		//  polygons are cleared of the last variant's exploring and merging first.
+		List<Conglomerate> kept = new ArrayList<Conglomerate>();
+		for (Conglomerate conglo: conglomerates)
+		{
+			if (!changed.contains(conglo))
+			{
+				kept.add(conglo);
+			}
+		}
+		for (Conglomerate conglo: changed)
+		{
+			for (Polyhedron poly: conglo.collected_polyhedra)
+			{
+				owners.remove(poly);
+				reset(poly);
+			}
+		}
+
+		List<Polyhedron> regrouped = new ArrayList<Polyhedron>();
+		for (int i = 0; i < new_visible.length; i++)
+		{
+			Polyhedron poly = polyhedra.get(i);
+			if (rebuild_all)
+			{
+				reset(poly);
+			}
+			poly.set_is_being_drawn(new_visible[i]);
+			if (new_visible[i] && !owners.containsKey(poly))
+			{
+				reset(poly);
+				regrouped.add(poly);
+			}
+		}
+		visible = Arrays.copyOf(new_visible, new_visible.length);
+
+		// Only the polyhedra being regrouped can share a polygon with each other, so orienting their polygons in order of name gives
+		//  each polygon the direction choose_polyhedra() would
+		rebuild_all = true;
+		for (Polyhedron poly: regrouped)
+		{
+			poly.make_polygon_points_ccw();
+		}
+		model.conglomerates = new ArrayList<Conglomerate>();
+		model.create_conglomerates(regrouped);
+		rebuild_all = false;
+
+		for (Conglomerate conglo: model.conglomerates)
+		{
+			for (Polyhedron poly: conglo.collected_polyhedra)
+			{
+				owners.put(poly, conglo);
+			}
+		}
+		kept_conglomerates += kept.size();
+		rebuilt_conglomerates += model.conglomerates.size();
+
+		// create_conglomerates() starts each conglomerate from its first visible polyhedron, so they're in order of their first
+		//  polyhedra
+		conglomerates = kept;
+		conglomerates.addAll(model.conglomerates);
+		Collections.sort(conglomerates, new Comparator<Conglomerate>()
+		{
+			public int compare(Conglomerate first, Conglomerate second)
+			{
+				return Integer.compare(first.collected_polyhedra.get(0).name, second.collected_polyhedra.get(0).name);
+			}
+		});
+		for (int i = 0; i < conglomerates.size(); i++)
+		{
+			conglomerates.get(i).name = i;
+		}
+		model.conglomerates = conglomerates;
+		return conglomerates;
+	}
+
+	// Clears what exploring and merging the last time left in a polyhedron and its polygons.
+	private void reset(Polyhedron poly)
+	{
+		poly.has_been_explored = false;
+		for (Polygon gon: poly.polygons)
+		{
+			gon.has_been_explored = false;
+			gon.merged_into = null;
+		}
+	}
+
+	// Writes a variant as an .obj file with its .labels file, in the same form as Model.write_scene().
+	public static void write_variant(List<Conglomerate> conglomerates, String filename) throws IOException
+	{
+		PrintWriter writer = new PrintWriter(filename, "UTF-8");
+		try
+		{
+			Model.write_obj(conglomerates, writer);
+			if (writer.checkError())
+			{
+				throw new IOException("Error writing " + filename);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		String labels_filename = Model.labels_filename(filename);
+		writer = new PrintWriter(labels_filename, "UTF-8");
+		try
+		{
+			Model.write_labels_header(writer);
+			Model.write_labels(conglomerates, writer);
+			if (writer.checkError())
+			{
+				throw new IOException("Error writing " + labels_filename);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	// Builds one arrangement and writes variants of it: either 'count' scenes with probability p, each with new random numbers
+	//  (prefix-variant1.obj and so on; the first is the scene Main gives for the seed), or one scene for each probability in a
+	//  comma-separated list, all with the same numbers (prefix-p0.3.obj and so on), so that the scenes are nested.
+	public static void main(String[] args)
+	{
+		if (args.length < 4 || !(args[2].equals("--variants") || args[2].equals("--sweep"))
+				|| (args[2].equals("--variants") && args.length < 5))
+		{
+			System.out.println("Usage: VisibilityVariants planes prefix --variants count probability [--seed seed]");
+			System.out.println("       VisibilityVariants planes prefix --sweep probability,probability,... [--seed seed]");
+			return;
+		}
+
+		int number_of_planes = Integer.parseInt(args[0]);
+		String prefix = args[1];
+		boolean sweep = args[2].equals("--sweep");
+		int seed_index = sweep ? 4 : 5;
+		Model model = (args.length > seed_index + 1 && args[seed_index].equals("--seed"))
+						? new Model(Long.parseLong(args[seed_index + 1])) : new Model();
+
+		List<Double> probabilities = new ArrayList<Double>();
+		if (sweep)
+		{
+			for (String field: args[3].split(","))
+			{
+				probabilities.add(Double.parseDouble(field));
+			}
+			// In increasing order each scene only adds polyhedra to the last, so fewer conglomerates change
+			Collections.sort(probabilities);
+		}
+		else
+		{
+			for (int i = 0; i < Integer.parseInt(args[3]); i++)
+			{
+				probabilities.add(Double.parseDouble(args[4]));
+			}
+		}
+
+		long start_time = System.nanoTime();
+		model.generate_arrangement(number_of_planes);
+		double arrangement_seconds = (System.nanoTime() - start_time) / 1e9;
+		System.out.println("Built the arrangement for seed " + model.seed + " (" + model.polyhedra.size() + " polyhedra) in "
+							+ arrangement_seconds + " s");
+
+		VisibilityVariants variants = new VisibilityVariants(model);
+		double[] draws = model.draw_visibility();
+		int failed = 0;
+		start_time = System.nanoTime();
+		for (int i = 0; i < probabilities.size(); i++)
+		{
+			if (!sweep && i > 0)
+			{
+				draws = model.draw_visibility();
+			}
+			String filename = sweep ? prefix + "-p" + probabilities.get(i) + ".obj" : prefix + "-variant" + (i + 1) + ".obj";
+			try
+			{
+				write_variant(variants.choose(draws, probabilities.get(i)), filename);
+			}
+			catch (IOException ex)
+			{
+				System.out.println("Error writing to file: " + ex);
+				return;
+			}
+			catch (RuntimeException ex)
+			{
+				System.out.println("ERROR in VisibilityVariants -> " + filename + "; " + ex);
+				failed++;
+			}
+		}
+		double seconds = (System.nanoTime() - start_time) / 1e9;
+		System.out.println("Wrote " + (probabilities.size() - failed) + " variants (" + failed + " failed) in " + seconds + " s; "
+							+ variants.kept_conglomerates + " conglomerates kept, " + variants.rebuilt_conglomerates + " rebuilt");
+	}
+}
@@ -0,0 +1,122 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class ConglomerateTest
+{
+	// An L-shaped block, the L below (counterclockwise from above) raised from z = 0 to z = 1.  The only concave edge is the
+	//  vertical one at the inside corner (1, 1).
+	static final double[][] L_SHAPE = {{0, 0}, {2, 0}, {2, 1}, {1, 1}, {1, 2}, {0, 2}};
+	static final int INSIDE_CORNER = 3;
+
+	@Test
+	public void edges_of_a_closed_block_are_convex_except_the_inside_corner()
+	{
+		Conglomerate conglo = prism(L_SHAPE, true);
+		conglo.label_edges();
+
+		assertEquals(L_SHAPE.length * 3, conglo.get_labelled_edges().size());
+		for (LabelledEdge edge: conglo.get_labelled_edges())
+		{
+			boolean inside_corner = edge.first_point.name % L_SHAPE.length == INSIDE_CORNER
+									&& edge.second_point.name % L_SHAPE.length == INSIDE_CORNER;
+			assertEquals(describe(edge), inside_corner ? LabelledEdge.CONCAVE : LabelledEdge.CONVEX, edge.get_label());
+			assertTrue(describe(edge), edge.second_polygon != null && edge.second_polygon != edge.first_polygon);
+		}
+	}
+
+	// Without its top, the edges around the top have only one face
+	@Test
+	public void edges_of_a_missing_face_are_boundary()
+	{
+		Conglomerate conglo = prism(L_SHAPE, false);
+		conglo.label_edges();
+
+		assertEquals(L_SHAPE.length * 3, conglo.get_labelled_edges().size());
+		for (LabelledEdge edge: conglo.get_labelled_edges())
+		{
+			boolean top = edge.first_point.name >= L_SHAPE.length && edge.second_point.name >= L_SHAPE.length;
+			boolean inside_corner = edge.first_point.name % L_SHAPE.length == INSIDE_CORNER
+									&& edge.second_point.name % L_SHAPE.length == INSIDE_CORNER;
+			String expected = top ? LabelledEdge.BOUNDARY : (inside_corner ? LabelledEdge.CONCAVE : LabelledEdge.CONVEX);
+			assertEquals(describe(edge), expected, edge.get_label());
+		}
+	}
+
+	// Builds the outline of a prism over a counterclockwise outline in the xy plane, from z = 0 to z = 1, with each face's points
+	//  counterclockwise around its outward normal.  Point i is at z = 0 and point n + i above it.
+	private static Conglomerate prism(double[][] outline, boolean with_top)
+	{
+		int n = outline.length;
+		Point[] points = new Point[n * 2];
+		for (int i = 0; i < n; i++)
+		{
+			points[i] = new Point(i, outline[i][0], outline[i][1], 0, null, null, null, null, null, null);
+			points[n + i] = new Point(n + i, outline[i][0], outline[i][1], 1, null, null, null, null, null, null);
+		}
+
+		Conglomerate conglo = new Conglomerate(0, new Polyhedron());
+		ArrayList<Point> bottom = new ArrayList<Point>();
+		ArrayList<Point> top = new ArrayList<Point>();
+		for (int i = 0; i < n; i++)
+		{
+			bottom.add(points[n - 1 - i]);
+			top.add(points[n + i]);
+		}
+		conglo.outline_draw_list.add(new Polygon(plane(0, 0, 1), bottom));
+		if (with_top)
+		{
+			conglo.outline_draw_list.add(new Polygon(plane(0, 0, 1), top));
+		}
+		for (int i = 0; i < n; i++)
+		{
+			int next = (i + 1) % n;
+			double dx = outline[next][0] - outline[i][0], dy = outline[next][1] - outline[i][1];
+			ArrayList<Point> side = new ArrayList<Point>();
+			side.add(points[i]);
+			side.add(points[next]);
+			side.add(points[n + next]);
+			side.add(points[n + i]);
+			conglo.outline_draw_list.add(new Polygon(plane(dy, -dx, 0), side));
+		}
+		return conglo;
+	}
+
+	// A plane with the given normal; which way it points doesn't matter, since the outward normal is taken from the points' order
+	private static Plane plane(double normal_x, double normal_y, double normal_z)
+	{
+		double length = Math.sqrt(normal_x * normal_x + normal_y * normal_y + normal_z * normal_z);
+		Plane plane = new Plane(0, 0, 0, 0, 0, 0);
+		plane.normal_x = normal_x / length;
+		plane.normal_y = normal_y / length;
+		plane.normal_z = normal_z / length;
+		return plane;
+	}
+
+	private static String describe(LabelledEdge edge)
+	{
+		return "edge from point " + edge.first_point.name + " to point " + edge.second_point.name;
+	}
+}
@@ -0,0 +1,222 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpSceneServerTest
+{
+	SceneService service;
+	HttpSceneServer server;
+	String base_url;
+	CountDownLatch release_workers = new CountDownLatch(1);
+
+	@Before
+	public void start_server() throws IOException
+	{
+		service = new SceneService(1, 4);
+		server = new HttpSceneServer("127.0.0.1", 0, service, 60000, 20);
+		server.start();
+		base_url = "http://127.0.0.1:" + server.server.getAddress().getPort();
+	}
+
+	@After
+	public void stop_server()
+	{
+		release_workers.countDown();
+		server.stop();
+	}
+
+	// Replaces the server with one which has a single worker, kept busy until the test ends, and room for one request in its queue
+	private void start_blocked_server(long timeout_ms) throws IOException
+	{
+		server.stop();
+		service = new SceneService(1, 1);
+		service.workers.execute(new Waiter());
+		server = new HttpSceneServer("127.0.0.1", 0, service, timeout_ms, 20);
+		server.start();
+		base_url = "http://127.0.0.1:" + server.server.getAddress().getPort();
+	}
+
+	// A task which holds a worker until the test ends
+	class Waiter implements Runnable
+	{
+		public void run()
+		{
+			try
+			{
+				release_workers.await();
+			}
+			catch (InterruptedException ex)
+			{
+				// The service is shutting down
+			}
+		}
+	}
+
+	// The mesh format is sent with its length, and is the seed's SceneMesh in binary
+	@Test
+	public void mesh_is_sent_with_its_length() throws IOException
+	{
+		Model model = generate(4900);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		new SceneMesh(model.get_conglomerates()).write_binary(expected);
+
+		HttpURLConnection connection = open("/scene?planes=10&p=0.5&seed=4900&format=mesh");
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("application/octet-stream", connection.getContentType());
+		assertEquals(expected.size(), connection.getContentLengthLong());
+		assertEquals("4900", connection.getHeaderField("X-Scene-Seed"));
+		assertEquals(Integer.toString(model.get_conglomerates().size()), connection.getHeaderField("X-Scene-Conglomerates"));
+		assertArrayEquals(expected.toByteArray(), read(connection.getInputStream()));
+	}
+
+	// The .obj format is streamed in chunks, since its length isn't known until it's written, and is the same as the file
+	@Test
+	public void obj_is_streamed_from_a_json_request() throws IOException
+	{
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(expected, StandardCharsets.UTF_8));
+		Model.write_obj(generate(4900).get_conglomerates(), writer);
+		writer.flush();
+
+		HttpURLConnection connection = open("/scene");
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		OutputStream body = connection.getOutputStream();
+		body.write("{\"planes\": 10, \"p\": 0.5, \"seed\": 4900, \"format\": \"obj\"}".getBytes(StandardCharsets.UTF_8));
+		body.close();
+
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+		assertEquals("4900", connection.getHeaderField("X-Scene-Seed"));
+		assertArrayEquals(expected.toByteArray(), read(connection.getInputStream()));
+	}
+
+	@Test
+	public void bad_requests_get_a_message() throws IOException
+	{
+		assert_refused("/scene?planes=21&seed=1", 400);
+		assert_refused("/scene?p=2&seed=1", 400);
+		assert_refused("/scene?planes=ten", 400);
+		assert_refused("/scene?format=png&seed=1", 400);
+
+		HttpURLConnection connection = open("/scene");
+		connection.setRequestMethod("DELETE");
+		assertEquals(405, connection.getResponseCode());
+	}
+
+	@Test
+	public void oversized_body_is_refused() throws IOException
+	{
+		char[] padding = new char[HttpSceneServer.MAX_BODY_BYTES];
+		Arrays.fill(padding, ' ');
+		HttpURLConnection connection = open("/scene");
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		OutputStream body = connection.getOutputStream();
+		body.write(("{\"planes\": 10, \"seed\": 4900" + new String(padding) + "}").getBytes(StandardCharsets.UTF_8));
+		body.close();
+
+		assertEquals(413, connection.getResponseCode());
+	}
+
+	// With the only worker busy and the one place in the queue taken, a request is turned away at once
+	@Test
+	public void full_queue_gets_retry_after() throws IOException
+	{
+		start_blocked_server(60000);
+		service.workers.execute(new Waiter());
+
+		HttpURLConnection connection = open("/scene?planes=10&seed=4900");
+		assertEquals(503, connection.getResponseCode());
+		assertEquals("1", connection.getHeaderField("Retry-After"));
+		assertEquals("text/plain; charset=utf-8", connection.getContentType());
+		assertEquals(1, service.get_queue_length());
+	}
+
+	// A request which waits in the queue past its deadline gets 504, and gives up its place in the queue
+	@Test
+	public void request_past_its_deadline_times_out() throws IOException
+	{
+		start_blocked_server(200);
+
+		HttpURLConnection connection = open("/scene?planes=10&seed=4900");
+		assertEquals(504, connection.getResponseCode());
+		assertEquals("text/plain; charset=utf-8", connection.getContentType());
+		assertEquals(0, service.get_queue_length());
+	}
+
+	@Test
+	public void status_is_json() throws IOException
+	{
+		HttpURLConnection connection = open("/status");
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("{\"queued\": 0, \"generating\": 0}", new String(read(connection.getInputStream()), StandardCharsets.UTF_8));
+	}
+
+	private void assert_refused(String path, int status) throws IOException
+	{
+		HttpURLConnection connection = open(path);
+		assertEquals(path, status, connection.getResponseCode());
+		assertEquals(path, "text/plain; charset=utf-8", connection.getContentType());
+		byte[] message = read(connection.getErrorStream());
+		assertEquals(path, connection.getContentLengthLong(), message.length);
+	}
+
+	private HttpURLConnection open(String path) throws IOException
+	{
+		return (HttpURLConnection)new URL(base_url + path).openConnection();
+	}
+
+	private static Model generate(long seed)
+	{
+		Model model = new Model(seed);
+		model.generate_scene(10, 0.5);
+		return model;
+	}
+
+	private static byte[] read(InputStream input) throws IOException
+	{
+		try
+		{
+			return input.readAllBytes();
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+}
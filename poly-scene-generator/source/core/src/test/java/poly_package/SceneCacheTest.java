@@ -0,0 +1,145 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SceneCacheTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void stored_scene_is_fetched_and_others_miss() throws IOException
+	{
+		SceneCache cache = new SceneCache(folder.newFolder("cache").toPath(), SceneCache.DEFAULT_MAX_BYTES);
+		String scene = write_scene("scene.obj", 100);
+		assertFalse(cache.fetch(1, 10, 0.5, scene));
+		cache.store(1, 10, 0.5, scene);
+
+		String copy = folder.getRoot().toPath().resolve("copy.obj").toString();
+		assertTrue(cache.fetch(1, 10, 0.5, copy));
+		assertArrayEquals(Files.readAllBytes(Paths.get(scene)), Files.readAllBytes(Paths.get(copy)));
+		assertArrayEquals(Files.readAllBytes(Paths.get(Model.labels_filename(scene))),
+							Files.readAllBytes(Paths.get(Model.labels_filename(copy))));
+
+		// Any difference in what decides the scene is a different entry
+		assertFalse(cache.fetch(2, 10, 0.5, copy));
+		assertFalse(cache.fetch(1, 11, 0.5, copy));
+		assertFalse(cache.fetch(1, 10, 0.25, copy));
+		assertFalse(cache.fetch(1, 10, 0.5, folder.getRoot().toPath().resolve("copy.glb").toString()));
+	}
+
+	@Test
+	public void failures_are_remembered_when_reopened() throws IOException
+	{
+		Path directory = folder.newFolder("cache").toPath();
+		new SceneCache(directory, SceneCache.DEFAULT_MAX_BYTES).store_failure(3, 40, 0.5, "obj");
+
+		SceneCache cache = new SceneCache(directory, SceneCache.DEFAULT_MAX_BYTES);
+		assertTrue(cache.is_failure(3, 40, 0.5, "obj"));
+		assertFalse(cache.is_failure(3, 40, 0.5, "glb"));
+		assertFalse(cache.fetch(3, 40, 0.5, folder.getRoot().toPath().resolve("copy.obj").toString()));
+	}
+
+	@Test
+	public void least_recently_used_scene_is_evicted() throws IOException
+	{
+		Path directory = folder.newFolder("cache").toPath();
+		String scene = write_scene("scene.obj", 1000);
+		long entry_bytes = Files.size(Paths.get(scene)) + Files.size(Paths.get(Model.labels_filename(scene)));
+		SceneCache cache = new SceneCache(directory, entry_bytes * 2);
+		cache.store(1, 10, 0.5, scene);
+		cache.store(2, 10, 0.5, scene);
+		String copy = folder.getRoot().toPath().resolve("copy.obj").toString();
+		assertTrue(cache.fetch(1, 10, 0.5, copy));		// Now seed 2 is the least recently used
+
+		cache.store(3, 10, 0.5, scene);
+		assertEquals(2, cache.get_entry_count());
+		assertEquals(entry_bytes * 2, cache.get_total_bytes());
+		assertFalse(cache.fetch(2, 10, 0.5, copy));
+		assertTrue(cache.fetch(1, 10, 0.5, copy));
+		assertTrue(cache.fetch(3, 10, 0.5, copy));
+		assertFalse(Files.exists(directory.resolve(SceneCache.key(2, 10, 0.5, "obj") + ".labels")));
+
+		// The files left are the same two entries when the cache is opened again
+		SceneCache reopened = new SceneCache(directory, entry_bytes * 2);
+		assertEquals(2, reopened.get_entry_count());
+		assertEquals(entry_bytes * 2, reopened.get_total_bytes());
+	}
+
+	// A run killed between storing the .labels file and the .obj file leaves a .labels file with no entry
+	@Test
+	public void labels_without_a_scene_are_deleted_when_opened() throws IOException
+	{
+		Path directory = folder.newFolder("cache").toPath();
+		Path orphan = directory.resolve(SceneCache.key(5, 10, 0.5, "obj") + ".labels");
+		Files.write(orphan, "convex 1 2\n".getBytes(StandardCharsets.UTF_8));
+
+		SceneCache cache = new SceneCache(directory, SceneCache.DEFAULT_MAX_BYTES);
+		assertFalse(Files.exists(orphan));
+		assertEquals(0, cache.get_entry_count());
+		assertEquals(0, cache.get_total_bytes());
+	}
+
+	// A fetched scene's .labels file must describe the fetched .obj file, whatever it's called
+	@Test
+	public void fetched_labels_match_a_scene_written_under_the_new_name() throws IOException
+	{
+		SceneCache cache = new SceneCache(folder.newFolder("cache").toPath(), SceneCache.DEFAULT_MAX_BYTES);
+		Model model = new Model(4900);
+		model.generate_scene(10, 0.5);
+		String original = folder.getRoot().toPath().resolve("original.obj").toString();
+		model.write_scene(original);
+		cache.store(4900, 10, 0.5, original);
+
+		String fetched = folder.getRoot().toPath().resolve("fetched.obj").toString();
+		String written = folder.getRoot().toPath().resolve("written.obj").toString();
+		assertTrue(cache.fetch(4900, 10, 0.5, fetched));
+		model.write_scene(written);
+		assertArrayEquals(Files.readAllBytes(Paths.get(Model.labels_filename(written))),
+							Files.readAllBytes(Paths.get(Model.labels_filename(fetched))));
+	}
+
+	// Writes a stand-in scene of about the given size, with a .labels file
+	private String write_scene(String name, int size) throws IOException
+	{
+		Path scene = folder.getRoot().toPath().resolve(name);
+		StringBuilder text = new StringBuilder("# Polygons representing a polyhedral scene\n");
+		while (text.length() < size)
+		{
+			text.append("v 0.0 0.0 0.0\n");
+		}
+		Files.write(scene, text.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(Paths.get(Model.labels_filename(scene.toString())), "convex 1 2\n".getBytes(StandardCharsets.UTF_8));
+		return scene.toString();
+	}
+}
@@ -0,0 +1,135 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SceneDatasetTest
+{
+	static final int PLANES = 12;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Each variant read back must have the seed and visibility it was written with, and give the same scene as when it was written,
+	//  whichever order the variants are read in
+	@Test
+	public void variants_read_back_as_written() throws IOException
+	{
+		String filename = folder.getRoot().toPath().resolve("scenes.psgd").toString();
+		List<Long> seeds = new ArrayList<Long>();
+		List<boolean[]> visibilities = new ArrayList<boolean[]>();
+		List<byte[]> scenes = new ArrayList<byte[]>();
+
+		SceneDatasetWriter writer = new SceneDatasetWriter(filename);
+		for (long seed = 4900; seed < 4902; seed++)
+		{
+			Model model = new Model(seed);
+			model.generate_arrangement(PLANES);
+			writer.add_arrangement(model);
+			VisibilityVariants variants = new VisibilityVariants(model);
+			for (int i = 0; i < 3; i++)
+			{
+				double[] draws = model.draw_visibility();
+				boolean[] visible = new boolean[draws.length];
+				for (int k = 0; k < draws.length; k++)
+				{
+					visible[k] = draws[k] < 0.5;
+				}
+				List<Conglomerate> conglomerates;
+				try
+				{
+					conglomerates = variants.choose(visible);
+				}
+				catch (RuntimeException ex)
+				{
+					continue;		// As SceneDataset.create() does, only variants which can be built are written
+				}
+				writer.add_variant(visible, 0.5);
+				seeds.add(seed);
+				visibilities.add(visible);
+				scenes.add(scene_bytes(conglomerates));
+			}
+		}
+		writer.close();
+		assertTrue("no variant could be built", scenes.size() > 0);
+
+		SceneDataset dataset = new SceneDataset(filename);
+		try
+		{
+			assertEquals(2, dataset.get_arrangement_count());
+			assertEquals(scenes.size(), dataset.get_variant_count());
+			for (int step = 0; step < scenes.size() * 2; step++)
+			{
+				// In order, then backwards, so the arrangement has to be built again between some reads
+				int variant = (step < scenes.size()) ? step : scenes.size() * 2 - 1 - step;
+				assertEquals((long)seeds.get(variant), dataset.get_seed(variant));
+				assertArrayEquals(visibilities.get(variant), dataset.get_visibility(variant));
+				assertArrayEquals("variant " + variant, scenes.get(variant), scene_bytes(dataset.get_scene(variant)));
+			}
+		}
+		finally
+		{
+			dataset.close();
+		}
+	}
+
+	@Test
+	public void other_files_are_refused() throws IOException
+	{
+		String filename = folder.getRoot().toPath().resolve("scene.obj").toString();
+		Files.write(Paths.get(filename), "# Polygons representing a polyhedral scene\n".getBytes(StandardCharsets.UTF_8));
+		try
+		{
+			new SceneDataset(filename).close();
+			fail("An .obj file was opened as a dataset");
+		}
+		catch (IOException ex)
+		{
+			// Expected
+		}
+	}
+
+	// The .obj and .labels files of a scene, one after the other.  Every scene is written to the same file, so that the .labels
+	//  header, which names the .obj file, is the same for all of them.
+	private byte[] scene_bytes(List<Conglomerate> conglomerates) throws IOException
+	{
+		String filename = folder.getRoot().toPath().resolve("variant.obj").toString();
+		VisibilityVariants.write_variant(conglomerates, filename);
+		byte[] scene = Files.readAllBytes(Paths.get(filename));
+		byte[] labels = Files.readAllBytes(Paths.get(Model.labels_filename(filename)));
+		byte[] both = new byte[scene.length + labels.length];
+		System.arraycopy(scene, 0, both, 0, scene.length);
+		System.arraycopy(labels, 0, both, scene.length, labels.length);
+		return both;
+	}
+}
@@ -0,0 +1,132 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SceneMeshTest
+{
+	@Test
+	public void binary_form_is_the_documented_layout() throws IOException
+	{
+		float[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1.5f};
+		int[] triangles = {0, 1, 2, 0, 2, 3};
+		int[] lines = {0, 1, 1, 2, 2, 3};
+		SceneMesh mesh = new SceneMesh(positions, triangles, lines);
+
+		byte[] bytes = write_binary(mesh);
+		assertEquals(mesh.get_binary_size(), bytes.length);
+		assertEquals(SceneMesh.BINARY_HEADER_SIZE + (positions.length + triangles.length + lines.length) * 4, bytes.length);
+		assertEquals("PSGM", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(SceneMesh.BINARY_MAGIC, buffer.getInt());
+		assertEquals(SceneMesh.BINARY_VERSION, buffer.getInt());
+		assertEquals(4, buffer.getInt());		// Vertices
+		assertEquals(2, buffer.getInt());		// Triangles
+		assertEquals(3, buffer.getInt());		// Edges
+		for (float position: positions)
+		{
+			assertEquals(position, buffer.getFloat(), 0);
+		}
+		for (int index: triangles)
+		{
+			assertEquals(index, buffer.getInt());
+		}
+		for (int index: lines)
+		{
+			assertEquals(index, buffer.getInt());
+		}
+	}
+
+	// Larger than write_binary()'s buffer, so it's written in several pieces; put_binary() must give the same bytes in one
+	@Test
+	public void put_binary_gives_the_same_bytes_as_write_binary() throws IOException
+	{
+		float[] positions = new float[30000];
+		int[] triangles = new int[30000];
+		int[] lines = new int[20000];
+		for (int i = 0; i < positions.length; i++)
+		{
+			positions[i] = i * 0.25f - 1000;
+			triangles[i] = i / 3;
+		}
+		for (int i = 0; i < lines.length; i++)
+		{
+			lines[i] = (i + 1) / 2;
+		}
+		SceneMesh mesh = new SceneMesh(positions, triangles, lines);
+
+		byte[] written = write_binary(mesh);
+		ByteBuffer put = ByteBuffer.allocate((int)mesh.get_binary_size() + 8).order(ByteOrder.LITTLE_ENDIAN);
+		put.putInt(-1);
+		mesh.put_binary(put);
+		assertEquals(4 + written.length, put.position());
+		assertArrayEquals(written, Arrays.copyOfRange(put.array(), 4, 4 + written.length));
+	}
+
+	// A mesh made from a scene has an edge for each labelled edge, in order, pointing at the positions of its two points
+	@Test
+	public void edges_of_a_scene_mesh_are_its_labelled_edges()
+	{
+		Model model = new Model(4900);
+		model.generate_scene(10, 0.5);
+		SceneMesh mesh = new SceneMesh(model.get_conglomerates());
+
+		int edge = 0;
+		for (Conglomerate conglo: model.get_conglomerates())
+		{
+			for (LabelledEdge labelled: conglo.get_labelled_edges())
+			{
+				assert_position(mesh, mesh.line_indices[edge * 2], labelled.first_point);
+				assert_position(mesh, mesh.line_indices[edge * 2 + 1], labelled.second_point);
+				edge++;
+			}
+		}
+		assertEquals(edge, mesh.get_line_count());
+		for (int i = 0; i < mesh.triangle_index_count; i++)
+		{
+			assertTrue(mesh.triangle_indices[i] >= 0 && mesh.triangle_indices[i] < mesh.get_vertex_count());
+		}
+	}
+
+	private static void assert_position(SceneMesh mesh, int index, Point point)
+	{
+		assertEquals((float)point.x_point, mesh.positions[index * 3], 0);
+		assertEquals((float)point.y_point, mesh.positions[index * 3 + 1], 0);
+		assertEquals((float)point.z_point, mesh.positions[index * 3 + 2], 0);
+	}
+
+	private static byte[] write_binary(SceneMesh mesh) throws IOException
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mesh.write_binary(output);
+		return output.toByteArray();
+	}
+}
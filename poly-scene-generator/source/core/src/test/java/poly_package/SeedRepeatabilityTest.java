@@ -0,0 +1,102 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Each scene is written to the same file, read, and written again, so that anything in the files which depends on their name (the
+//  .labels header names the .obj file) is the same both times.  The files are deleted in between, so a run which writes nothing fails.
+public class SeedRepeatabilityTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void same_seed_gives_the_same_file()
+	{
+		File obj_file = folder.getRoot().toPath().resolve("scene.obj").toFile();
+		File labels_file = folder.getRoot().toPath().resolve("scene.labels").toFile();
+		generate(4900, obj_file);
+		byte[] first_obj = read(obj_file), first_labels = read(labels_file);
+		delete(obj_file, labels_file);
+		generate(4900, obj_file);
+
+		assertArrayEquals(first_obj, read(obj_file));
+		assertArrayEquals(first_labels, read(labels_file));
+	}
+
+	// The scene for a seed is what its metrics and the scene cache refer to, so it mustn't depend on the JVM it was made in.  The other
+	//  JVM runs main() below with the interpreter only, so none of the arithmetic is compiled the way it was here.
+	@Test
+	public void same_seed_gives_the_same_file_in_another_jvm() throws Exception
+	{
+		File obj_file = folder.getRoot().toPath().resolve("scene.obj").toFile();
+		File labels_file = folder.getRoot().toPath().resolve("scene.labels").toFile();
+		generate(4900, obj_file);
+		byte[] here_obj = read(obj_file), here_labels = read(labels_file);
+		delete(obj_file, labels_file);
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, "-Xint", "-cp", System.getProperty("java.class.path"),
+												"poly_package.SeedRepeatabilityTest", "4900", obj_file.getPath())
+								.redirectErrorStream(true).redirectOutput(folder.newFile("main.log")).start();
+		assertEquals("exit status of the other JVM", 0, process.waitFor());
+
+		assertArrayEquals(here_obj, read(obj_file));
+		assertArrayEquals(here_labels, read(labels_file));
+	}
+
+	// Usage: SeedRepeatabilityTest seed output_file; run in the other JVM
+	public static void main(String[] args)
+	{
+		generate(Long.parseLong(args[0]), new File(args[1]));
+	}
+
+	private static void generate(long seed, File output_file)
+	{
+		Model model = new Model(seed);
+		model.generate_scene(10, 0.5);
+		model.write_scene(output_file.getPath());
+	}
+
+	private static void delete(File obj_file, File labels_file)
+	{
+		assertTrue(obj_file.delete() && labels_file.delete());
+	}
+
+	private static byte[] read(File file)
+	{
+		try
+		{
+			return Files.readAllBytes(file.toPath());
+		}
+		catch (java.io.IOException ex)
+		{
+			throw new AssertionError("Couldn't read " + file + ": " + ex);
+		}
+	}
+}
@@ -0,0 +1,199 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SocketSceneServerTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Path socket_path;
+	SocketSceneServer server;
+
+	@Before
+	public void start_server() throws IOException
+	{
+		socket_path = folder.getRoot().toPath().resolve("scenes.sock");
+		server = new SocketSceneServer(socket_path, new SceneService(1, 4), 60000, 20);
+		Thread thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				server.run();
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@After
+	public void stop_server() throws IOException
+	{
+		server.close();
+	}
+
+	@Test
+	public void scene_response_is_the_mesh_of_the_seed() throws IOException
+	{
+		Model model = new Model(4900);
+		model.generate_scene(10, 0.5);
+		SceneMesh mesh = new SceneMesh(model.get_conglomerates());
+		ByteBuffer expected = ByteBuffer.allocate((int)mesh.get_binary_size()).order(ByteOrder.LITTLE_ENDIAN);
+		mesh.put_binary(expected);
+
+		SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket_path));
+		try
+		{
+			// Two requests on one connection, to check that each response ends where its length says
+			for (int i = 0; i < 2; i++)
+			{
+				send_request(client, SocketSceneServer.REQUEST_SIZE, 10, 0.5, 4900L);
+				ByteBuffer response = read_response(client);
+				assertEquals(SocketSceneServer.STATUS_OK, response.getInt());
+				assertEquals(4900, response.getLong());
+				byte[] body = new byte[response.remaining()];
+				response.get(body);
+				assertArrayEquals(expected.array(), body);
+			}
+		}
+		finally
+		{
+			client.close();
+		}
+	}
+
+	@Test
+	public void request_of_the_wrong_length_is_refused() throws IOException
+	{
+		SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket_path));
+		try
+		{
+			send_request(client, SocketSceneServer.REQUEST_SIZE + 1, 10, 0.5, 4900L);
+			ByteBuffer response = read_response(client);
+			assertEquals(SocketSceneServer.STATUS_BAD_REQUEST, response.getInt());
+			assertEquals(0, response.getLong());
+			assertEquals("Requests are " + SocketSceneServer.REQUEST_SIZE + " bytes after the length", remaining_text(response));
+		}
+		finally
+		{
+			client.close();
+		}
+	}
+
+	@Test
+	public void invalid_parameters_are_refused() throws IOException
+	{
+		SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket_path));
+		try
+		{
+			send_request(client, SocketSceneServer.REQUEST_SIZE, 21, 0.5, 7L);
+			ByteBuffer response = read_response(client);
+			assertEquals(SocketSceneServer.STATUS_BAD_REQUEST, response.getInt());
+			assertEquals(7, response.getLong());
+			assertFalse(remaining_text(response).isEmpty());
+		}
+		finally
+		{
+			client.close();
+		}
+	}
+
+	// A message longer than the buffer is cut short, and its length must be that of what was sent, or the client loses its place
+	@Test
+	public void message_cut_short_has_the_length_sent() throws IOException
+	{
+		Path path = folder.getRoot().toPath().resolve("pair.sock");
+		ServerSocketChannel listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		listener.bind(UnixDomainSocketAddress.of(path));
+		SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(path));
+		SocketChannel accepted = listener.accept();
+		try
+		{
+			ByteBuffer small = ByteBuffer.allocate(SocketSceneServer.RESPONSE_HEADER_SIZE + 10).order(ByteOrder.LITTLE_ENDIAN);
+			SocketSceneServer.send_message(accepted, small, SocketSceneServer.STATUS_FAILED, 3, "0123456789abcdefghij");
+			SocketSceneServer.send_message(accepted, small, SocketSceneServer.STATUS_BUSY, 4, "short");
+
+			ByteBuffer first = read_response(client);
+			assertEquals(SocketSceneServer.STATUS_FAILED, first.getInt());
+			assertEquals(3, first.getLong());
+			assertEquals("0123456789", remaining_text(first));
+
+			ByteBuffer second = read_response(client);
+			assertEquals(SocketSceneServer.STATUS_BUSY, second.getInt());
+			assertEquals(4, second.getLong());
+			assertEquals("short", remaining_text(second));
+		}
+		finally
+		{
+			accepted.close();
+			client.close();
+			listener.close();
+		}
+	}
+
+	private static void send_request(SocketChannel client, int length, int number_of_planes, double poly_probability, Long seed)
+					throws IOException
+	{
+		ByteBuffer request = ByteBuffer.allocate(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+		request.putInt(length);
+		request.putInt(number_of_planes);
+		request.putDouble(poly_probability);
+		request.put((byte)((seed != null) ? 1 : 0));
+		request.putLong((seed != null) ? seed : 0);
+		request.position(0);
+		SocketSceneServer.write_fully(client, request);
+	}
+
+	// Reads one response, and returns the part after its length
+	private static ByteBuffer read_response(SocketChannel client) throws IOException
+	{
+		ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		SocketSceneServer.read_fully(client, length);
+		ByteBuffer response = ByteBuffer.allocate(length.getInt(0)).order(ByteOrder.LITTLE_ENDIAN);
+		SocketSceneServer.read_fully(client, response);
+		response.flip();
+		return response;
+	}
+
+	private static String remaining_text(ByteBuffer response)
+	{
+		byte[] text = new byte[response.remaining()];
+		response.get(text);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+}
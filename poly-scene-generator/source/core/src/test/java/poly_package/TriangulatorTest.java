@@ -0,0 +1,82 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class TriangulatorTest
+{
+	// Each of these scenes (20 planes, p = 0.5) has a concave face with collinear vertices which used to get overlapping triangles:
+	//  in the first four (polygons 1434, 1226, 1266 and 747) ear clipping stalled and fell back to a fan, and in the last (polygon
+	//  1488) a reflex vertex lying on the edge of an ear, to within rounding, didn't stop the ear
+	private static final long[] SEEDS = {23, 22, 31, 34, 49};
+
+	// The triangles must cover each face exactly once, so their areas add up to the face's area.  Faces which pass through the same
+	//  point twice are left out: the Newell area counts an extra loop going the other way as negative, so it isn't what's covered.
+	@Test
+	public void triangles_cover_each_face_exactly()
+	{
+		for (long seed: SEEDS)
+		{
+			Model model = new Model(seed);
+			model.generate_scene(20, 0.5);
+
+			int checked = 0;
+			double[] normal = new double[3];
+			for (Conglomerate conglomerate: model.get_conglomerates())
+			{
+				for (Polygon gon: conglomerate.get_outline_draw_list())
+				{
+					if (new HashSet<Point>(gon.get_points()).size() != gon.get_num_points())
+					{
+						continue;
+					}
+					gon.calculate_newell_normal(normal);
+					double face_area = length(normal[0], normal[1], normal[2]) / 2;
+					assertEquals("seed " + seed + ", polygon " + gon.name, face_area, triangle_area(gon), 1e-9 * Math.max(1, face_area));
+					checked++;
+				}
+			}
+			assertTrue("seed " + seed + " has no faces", checked > 0);
+		}
+	}
+
+	private static double triangle_area(Polygon gon)
+	{
+		int[] triangles = gon.get_triangles();
+		double area = 0;
+		for (int i = 0; i < triangles.length; i += 3)
+		{
+			Point a = gon.get_point(triangles[i]), b = gon.get_point(triangles[i + 1]), c = gon.get_point(triangles[i + 2]);
+			double ux = b.x_point - a.x_point, uy = b.y_point - a.y_point, uz = b.z_point - a.z_point;
+			double vx = c.x_point - a.x_point, vy = c.y_point - a.y_point, vz = c.z_point - a.z_point;
+			area += length(uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx) / 2;
+		}
+		return area;
+	}
+
+	private static double length(double x, double y, double z)
+	{
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+}
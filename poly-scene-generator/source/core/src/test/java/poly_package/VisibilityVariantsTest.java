@@ -0,0 +1,100 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VisibilityVariantsTest
+{
+	static final long SEED = 4900;
+	static final int PLANES = 12;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// The first variant with the first draws is the scene generate_scene() gives for the seed
+	@Test
+	public void first_variant_is_the_scene_for_the_seed() throws IOException
+	{
+		Model model = new Model(SEED);
+		model.generate_arrangement(PLANES);
+		VisibilityVariants variants = new VisibilityVariants(model);
+		VisibilityVariants.write_variant(variants.choose(model.draw_visibility(), 0.5), scene_file());
+		byte[][] variant = read_scene();
+
+		Model whole = new Model(SEED);
+		whole.generate_scene(PLANES, 0.5);
+		whole.write_scene(scene_file());
+
+		assert_same_scene("variant", variant, read_scene());
+	}
+
+	// Each variant, made by rebuilding only the conglomerates which changed, must be the scene a fresh arrangement gives for the
+	//  same draws and probability.  The probabilities go up and down, and the draws change, so polyhedra both appear and disappear.
+	@Test
+	public void incremental_variants_equal_a_fresh_rebuild() throws IOException
+	{
+		Model model = new Model(SEED);
+		model.generate_arrangement(PLANES);
+		VisibilityVariants variants = new VisibilityVariants(model);
+		double[] draws = model.draw_visibility();
+		double[] probabilities = {0.5, 0.3, 0.8, 1.0, 0.2, 0.6};
+		for (int i = 0; i < probabilities.length * 2; i++)
+		{
+			if (i == probabilities.length)
+			{
+				draws = model.draw_visibility();
+			}
+			double probability = probabilities[i % probabilities.length];
+			VisibilityVariants.write_variant(variants.choose(draws, probability), scene_file());
+			byte[][] incremental = read_scene();
+
+			Model fresh_model = new Model(SEED);
+			fresh_model.generate_arrangement(PLANES);
+			VisibilityVariants.write_variant(new VisibilityVariants(fresh_model).choose(draws, probability), scene_file());
+
+			assert_same_scene("variant " + i, read_scene(), incremental);
+		}
+	}
+
+	// Every scene is written to the same file, so that the .labels header, which names the .obj file, is the same for both
+	private String scene_file()
+	{
+		return folder.getRoot().toPath().resolve("scene.obj").toString();
+	}
+
+	// The .obj and .labels files last written
+	private byte[][] read_scene() throws IOException
+	{
+		return new byte[][] {Files.readAllBytes(Paths.get(scene_file())), Files.readAllBytes(Paths.get(Model.labels_filename(scene_file())))};
+	}
+
+	private static void assert_same_scene(String message, byte[][] expected, byte[][] actual)
+	{
+		assertArrayEquals(message + ", .obj", expected[0], actual[0]);
+		assertArrayEquals(message + ", .labels", expected[1], actual[1]);
+	}
+}
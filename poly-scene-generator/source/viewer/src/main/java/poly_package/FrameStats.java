@@ -0,0 +1,145 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// This class collects statistics about the frames View draws: how long each took, how many frames were drawn in the last second,
+//  and how many vertices, primitives (triangles and lines) and draw calls were sent to OpenGL.  View shows them over the scene when
+//  'S' is pressed, and a summary is printed every LOG_INTERVAL while frames are being drawn.
+// The time of a frame is the time View.display() took to send it, which doesn't include the graphics card finishing it unless the
+//  driver's queue was full.  It's only used from the OpenGL thread.
+public class FrameStats
+{
+	static final int FRAME_HISTORY = 240;				// The number of frames the percentiles are taken over
+	static final long LOG_INTERVAL = 5000000000L;		// Nanoseconds between summaries
+
+	// Ring buffers of the most recent frames' times and when they finished, in nanoseconds
+	long[] frame_times = new long[FRAME_HISTORY];
+	long[] frame_ends = new long[FRAME_HISTORY];
+	int next_frame = 0;
+	int frames_recorded = 0;
+	long frame_start;
+
+	// The work sent to OpenGL for the current frame, and for the last complete one
+	int vertices, primitives, draw_calls;
+	int last_vertices, last_primitives, last_draw_calls;
+
+	long last_log_time = System.nanoTime();
+	int frames_since_log = 0;
+
+	// Called at the start of View.display().
+	public void begin_frame()
+	{
+		frame_start = System.nanoTime();
+		vertices = 0;
+		primitives = 0;
+		draw_calls = 0;
+	}
+
+	// Records one draw call (a glDrawElements, or a glBegin/glEnd pair) and the vertices and primitives it sent.
+	public void add_draw(int vertex_count, int primitive_count)
+	{
+		vertices += vertex_count;
+		primitives += primitive_count;
+		draw_calls++;
+	}
+
+	// Called once the scene has been drawn, before the overlay is.  Prints the summary if it's due.
+	public void end_frame()
+	{
+		long now = System.nanoTime();
+		frame_times[next_frame] = now - frame_start;
+		frame_ends[next_frame] = now;
+		next_frame = (next_frame + 1) % FRAME_HISTORY;
+		frames_recorded = Math.min(frames_recorded + 1, FRAME_HISTORY);
+		last_vertices = vertices;
+		last_primitives = primitives;
+		last_draw_calls = draw_calls;
+
+		frames_since_log++;
+		if (now - last_log_time >= LOG_INTERVAL)
+		{
+			System.out.println("Frame stats (" + frames_since_log + " frames): " + get_summary());
+			last_log_time = now;
+			frames_since_log = 0;
+		}
+	}
+
+	// Returns the time in milliseconds which 'fraction' (0 to 1) of the recent frames took no longer than, eg 0.95 for the 95th
+	//  percentile.
+	public double get_percentile(double fraction)
+	{
+		if (frames_recorded == 0)
+		{
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(frame_times, frames_recorded);
+		Arrays.sort(sorted);
+		int index = (int)Math.ceil(fraction * frames_recorded) - 1;
+		return sorted[Math.max(0, Math.min(index, frames_recorded - 1))] / 1e6;
+	}
+
+	// The number of frames which finished in the last second.  View only redraws when the scene changes, so this is the frame
+	//  rate while the scene is being rotated and lower otherwise.
+	public int get_fps()
+	{
+		long now = System.nanoTime();
+		int count = 0;
+		for (int i = 0; i < frames_recorded; i++)
+		{
+			if (now - frame_ends[i] <= 1000000000L)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// One line with the frame times and the work in the last frame.
+	public String get_summary()
+	{
+		return String.format("p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, %d fps, %d vertices, %d primitives, %d draw calls",
+				get_percentile(0.5), get_percentile(0.95), get_percentile(0.99), get_percentile(1.0), get_fps(),
+				last_vertices, last_primitives, last_draw_calls);
+	}
+
+	// The lines of the overlay: the frame statistics, then how long each stage of generating the scene took (if it was generated
+	//  rather than read from a file).
+	public List<String> get_overlay_lines(List<SceneProgress> stages)
+	{
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("Frame: p50 %.2f ms  p95 %.2f ms  p99 %.2f ms  max %.2f ms", get_percentile(0.5),
+				get_percentile(0.95), get_percentile(0.99), get_percentile(1.0)));
+		lines.add(get_fps() + " fps (frames in the last second)");
+		lines.add(last_vertices + " vertices, " + last_primitives + " primitives, " + last_draw_calls + " draw calls");
+		long total = 0;
+		for (SceneProgress stage: stages)
+		{
+			lines.add(stage.toString());
+			total += stage.get_nanoseconds();
+		}
+		if (!stages.isEmpty())
+		{
+			lines.add("Total " + total / 1000000 + " ms");
+		}
+		return lines;
+	}
+}
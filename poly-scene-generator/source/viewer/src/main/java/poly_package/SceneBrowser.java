@@ -0,0 +1,239 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// This class steps through the .obj files in a directory for View's browse mode.
+// Meshes are read by a background thread, which reads the current scene first and then the next PREFETCH_AHEAD scenes (and the
+//  previous one), so that moving to the next scene doesn't have to wait for the file.  Loaded meshes are kept in a least recently
+//  used cache which is limited by the total size of the meshes rather than their number, since scenes vary a great deal in size.
+public class SceneBrowser
+{
+	static final int PREFETCH_AHEAD = 4;
+	static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
+
+	File[] files;
+	int current = 0;
+	long max_cache_bytes;
+	long cache_bytes = 0;
+
+	// Access-ordered, so iteration starts with the least recently used mesh
+	LinkedHashMap<File, SceneMesh> cache = new LinkedHashMap<File, SceneMesh>(16, 0.75f, true);
+	HashSet<File> loading = new HashSet<File>();		// Files queued or being read
+	Runnable listener;									// Told whenever a mesh has been loaded
+
+	ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable task)
+		{
+			Thread thread = new Thread(task, "Scene prefetch");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public SceneBrowser(String directory, long max_cache_bytes)
+	{
+		this.max_cache_bytes = max_cache_bytes;
+
+		files = new File(directory).listFiles(new FilenameFilter()
+		{
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".obj");
+			}
+		});
+		if (files == null)
+		{
+			System.out.println("ERROR: " + directory + " is not a directory");
+			System.exit(-1);
+		}
+		Arrays.sort(files);
+	}
+
+	public void set_listener(Runnable listener)
+	{
+		this.listener = listener;
+	}
+
+	public int get_scene_count()
+	{
+		return files.length;
+	}
+
+	public synchronized int get_current_index()
+	{
+		return current;
+	}
+
+	public synchronized String get_current_name()
+	{
+		return (files.length == 0) ? "" : files[current].getName();
+	}
+
+	// Moves forward (or back, if 'steps' is negative) through the scenes, stopping at the first and last.
+	public void move(int steps)
+	{
+		synchronized (this)
+		{
+			current = Math.max(0, Math.min(files.length - 1, current + steps));
+		}
+		prefetch();
+	}
+
+	// Returns the current scene's mesh, or null if it's still being read.  The listener is told when it's ready.
+	public synchronized SceneMesh get_current_mesh()
+	{
+		if (files.length == 0)
+		{
+			return null;
+		}
+		return cache.get(files[current]);
+	}
+
+	// True if the mesh is still in the cache, ie if View should keep its buffers on the graphics card.
+	public synchronized boolean is_cached(SceneMesh mesh)
+	{
+		return cache.containsValue(mesh);
+	}
+
+	// Returns the meshes of the scenes around the current one which have already been read, so that View can upload them ahead of
+	//  time.  The current scene's mesh (if it's ready) comes first.
+	public synchronized SceneMesh[] get_nearby_meshes()
+	{
+		SceneMesh[] nearby = new SceneMesh[PREFETCH_AHEAD + 2];
+		for (int i = 0; i < nearby.length && files.length > 0; i++)
+		{
+			int index = (i <= PREFETCH_AHEAD) ? current + i : current - 1;
+			if (index >= 0 && index < files.length)
+			{
+				// Peek without changing the access order
+				for (Map.Entry<File, SceneMesh> entry: cache.entrySet())
+				{
+					if (entry.getKey().equals(files[index]))
+					{
+						nearby[i] = entry.getValue();
+						break;
+					}
+				}
+			}
+		}
+		return nearby;
+	}
+
+	// Queues the current scene, the next few and the previous one to be read, skipping those already loaded or queued.
+	public void prefetch()
+	{
+		int[] wanted = new int[PREFETCH_AHEAD + 2];
+		synchronized (this)
+		{
+			for (int i = 0; i <= PREFETCH_AHEAD; i++)
+			{
+				wanted[i] = current + i;
+			}
+			wanted[PREFETCH_AHEAD + 1] = current - 1;
+		}
+
+		for (int index: wanted)
+		{
+			if (index < 0 || index >= files.length)
+			{
+				continue;
+			}
+			final File file = files[index];
+			final int file_index = index;
+			synchronized (this)
+			{
+				if (cache.containsKey(file) || loading.contains(file))
+				{
+					continue;
+				}
+				loading.add(file);
+			}
+
+			loader.submit(new Runnable()
+			{
+				public void run()
+				{
+					load(file_index);
+				}
+			});
+		}
+	}
+
+	// Reads one file into the cache, unless the user has moved far enough away that it's no longer wanted.
+	void load(int index)
+	{
+		File file = files[index];
+		synchronized (this)
+		{
+			if (index < current - 1 || index > current + PREFETCH_AHEAD)
+			{
+				loading.remove(file);
+				return;
+			}
+		}
+
+		SceneMesh mesh = null;
+		try
+		{
+			mesh = ObjReader.read(file.getPath());
+		}
+		catch (IOException ex)
+		{
+			System.out.println("Error reading file: " + ex);
+			mesh = new SceneMesh();
+		}
+
+		synchronized (this)
+		{
+			loading.remove(file);
+			cache.put(file, mesh);
+			cache_bytes += mesh.get_byte_size();
+
+			// Evict the least recently used meshes until the cache fits, but never the current one
+			Iterator<Map.Entry<File, SceneMesh>> entries = cache.entrySet().iterator();
+			while (cache_bytes > max_cache_bytes && entries.hasNext())
+			{
+				Map.Entry<File, SceneMesh> entry = entries.next();
+				if (entry.getKey().equals(files[current]) || entry.getValue() == mesh)
+				{
+					continue;
+				}
+				cache_bytes -= entry.getValue().get_byte_size();
+				entries.remove();
+			}
+		}
+
+		if (listener != null)
+		{
+			listener.run();
+		}
+	}
+}
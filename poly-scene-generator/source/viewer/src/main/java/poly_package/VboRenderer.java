@@ -0,0 +1,144 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.fixedfunc.GLPointerFunc;
+
+// This class draws a SceneMesh from vertex buffer objects.  The positions and the two index lists are uploaded to the graphics card
+//  once, and each frame is then two glDrawElements calls (the blue faces, then the white outlines) instead of a glVertex3f call per
+//  vertex.  All of its methods must be called on the OpenGL thread (ie from View's GLEventListener methods).
+// The mesh may have more conglomerates appended to it while the scene is being generated; upload() is then called again to replace
+//  the buffers' contents.
+public class VboRenderer
+{
+	SceneMesh mesh;
+	int[] buffers = new int[3];		// Vertex positions, triangle indices, line indices
+	boolean uploaded = false;
+	int uploaded_position_count, uploaded_triangle_index_count, uploaded_line_index_count;	// The parts of the mesh on the card
+
+	public VboRenderer(SceneMesh mesh)
+	{
+		this.mesh = mesh;
+	}
+
+	// True if the OpenGL implementation has vertex buffer objects (OpenGL 1.5).
+	public static boolean is_supported(GL gl)
+	{
+		return gl.isFunctionAvailable("glGenBuffers") && gl.isFunctionAvailable("glBindBuffer")
+				&& gl.isFunctionAvailable("glBufferData") && gl.isFunctionAvailable("glDeleteBuffers");
+	}
+
+	// Copies the mesh into buffers on the graphics card, creating the buffers the first time.
+	public void upload(GL gl)
+	{
+		if (!uploaded)
+		{
+			gl.glGenBuffers(3, buffers, 0);
+			uploaded = true;
+		}
+
+		synchronized (mesh)
+		{
+			FloatBuffer positions = direct_buffer(mesh.position_count).asFloatBuffer();
+			positions.put(mesh.positions, 0, mesh.position_count).flip();
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, mesh.position_count * 4L, positions, GL.GL_STATIC_DRAW);
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+			upload_indices(gl, buffers[1], mesh.triangle_indices, mesh.triangle_index_count);
+			upload_indices(gl, buffers[2], mesh.line_indices, mesh.line_index_count);
+
+			uploaded_position_count = mesh.position_count;
+			uploaded_triangle_index_count = mesh.triangle_index_count;
+			uploaded_line_index_count = mesh.line_index_count;
+		}
+	}
+
+	// True if the mesh has been added to since it was last uploaded.
+	public boolean is_out_of_date()
+	{
+		synchronized (mesh)
+		{
+			return !uploaded || mesh.position_count != uploaded_position_count
+					|| mesh.triangle_index_count != uploaded_triangle_index_count || mesh.line_index_count != uploaded_line_index_count;
+		}
+	}
+
+	private void upload_indices(GL gl, int buffer, int[] indices, int count)
+	{
+		IntBuffer data = direct_buffer(count).asIntBuffer();
+		data.put(indices, 0, count).flip();
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffer);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, count * 4L, data, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	// OpenGL reads buffer data directly from memory, so it must be in a direct buffer in the platform's byte order.
+	private static ByteBuffer direct_buffer(int count)
+	{
+		return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+	}
+
+	// Draws the faces (offset back so the outlines are visible on top of them, as View does in immediate mode) and then the outlines.
+	public void draw(GL2 gl)
+	{
+		gl.glEnableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		gl.glVertexPointer(3, GL.GL_FLOAT, 0, 0);
+
+		gl.glPolygonOffset(1.0f, 1.0f);
+		gl.glEnable(GL.GL_POLYGON_OFFSET_FILL);
+		gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_FILL);
+		gl.glColor3f(0.0f, 0.0f, 1.0f);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+		gl.glDrawElements(GL.GL_TRIANGLES, uploaded_triangle_index_count, GL.GL_UNSIGNED_INT, 0);
+		gl.glDisable(GL.GL_POLYGON_OFFSET_FILL);
+
+		gl.glColor3f(1.0f, 1.0f, 1.0f);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[2]);
+		gl.glDrawElements(GL.GL_LINES, uploaded_line_index_count, GL.GL_UNSIGNED_INT, 0);
+
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glDisableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+	}
+
+	// Records the two draw calls made by draw() in the frame statistics.
+	public void add_draws(FrameStats stats)
+	{
+		stats.add_draw(uploaded_triangle_index_count, uploaded_triangle_index_count / 3);
+		stats.add_draw(uploaded_line_index_count, uploaded_line_index_count / 2);
+	}
+
+	// Frees the buffers on the graphics card.
+	public void dispose(GL gl)
+	{
+		if (uploaded)
+		{
+			gl.glDeleteBuffers(3, buffers, 0);
+			uploaded = false;
+		}
+	}
+}
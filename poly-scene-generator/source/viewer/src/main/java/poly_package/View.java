@@ -0,0 +1,977 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.DoubleBuffer;
+
+import com.jogamp.opengl.util.gl2.GLUT;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GL2ES1;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.awt.GLCanvas;
+import javax.media.opengl.fixedfunc.GLLightingFunc;
+import javax.media.opengl.fixedfunc.GLMatrixFunc;
+import javax.media.opengl.glu.GLU;
+import javax.swing.GroupLayout;
+import javax.swing.JFrame;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+
+import poly_package.Conglomerate;
+import poly_package.Point;
+import poly_package.Polygon;
+import poly_package.Main;
+
+// This class provides a dialog for the user to enter parameters and handles the view of the polygonal scene.
+// It's an observer of the model in lieu of a controller class.
+public class View implements ActionListener, SceneListener, GLEventListener, KeyListener
+{
+	Model my_model;
+	
+	// This holds the conglomerates (and thus all model data), each added as soon as Model has finished it.  It's only changed on the 
+	//  event thread, but it may be drawn from the OpenGL thread.
+	volatile List<Conglomerate> conglomerates = new CopyOnWriteArrayList<Conglomerate>();
+	
+	// The scene packed into arrays, and the renderer which draws it from buffers on the graphics card.  If the OpenGL implementation
+	//  doesn't have vertex buffer objects, the scene is drawn in immediate mode instead.
+	volatile SceneMesh scene_mesh = new SceneMesh();
+	VboRenderer vbo_renderer;
+	boolean use_vbos = false;
+	
+	// Statistics about the frames drawn, shown over the scene while show_stats is on ('S' toggles it)
+	FrameStats frame_stats = new FrameStats();
+	boolean show_stats = false;
+	GLUT glut = new GLUT();
+	int canvas_height = 1;
+	
+	// In browse mode, the scenes are read from .obj files by 'browser' instead of being generated, and each mesh the browser has 
+	//  loaded gets its own renderer so that the next scenes are already on the graphics card when the user moves to them.
+	SceneBrowser browser = null;
+	HashMap<SceneMesh, VboRenderer> browse_renderers = new HashMap<SceneMesh, VboRenderer>();
+	
+	// Once a scene is displayed, the next one is generated (with its own Model, and packed into a SceneMesh) in the background, so 
+	//  that pressing 'N' can swap it in straight away.  It's only written to a file once it has been swapped in; scene k is saved with
+	//  "-k" added to the filename.
+	ExecutorService prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		public Thread newThread(Runnable task)
+		{
+			Thread thread = new Thread(task, "Next scene");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	Future<SceneMesh> next_scene = null;
+	volatile Model next_model = null;
+	boolean swap_when_ready = false;		// Set if 'N' was pressed before the next scene was finished
+	int scene_number = 1;
+	VboRenderer retired_renderer = null;	// The previous scene's renderer, whose buffers are freed on the next frame
+	static final int NEXT_SCENE_ATTEMPTS = 3;
+   
+    // After the first rotation rotation_matrix is my_quaternion's own buffer, which each rotation overwrites in place.  That's safe 
+    //  because GLCanvas draws on the event thread, which is also where the rotation timer runs.
+    Quaternion my_quaternion;
+    volatile DoubleBuffer rotation_matrix;
+    
+    // The scene is only redrawn when it changes (or the window needs repainting).  While cursor keys are held down, rotation_timer
+    //  rotates the scene by an amount proportional to the time since its last tick, so the speed doesn't depend on the key repeat rate.
+    static final double ROTATION_SPEED = Math.toRadians(60);		// Radians per second
+    static final int ROTATION_TICK = 15;							// Milliseconds between rotation steps
+    Timer rotation_timer = new Timer(ROTATION_TICK, this);
+    boolean up_held = false, down_held = false, left_held = false, right_held = false;
+    long last_rotation_time;
+    
+    GLU glu = new GLU();
+ 
+    GLCanvas canvas = new GLCanvas();
+ 
+    Frame scene_frame = new Frame("");
+    
+	int number_of_planes;
+	double poly_probability;
+	String output_filename;
+	boolean data_is_valid = false;
+	
+	// The following are elements of the input dialog.
+	JFrame frame;
+
+	JLabel planes_label;
+	JLabel prob_label;
+	JLabel filename_label;
+		
+	JTextField planes_text_field;
+	JTextField prob_text_field;
+	JTextField filename_text_field;
+	
+	JButton ok_button;
+
+	JLabel planes_error;
+	JLabel prob_error;
+	JLabel filename_error;
+
+	public View(int number_of_planes, double poly_probability, String output_filename, Model my_model) 
+	{
+		my_quaternion = new Quaternion();
+		
+		// Matrix representing no rotation and camera distance of -5 units from the origin along the z-axis. 
+		double[] temp_array = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, -5, 1};
+		rotation_matrix = DoubleBuffer.wrap(temp_array);
+		
+		// Setup for input dialog with default values.
+		frame = new JFrame();
+		this.number_of_planes = number_of_planes;
+		this.poly_probability = poly_probability;
+		this.output_filename = output_filename;
+		this.my_model = my_model;
+
+		planes_label = new JLabel("Number of Planes:");
+		prob_label = new JLabel("Probability each Polyhedron is Visible:");
+		filename_label = new JLabel("Filename to Save to:");
+			
+		planes_text_field = new JTextField(Integer.toString(number_of_planes), 20);
+		planes_text_field.setName("planes");
+		prob_text_field = new JTextField(Double.toString(poly_probability), 20);
+		prob_text_field.setName("probabilities");
+		filename_text_field = new JTextField(output_filename, 20);
+		filename_text_field.setName("filename");
+		ok_button = new JButton("Ok");
+		ok_button.setName("ok_button");
+		
+		planes_error = new JLabel("");
+		prob_error = new JLabel("");
+		filename_error = new JLabel("");
+		
+		final View current = this;
+		
+		// Must only update GUI from EventQueue
+		java.awt.EventQueue.invokeLater(new Runnable() 
+		{
+		    public void run() 
+		    {
+		    	current.initialize_frame();
+		    }
+		});
+	}
+	
+	// Creates a view which browses the saved scenes in a directory, with Page Up and Page Down (and Home and End) moving between them.
+	public View(SceneBrowser browser)
+	{
+		my_quaternion = new Quaternion();
+		double[] temp_array = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, -5, 1};
+		rotation_matrix = DoubleBuffer.wrap(temp_array);
+		
+		this.browser = browser;
+		
+		// The browser reads scenes on its own thread, and redraws once the one being waited for (or one after it) has arrived
+		browser.set_listener(new Runnable()
+		{
+			public void run()
+			{
+				EventQueue.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						canvas.display();
+					}
+				});
+			}
+		});
+		
+		EventQueue.invokeLater(new Runnable() 
+		{
+		    public void run() 
+		    {
+		    	open_scene_window();
+		    	show_browse_status();
+		    }
+		});
+		browser.prefetch();
+	}
+	
+	// Shows which scene is being browsed, in the window title and on the console.
+	void show_browse_status()
+	{
+		String status = (browser.get_scene_count() == 0) ? "No .obj files found"
+				: browser.get_current_name() + " (" + (browser.get_current_index() + 1) + " of " + browser.get_scene_count() + ")";
+		scene_frame.setTitle(status);
+		System.out.println(status);
+	}
+	
+	public int getNumPlanes()
+	{
+		return Integer.parseInt(planes_text_field.getText());
+	}
+
+	public double getProbPolyhedronVisible()
+	{
+		return Double.parseDouble(prob_text_field.getText());
+	}
+
+	public String getFilename()
+	{
+		return filename_text_field.getText();
+	}
+
+	public void register(ActionListener caller)
+	{
+		ok_button.addActionListener(caller);
+	}
+	
+	// This function creates the user input dialog.
+	public void initialize_frame()
+	{
+		JPanel panel = new JPanel();
+		GroupLayout layout = new GroupLayout(panel);
+		panel.setLayout(layout);
+
+		layout.setAutoCreateGaps(true);
+		layout.setAutoCreateContainerGaps(true);
+			
+		// Describe the dialog horizontally.
+		GroupLayout.SequentialGroup h_group = layout.createSequentialGroup();
+			
+		GroupLayout.ParallelGroup temp_para = layout.createParallelGroup(GroupLayout.Alignment.LEADING);
+		temp_para.addComponent(planes_label);
+		temp_para.addComponent(prob_label);
+		temp_para.addComponent(filename_label);
+		h_group.addGroup(temp_para);
+		
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.LEADING);
+		temp_para.addComponent(planes_text_field);
+		temp_para.addComponent(prob_text_field);
+		temp_para.addComponent(filename_text_field);
+		temp_para.addComponent(ok_button);
+		h_group.addGroup(temp_para);
+
+		// These won't actually show up unless the user attempts to submit an invalid parameter.
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.LEADING);
+		temp_para.addComponent(planes_error);
+		temp_para.addComponent(prob_error);
+		temp_para.addComponent(filename_error);
+		h_group.addGroup(temp_para);
+		
+		layout.setHorizontalGroup(h_group);
+			
+		// Describe the dialog vertically.
+		GroupLayout.SequentialGroup v_group = layout.createSequentialGroup();
+
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.BASELINE);
+		temp_para.addComponent(planes_label);
+		temp_para.addComponent(planes_text_field);
+		temp_para.addComponent(planes_error);
+		v_group.addGroup(temp_para);
+
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.BASELINE);
+		temp_para.addComponent(prob_label);
+		temp_para.addComponent(prob_text_field);
+		temp_para.addComponent(prob_error);
+		v_group.addGroup(temp_para);
+
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.BASELINE);
+		temp_para.addComponent(filename_label);
+		temp_para.addComponent(filename_text_field);
+		temp_para.addComponent(filename_error);
+		v_group.addGroup(temp_para);
+
+		temp_para = layout.createParallelGroup(GroupLayout.Alignment.BASELINE);
+		temp_para.addComponent(ok_button);
+		v_group.addGroup(temp_para);
+
+		layout.setVerticalGroup(v_group);
+			
+		frame.add(panel);
+		frame.pack();
+		frame.setVisible(true);
+		
+		register(this);
+	}
+	
+	// These functions receive the scene from Model while it's being generated: a SceneProgress at the start and end of each stage, 
+	//  each Conglomerate as soon as it's complete, and finally the list of all conglomerates (at which point the next scene is started).
+	// They're called on Model's generator thread, so the window is only changed from the event thread.  Each conglomerate is packed 
+	//  into a SceneMesh (which includes triangulating its polygons) here first, so the event thread only has to append it.
+	public void stage_changed(SceneProgress progress) 
+	{
+		final String status = progress.toString();
+		System.out.println(status);
+		EventQueue.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				scene_frame.setTitle(status);
+			}
+		});
+	}
+	
+	public void conglomerate_finished(final Conglomerate conglo) 
+	{
+		final SceneMesh conglomerate_mesh = new SceneMesh(Collections.singletonList(conglo));
+		EventQueue.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				conglomerates.add(conglo);
+				scene_mesh.append(conglomerate_mesh);
+				canvas.display();
+			}
+		});
+	}
+	
+	public void scene_finished(List<Conglomerate> finished_conglomerates) 
+	{
+		EventQueue.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				start_next_scene();
+			}
+		});
+	}
+	
+	// Starts generating the next scene in the background, with the same parameters.  Generation occasionally fails on a bad 
+	//  arrangement of planes, in which case it's tried again with new planes.
+	void start_next_scene()
+	{
+		next_model = null;
+		next_scene = prefetcher.submit(new Callable<SceneMesh>()
+		{
+			public SceneMesh call()
+			{
+				for (int attempt = 0; attempt < NEXT_SCENE_ATTEMPTS; attempt++)
+				{
+					try
+					{
+						Model model = new Model();
+						model.generate_scene(number_of_planes, poly_probability);
+						SceneMesh mesh = new SceneMesh(model.get_conglomerates());
+						next_model = model;
+						return mesh;
+					}
+					catch (RuntimeException ex)
+					{
+						System.out.println("ERROR generating the next scene; " + ex);
+					}
+				}
+				return null;
+			}
+		});
+		
+		// The prefetcher runs one task at a time, so this runs once the scene is finished
+		prefetcher.submit(new Runnable()
+		{
+			public void run()
+			{
+				EventQueue.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						if (swap_when_ready)
+						{
+							swap_in_next_scene();
+						}
+					}
+				});
+			}
+		});
+	}
+	
+	// Replaces the displayed scene with the one generated in the background, saves it, and starts on the one after.  If it isn't 
+	//  ready yet, the swap happens as soon as it is.
+	void swap_in_next_scene()
+	{
+		if (next_scene == null)
+		{
+			return;
+		}
+		if (!next_scene.isDone())
+		{
+			swap_when_ready = true;
+			scene_frame.setTitle("Generating the next scene...");
+			System.out.println("Generating the next scene...");
+			return;
+		}
+		swap_when_ready = false;
+		
+		SceneMesh mesh = null;
+		try
+		{
+			mesh = next_scene.get();
+		}
+		catch (InterruptedException ex)
+		{
+		}
+		catch (ExecutionException ex)
+		{
+			System.out.println("ERROR generating the next scene; " + ex.getCause());
+		}
+		if (mesh == null)
+		{
+			start_next_scene();
+			return;
+		}
+		
+		scene_number++;
+		my_model = next_model;
+		my_model.start_writing(scene_filename(output_filename, scene_number));
+		
+		conglomerates = new CopyOnWriteArrayList<Conglomerate>(my_model.get_conglomerates());
+		scene_mesh = mesh;
+		if (vbo_renderer != null)
+		{
+			retired_renderer = vbo_renderer;
+			vbo_renderer = null;
+		}
+		
+		String status = "Scene " + scene_number + ": " + scene_filename(output_filename, scene_number);
+		scene_frame.setTitle(status);
+		System.out.println(status);
+		
+		start_next_scene();
+		canvas.display();
+	}
+	
+	// The filename for the k'th scene: the first uses the name given, and later ones add "-k" before the extension.
+	static String scene_filename(String output_filename, int scene_number)
+	{
+		if (scene_number == 1)
+		{
+			return output_filename;
+		}
+		int dot = output_filename.lastIndexOf('.');
+		if (dot < 0)
+		{
+			return output_filename + "-" + scene_number;
+		}
+		return output_filename.substring(0, dot) + "-" + scene_number + output_filename.substring(dot);
+	}
+	
+	// Creates the window to display the scene in.  This is done as soon as generation starts, and the scene appears in it piece by 
+	//  piece.
+	void open_scene_window()
+	{
+        canvas.addGLEventListener(this);
+        scene_frame.add(canvas);
+        scene_frame.setSize(640, 480);
+        scene_frame.setUndecorated(true);
+        scene_frame.setExtendedState(Frame.MAXIMIZED_BOTH);
+        
+        // Anonymous function to handle dialog closing.
+        scene_frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                exit();
+            }
+        });
+        
+        scene_frame.setVisible(true);
+        canvas.requestFocus();
+	}
+	
+	// This function is called when the user clicks the "Ok" button on the input dialog.
+	// It validates the parameters and passes them on to Model if they're valid; otherwise it displays an error message
+	//  in the appropriate error field.
+	// It is also called by rotation_timer while cursor keys are held down.
+	public void actionPerformed(ActionEvent event) 
+    {
+    	if (event.getSource() == rotation_timer)
+    	{
+    		rotate_held_keys();
+    	}
+    	else if (event.getSource() instanceof JButton)
+    	{
+    		JButton pressed_button = (JButton)event.getSource();
+    		
+    		// Validate input
+    		if (pressed_button.getName() == "ok_button")
+    		{
+    			data_is_valid = true;
+    			
+    			planes_error.setText("");
+    			prob_error.setText("");
+    			filename_error.setText("");
+    			
+				if (!Main.isPositiveInteger(planes_text_field.getText()))
+				{
+					planes_error.setText("Number of planes must be a positive integer");
+					data_is_valid = false;
+				}
+
+				if (!Main.isDouble(prob_text_field.getText()))
+				{
+					prob_error.setText("Probability must be a number between 0 and 1");
+					data_is_valid = false;
+				}
+				else if (Double.parseDouble(prob_text_field.getText()) < 0 || Double.parseDouble(prob_text_field.getText()) > 1) 
+				{
+					prob_error.setText("Probability must be a number between 0 and 1");
+					data_is_valid = false;
+				} 
+
+				if (filename_text_field.getText().isEmpty())
+				{
+					filename_error.setText("Output filename is required");
+					data_is_valid = false;
+				}
+				
+    			frame.pack();
+    			
+    			if (data_is_valid)
+    			{
+    				// Close dialog and tell Model to create scene
+    	    		number_of_planes = Integer.parseInt(planes_text_field.getText());
+    	    		poly_probability = Double.parseDouble(prob_text_field.getText());
+    	    		output_filename = filename_text_field.getText().trim();
+    	    		
+    	    		// Add ".obj" to the end of the filename if it doesn't already end in ".obj" or ".glb".
+    	    		int filename_length = output_filename.length();
+    	    		if (filename_length < 5 || !(output_filename.endsWith(".obj") || output_filename.endsWith(".glb")))
+    	    		{
+    	    			output_filename = output_filename.concat(".obj");
+    	    		}
+
+    				frame.setVisible(false);
+    				frame.dispose();
+    				open_scene_window();
+    				my_model.start_scene(number_of_planes, poly_probability, output_filename);
+    			}
+    		}
+    	}
+    }
+    	
+	// This function watches for keystrokes while the scene is being displayed, to rotate the scene and exit the program.
+	public void keyPressed(KeyEvent e) 
+    {
+//    	System.out.println("keyPressed" + e.getKeyCode());
+    	if (e.getKeyCode() == KeyEvent.VK_ESCAPE) 
+    	{
+    		exit();
+    	}
+    	if (browser != null && (e.getKeyCode() == KeyEvent.VK_PAGE_DOWN || e.getKeyCode() == KeyEvent.VK_PAGE_UP 
+    			|| e.getKeyCode() == KeyEvent.VK_HOME || e.getKeyCode() == KeyEvent.VK_END))
+    	{
+    		int count = browser.get_scene_count();
+    		int steps = (e.getKeyCode() == KeyEvent.VK_PAGE_DOWN) ? 1 : (e.getKeyCode() == KeyEvent.VK_PAGE_UP) ? -1 
+    						: (e.getKeyCode() == KeyEvent.VK_END) ? count : -count;
+    		browser.move(steps);
+    		show_browse_status();
+    		canvas.display();
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_N && browser == null)
+    	{
+    		swap_in_next_scene();
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_S)
+    	{
+    		show_stats = !show_stats;
+    		canvas.display();
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_UP)
+    	{
+    		up_held = true;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_DOWN)
+    	{
+    		down_held = true;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_LEFT)
+    	{
+    		left_held = true;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_RIGHT)
+    	{
+    		right_held = true;
+    	}
+    	
+    	// Start rotating straight away; later steps are timed from this one.  Key repeats while the timer is running are ignored.
+    	if ((up_held || down_held || left_held || right_held) && !rotation_timer.isRunning())
+    	{
+    		last_rotation_time = System.nanoTime() - ROTATION_TICK * 1000000L;
+    		rotate_held_keys();
+    		rotation_timer.start();
+    	}
+    }
+    	 
+	// Stops rotating in a direction when its key is released.  The timer stops itself on its next tick if no keys are held.
+	public void keyReleased(KeyEvent e) 
+    {
+    	if (e.getKeyCode() == KeyEvent.VK_UP)
+    	{
+    		up_held = false;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_DOWN)
+    	{
+    		down_held = false;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_LEFT)
+    	{
+    		left_held = false;
+    	}
+    	if (e.getKeyCode() == KeyEvent.VK_RIGHT)
+    	{
+    		right_held = false;
+    	}
+    }
+    
+    // Rotates the scene in each direction whose key is held, by ROTATION_SPEED times the time since the last step, and redraws it.
+    void rotate_held_keys()
+    {
+    	if (!(up_held || down_held || left_held || right_held))
+    	{
+    		rotation_timer.stop();
+    		return;
+    	}
+    	
+    	long now = System.nanoTime();
+    	double seconds = Math.min((now - last_rotation_time) / 1e9, 0.1);		// Don't jump if the timer was held up
+    	last_rotation_time = now;
+    	double angle = ROTATION_SPEED * seconds;
+    	
+    	if (up_held)
+    	{
+    		rotation_matrix = my_quaternion.rotate(Quaternion.UP, angle);
+    	}
+    	if (down_held)
+    	{
+    		rotation_matrix = my_quaternion.rotate(Quaternion.DOWN, angle);
+    	}
+    	if (left_held)
+    	{
+    		rotation_matrix = my_quaternion.rotate(Quaternion.LEFT, angle);
+    	}
+    	if (right_held)
+    	{
+    		rotation_matrix = my_quaternion.rotate(Quaternion.RIGHT, angle);
+    	}
+    	canvas.display();
+    }
+    	 
+	// Needed to implement KeyListener
+    public void keyTyped(KeyEvent e) 
+    {
+    }
+    	    
+    // This function actually draws the scene.
+    public void display(GLAutoDrawable gLDrawable) 
+    {
+    	// Set up the OpenGL object for drawing.
+        final GL2 gl = gLDrawable.getGL().getGL2();
+        frame_stats.begin_frame();
+        gl.glClear(GL.GL_COLOR_BUFFER_BIT);
+        gl.glClear(GL.GL_DEPTH_BUFFER_BIT);
+        gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);		// All changes should be to the modelview matrix
+        gl.glLoadIdentity();
+        gl.glLoadMatrixd(rotation_matrix);				// Applies the cumulative effect of all rotations to the model
+        
+        if (browser != null)
+        {
+        	draw_browsed_scene(gl);
+        }
+        else if (use_vbos)
+        {
+        	if (retired_renderer != null)
+        	{
+        		retired_renderer.dispose(gl);
+        		retired_renderer = null;
+        	}
+        	
+        	// The buffers have to be created on this thread, so they are uploaded (or replaced, if conglomerates have been added since)
+        	//  before drawing
+        	if (vbo_renderer == null)
+        	{
+        		vbo_renderer = new VboRenderer(scene_mesh);
+        	}
+        	if (vbo_renderer.is_out_of_date())
+        	{
+        		vbo_renderer.upload(gl);
+        	}
+        	vbo_renderer.draw(gl);
+        	vbo_renderer.add_draws(frame_stats);
+        }
+        else
+        {
+        	draw_immediate(gl);
+        }
+        
+        frame_stats.end_frame();
+        if (show_stats)
+        {
+        	draw_stats(gl);
+        }
+    }
+    
+    // Writes the frame statistics, and how long each stage of generating the scene took, in the top left corner of the window.
+    void draw_stats(GL2 gl)
+    {
+    	List<SceneProgress> stages = (browser == null) ? my_model.get_finished_stages() : Collections.<SceneProgress>emptyList();
+    	gl.glDisable(GL.GL_DEPTH_TEST);
+    	gl.glColor3f(1.0f, 1.0f, 0.0f);		// The colour is taken when the raster position is set, so it's set first
+    	int y = canvas_height - 16;
+    	for (String line: frame_stats.get_overlay_lines(stages))
+    	{
+    		gl.glWindowPos2i(8, y);
+    		glut.glutBitmapString(GLUT.BITMAP_HELVETICA_12, line);
+    		y -= 15;
+    	}
+    	gl.glEnable(GL.GL_DEPTH_TEST);
+    }
+    
+    // Draws the current scene in browse mode (nothing, if it hasn't been read yet).  The scenes around it which the browser has read
+    //  are uploaded too, and the buffers of scenes the browser has dropped from its cache are freed.
+    void draw_browsed_scene(GL2 gl)
+    {
+    	SceneMesh mesh = browser.get_current_mesh();
+    	if (!use_vbos)
+    	{
+    		if (mesh != null)
+    		{
+    			draw_mesh_immediate(gl, mesh);
+    		}
+    		return;
+    	}
+    	
+    	for (SceneMesh nearby: browser.get_nearby_meshes())
+    	{
+    		if (nearby != null && !browse_renderers.containsKey(nearby))
+    		{
+    			VboRenderer renderer = new VboRenderer(nearby);
+    			renderer.upload(gl);
+    			browse_renderers.put(nearby, renderer);
+    		}
+    	}
+    	
+    	Iterator<SceneMesh> uploaded = browse_renderers.keySet().iterator();
+    	while (uploaded.hasNext())
+    	{
+    		SceneMesh uploaded_mesh = uploaded.next();
+    		if (uploaded_mesh != mesh && !browser.is_cached(uploaded_mesh))
+    		{
+    			browse_renderers.get(uploaded_mesh).dispose(gl);
+    			uploaded.remove();
+    		}
+    	}
+    	
+    	if (mesh != null)
+    	{
+    		browse_renderers.get(mesh).draw(gl);
+    		browse_renderers.get(mesh).add_draws(frame_stats);
+    	}
+    }
+    
+    // Draws a mesh one vertex at a time, for browse mode without vertex buffer objects.
+    void draw_mesh_immediate(GL2 gl, SceneMesh mesh)
+    {
+        gl.glPolygonOffset(1.0f, 1.0f);
+        gl.glEnable(GL.GL_POLYGON_OFFSET_FILL);
+        gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_FILL);
+        gl.glBegin(GL.GL_TRIANGLES);
+        gl.glColor3f(0.0f, 0.0f, 1.0f);
+        for (int i = 0; i < mesh.triangle_index_count; i++)
+        {
+        	int index = mesh.triangle_indices[i] * 3;
+        	gl.glVertex3f(mesh.positions[index], mesh.positions[index + 1], mesh.positions[index + 2]);
+        }
+        gl.glEnd();
+        gl.glDisable(GL.GL_POLYGON_OFFSET_FILL);
+        frame_stats.add_draw(mesh.triangle_index_count, mesh.triangle_index_count / 3);
+        
+        gl.glBegin(GL.GL_LINES);
+        gl.glColor3f(1.0f, 1.0f, 1.0f);
+        for (int i = 0; i < mesh.line_index_count; i++)
+        {
+        	int index = mesh.line_indices[i] * 3;
+        	gl.glVertex3f(mesh.positions[index], mesh.positions[index + 1], mesh.positions[index + 2]);
+        }
+        gl.glEnd();
+        frame_stats.add_draw(mesh.line_index_count, mesh.line_index_count / 2);
+    }
+    
+    // This function draws the scene one vertex at a time, for OpenGL implementations without vertex buffer objects.
+    void draw_immediate(GL2 gl)
+    {
+        // Draws a square around the scene to help with debugging the display and rotation.
+//        gl.glBegin(GL2.GL_LINE_LOOP);               
+//            gl.glColor3f(0.0f, 1.0f, 1.0f);   // set the color
+//            gl.glVertex3f(-1.0f, 1.0f, 0.0f);   // Top Left
+//            gl.glVertex3f( 1.0f, 1.0f, 0.0f);   // Top Right
+//            gl.glVertex3f( 1.0f,-1.0f, 0.0f);   // Bottom Right
+//            gl.glVertex3f(-1.0f,-1.0f, 0.0f);   // Bottom Left
+//        gl.glEnd();                                                     
+
+        // Offset the polygons so the outlines will be slightly on top and thus visible.
+        gl.glPolygonOffset(1.0f, 1.0f);
+        gl.glEnable(GL.GL_POLYGON_OFFSET_FILL);
+        gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_FILL);
+        
+        // Iterate through conglomerates, and within each iterate through outline_draw_list to get polygons to draw.  The outlines
+        //  can be concave, so they are drawn as triangles rather than with GL_POLYGON.
+        int triangle_vertices = 0;
+        gl.glBegin(GL.GL_TRIANGLES);
+        gl.glColor3f(0.0f, 0.0f, 1.0f);   // Set the color
+        for (Conglomerate conglo: conglomerates)
+        {
+        	List<Polygon> drawables = conglo.get_outline_draw_list();
+
+        	// Iterate through chosen polygons and draw each
+            for (Polygon gon: drawables)
+            {
+                // This does the actual drawing.
+                for (int index: gon.get_triangles())
+                {
+                	Point current_point = gon.points.get(index);
+                    gl.glVertex3f((float)current_point.x_point, (float)current_point.y_point, (float)current_point.z_point);
+                }
+                triangle_vertices += gon.get_triangles().length;
+            }
+        }
+        gl.glEnd();                                                     
+        frame_stats.add_draw(triangle_vertices, triangle_vertices / 3);
+                
+        gl.glDisable(GL.GL_POLYGON_OFFSET_FILL);
+        
+        gl.glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_LINE);
+
+        // Iterate through conglomerates, and within each iterate through outline_draw_list to get outlines of polygons to draw
+        for (Conglomerate conglo: conglomerates)
+        {
+        	List<Polygon> drawables = conglo.get_outline_draw_list();
+        	for (Polygon gon: drawables)
+        	{
+                gl.glBegin(GL2.GL_LINE_LOOP);               
+                gl.glColor3f(1.0f, 1.0f, 1.0f);   // set the color
+                
+                // This does the actual drawing.
+                for (Point current_point: gon.points)
+                {
+                    gl.glVertex3f((float)current_point.x_point, (float)current_point.y_point, (float)current_point.z_point);
+                }
+                gl.glEnd();                                                     
+                frame_stats.add_draw(gon.points.size(), gon.points.size());		// A loop has as many lines as points
+        	}
+        }
+        
+        // This was used during debugging to draw all polygon lines, including lines which should not be visible due to merging.
+        // To add it back you would need a global boolean called toggle_on and a key to change it in keyPressed().
+        // If toggle is active, draw chosen polygons
+//        if (toggle_on)
+//        {
+//        	for (Polygon gon: chosen_polygons)
+//        	{
+//                gl.glBegin(GL2.GL_LINE_LOOP);               
+//                gl.glColor3f(1.0f, 0.0f, 0.0f);   // set the color
+                
+//                for (Point current_point: gon.points)
+//                {
+//                    gl.glVertex3f((float)current_point.x_point, (float)current_point.y_point, (float)current_point.z_point);
+//                }
+//                gl.glEnd();                                                     
+//        	}
+//        }
+        
+//        }
+    }
+ 
+    // Sets up the OpenGL object.
+    public void init(GLAutoDrawable gLDrawable) 
+    {
+        GL2 gl = gLDrawable.getGL().getGL2();
+        gl.glShadeModel(GLLightingFunc.GL_SMOOTH);
+        gl.glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+        gl.glClearDepth(1.0f);
+        gl.glEnable(GL.GL_DEPTH_TEST);
+        gl.glDepthFunc(GL.GL_LEQUAL);
+        gl.glHint(GL2ES1.GL_PERSPECTIVE_CORRECTION_HINT, GL.GL_NICEST);
+        ((Component) gLDrawable).addKeyListener(this);
+        use_vbos = VboRenderer.is_supported(gl);
+        if (!use_vbos)
+        {
+            JfrEvents.fallback("View", "Vertex buffer objects are not supported; drawing in immediate mode");
+        }
+    }
+ 
+    // Handles reshaping of the display window.
+    public void reshape(GLAutoDrawable gLDrawable, int x, int y, int width, int height) 
+    {
+        GL2 gl = gLDrawable.getGL().getGL2();
+        if (height <= 0) {
+            height = 1;
+        }
+        canvas_height = height;
+        float h = (float) width / (float) height;
+        gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        gl.glLoadIdentity();
+
+        // Copied from the gluPerspective man page:
+        // void gluPerspective(GLdouble fovy, GLdouble aspect, GLdouble zNear, GLdouble zFar);
+        // Parameters
+        // fovy - Specifies the field of view angle, in degrees, in the y direction.
+        // aspect - Specifies the aspect ratio that determines the field of view in the x direction.  
+        //			The aspect ratio is the ratio of x (width) to y (height).
+        // zNear - Specifies the distance from the viewer to the near clipping plane (always positive).
+        // zFar - Specifies the distance from the viewer to the far clipping plane (always positive).
+        glu.gluPerspective(50.0f, h, 1.0, 1000.0);
+        
+        gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        gl.glLoadIdentity();
+    }
+    
+    // Clean up when exiting
+    public void exit() 
+    {
+        rotation_timer.stop();
+        scene_frame.dispose();
+        System.exit(0);
+    }
+
+    // Frees the scene's buffers on the graphics card.
+    public void dispose(GLAutoDrawable gLDrawable) 
+    {
+    	if (vbo_renderer != null)
+    	{
+    		vbo_renderer.dispose(gLDrawable.getGL());
+    	}
+    	for (VboRenderer renderer: browse_renderers.values())
+    	{
+    		renderer.dispose(gLDrawable.getGL());
+    	}
+    }
+}
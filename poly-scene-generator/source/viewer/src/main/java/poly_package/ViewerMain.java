@@ -0,0 +1,36 @@
+//  Copyright (c) 2015 Stephen Voland
+
+//  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and 
+//	associated documentation files (the "Software"), to deal in the Software without restriction, including 
+//	without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+//	copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the 
+//	following conditions:
+
+//  The above copyright notice and this permission notice shall be included in all copies or substantial 
+//	portions of the Software.
+
+//  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT 
+//	LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+//	IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, 
+//	WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+//	SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package poly_package;
+
+// ViewerMain starts the viewer.  Main, which is part of the core, loads this class by name only when the viewer is wanted, so that
+//  generating scenes from the command line doesn't load AWT, Swing or JOGL, and the core can be built and run without them.
+public class ViewerMain
+{
+	// Opens the parameter dialog, and then the window showing the scenes as they're generated.
+	public static void start(int number_of_planes, double poly_probability, String output_filename, Model my_model)
+	{
+		View my_view = new View(number_of_planes, poly_probability, output_filename, my_model);
+		my_model.add_listener(my_view);
+	}
+
+	// Opens the viewer on the .obj files saved in a directory.
+	public static void browse(String directory)
+	{
+		new View(new SceneBrowser(directory, SceneBrowser.DEFAULT_CACHE_BYTES));
+	}
+}